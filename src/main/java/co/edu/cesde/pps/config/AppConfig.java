@@ -22,11 +22,16 @@ public class AppConfig {
     private static final int CART_ABANDONMENT_THRESHOLD_HOURS = 48;
     private static final int MAX_ITEMS_PER_CART = 50;
     private static final int MAX_QUANTITY_PER_ITEM = 99;
+    private static final int STOCK_HOLD_TIMEOUT_MINUTES = 15; // Reserva de stock por item
 
     // Configuración de Productos
     private static final int LOW_STOCK_THRESHOLD = 10;
     private static final int PRODUCTS_PER_PAGE = 20;
     private static final int MAX_PRODUCTS_PER_PAGE = 100;
+    private static final int HOT_SKU_QUEUE_CAPACITY = 500; // Solicitudes en cola por SKU hot
+    private static final int HOT_SKU_MAX_WAIT_MILLIS = 2000;
+    private static final int AUTOCOMPLETE_MAX_SUGGESTIONS = 10;
+    private static final int[] PRICE_FACET_BOUNDARIES = {25, 50, 100, 250, 500, 1000}; // Rangos de precio en facetas
 
     // Configuración de Órdenes
     private static final String ORDER_NUMBER_PREFIX = "ORD-";
@@ -75,6 +80,20 @@ public class AppConfig {
         return CART_ABANDONMENT_THRESHOLD_HOURS;
     }
 
+    /**
+     * Intervalo entre barridos de carritos abandonados (CartAbandonmentSweeper).
+     * Por defecto: 5 minutos (variable de entorno CART_ABANDONMENT_SWEEP_MINUTES)
+     *
+     * @return Minutos entre barridos
+     */
+    public static int getCartAbandonmentSweepIntervalMinutes() {
+        return Integer.parseInt(System.getenv().getOrDefault("CART_ABANDONMENT_SWEEP_MINUTES", "5"));
+    }
+
+    public static int getStockHoldTimeoutMinutes() {
+        return STOCK_HOLD_TIMEOUT_MINUTES;
+    }
+
     public static int getMaxItemsPerCart() {
         return MAX_ITEMS_PER_CART;
     }
@@ -97,6 +116,39 @@ public class AppConfig {
         return MAX_PRODUCTS_PER_PAGE;
     }
 
+    public static int getHotSkuQueueCapacity() {
+        return HOT_SKU_QUEUE_CAPACITY;
+    }
+
+    public static int getHotSkuMaxWaitMillis() {
+        return HOT_SKU_MAX_WAIT_MILLIS;
+    }
+
+    public static int getAutocompleteMaxSuggestions() {
+        return AUTOCOMPLETE_MAX_SUGGESTIONS;
+    }
+
+    /**
+     * Límites de los rangos de precio usados en las facetas del catálogo.
+     * Ej: {25, 50} genera los rangos "0-25", "25-50" y "50+".
+     *
+     * @return Copia de los límites, en orden ascendente
+     */
+    public static int[] getPriceFacetBoundaries() {
+        return PRICE_FACET_BOUNDARIES.clone();
+    }
+
+    /**
+     * Intervalo entre reconstrucciones del índice de autocompletado
+     * (AutocompleteIndexRefresher).
+     * Por defecto: 60 segundos (variable de entorno AUTOCOMPLETE_REBUILD_SECONDS)
+     *
+     * @return Segundos entre reconstrucciones
+     */
+    public static int getAutocompleteRebuildIntervalSeconds() {
+        return Integer.parseInt(System.getenv().getOrDefault("AUTOCOMPLETE_REBUILD_SECONDS", "60"));
+    }
+
     // Getters para configuraciones de órdenes
 
     public static String getOrderNumberPrefix() {
@@ -183,6 +235,43 @@ public class AppConfig {
         return "development".equalsIgnoreCase(getEnvironment());
     }
 
+    /**
+     * Indica si se deben verificar los totales incrementales del carrito contra
+     * un recálculo completo después de cada modificación (Cart.verifyTotals()).
+     * Costo O(items) por operación: pensado para desarrollo y pruebas.
+     * Por defecto: false (variable de entorno CART_TOTALS_VERIFICATION)
+     *
+     * @return true si la verificación está habilitada
+     */
+    public static boolean isCartTotalsVerificationEnabled() {
+        return Boolean.parseBoolean(System.getenv().getOrDefault("CART_TOTALS_VERIFICATION", "false"));
+    }
+
+    /**
+     * Obtiene el ID de este nodo de la aplicación (0 a 1023).
+     * Cada instancia desplegada debe tener un ID distinto: se usa para que los
+     * números de orden (y los IDs generados) no colisionen entre nodos.
+     * Por defecto: 0 (variable de entorno APP_NODE_ID)
+     *
+     * @return ID del nodo
+     */
+    public static int getNodeId() {
+        return Integer.parseInt(System.getenv().getOrDefault("APP_NODE_ID", "0"));
+    }
+
+    /**
+     * Obtiene la estrategia de generación de IDs para las entidades de alto volumen
+     * (Order, Cart, CartItem, OrderItem, Payment), ver IdGenerators.
+     * - "sequence": secuencia por entidad (un solo nodo)
+     * - "snowflake": IDs de 64 bits tiempo/nodo/secuencia (varios nodos)
+     * Por defecto: "sequence" (variable de entorno APP_ID_STRATEGY)
+     *
+     * @return Nombre de la estrategia
+     */
+    public static String getIdStrategy() {
+        return System.getenv().getOrDefault("APP_ID_STRATEGY", "sequence");
+    }
+
     /**
      * Obtiene el nombre de la aplicación.
      *
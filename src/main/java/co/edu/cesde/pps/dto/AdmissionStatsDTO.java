@@ -0,0 +1,125 @@
+package co.edu.cesde.pps.dto;
+
+import java.util.Objects;
+
+/**
+ * DTO con las métricas de la cola de admisión de un producto hot (venta flash).
+ *
+ * Se utiliza para:
+ * - Monitorear profundidad de cola y tiempos de espera
+ * - Ajustar capacidad y espera máxima de la cola
+ */
+public class AdmissionStatsDTO {
+
+    private Long productId;
+    private String productSku;
+    private Integer queueCapacity;
+    private Integer queueDepth;
+    private Integer maxQueueDepth;
+    private Long admitted;
+    private Long rejected;
+    private Double averageWaitMillis;
+    private Double maxWaitMillis;
+
+    // Constructor vacío
+    public AdmissionStatsDTO() {
+    }
+
+    // Getters y Setters
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public String getProductSku() {
+        return productSku;
+    }
+
+    public void setProductSku(String productSku) {
+        this.productSku = productSku;
+    }
+
+    public Integer getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(Integer queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Integer getQueueDepth() {
+        return queueDepth;
+    }
+
+    public void setQueueDepth(Integer queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    public Integer getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public void setMaxQueueDepth(Integer maxQueueDepth) {
+        this.maxQueueDepth = maxQueueDepth;
+    }
+
+    public Long getAdmitted() {
+        return admitted;
+    }
+
+    public void setAdmitted(Long admitted) {
+        this.admitted = admitted;
+    }
+
+    public Long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(Long rejected) {
+        this.rejected = rejected;
+    }
+
+    public Double getAverageWaitMillis() {
+        return averageWaitMillis;
+    }
+
+    public void setAverageWaitMillis(Double averageWaitMillis) {
+        this.averageWaitMillis = averageWaitMillis;
+    }
+
+    public Double getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(Double maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AdmissionStatsDTO that = (AdmissionStatsDTO) o;
+        return Objects.equals(productId, that.productId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(productId);
+    }
+
+    @Override
+    public String toString() {
+        return "AdmissionStatsDTO{" +
+                "productId=" + productId +
+                ", queueDepth=" + queueDepth +
+                ", admitted=" + admitted +
+                ", rejected=" + rejected +
+                ", averageWaitMillis=" + averageWaitMillis +
+                '}';
+    }
+}
@@ -0,0 +1,64 @@
+package co.edu.cesde.pps.dto;
+
+import java.util.Objects;
+
+/**
+ * DTO inmutable con un eslabón de la ruta de navegación (breadcrumb) de una categoría.
+ *
+ * Se utiliza para:
+ * - Breadcrumbs de la página de producto y de categoría ("Inicio > Computadores > Portátiles")
+ *
+ * Las rutas se cachean en CategoryService y se comparten entre todas las
+ * peticiones, por lo que este DTO no tiene setters.
+ */
+public class BreadcrumbDTO {
+
+    private final Long categoryId;
+    private final String name;
+    private final String slug;
+
+    // Constructor completo
+    public BreadcrumbDTO(Long categoryId, String name, String slug) {
+        this.categoryId = categoryId;
+        this.name = name;
+        this.slug = slug;
+    }
+
+    // Getters
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSlug() {
+        return slug;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BreadcrumbDTO that = (BreadcrumbDTO) o;
+        return Objects.equals(categoryId, that.categoryId) &&
+                Objects.equals(name, that.name) &&
+                Objects.equals(slug, that.slug);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(categoryId, name, slug);
+    }
+
+    @Override
+    public String toString() {
+        return "BreadcrumbDTO{" +
+                "categoryId=" + categoryId +
+                ", name='" + name + '\'' +
+                ", slug='" + slug + '\'' +
+                '}';
+    }
+}
@@ -27,6 +27,7 @@ public class CartDTO {
     private LocalDateTime updatedAt;
     private List<CartItemDTO> items;
     private Integer itemsCount;
+    private Integer totalQuantity;
     private BigDecimal total;
     private String totalFormatted;
 
@@ -122,6 +123,14 @@ public class CartDTO {
         this.itemsCount = itemsCount;
     }
 
+    public Integer getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public void setTotalQuantity(Integer totalQuantity) {
+        this.totalQuantity = totalQuantity;
+    }
+
     public BigDecimal getTotal() {
         return total;
     }
@@ -158,6 +167,7 @@ public class CartDTO {
                 ", status=" + status +
                 ", isGuest=" + isGuest +
                 ", itemsCount=" + itemsCount +
+                ", totalQuantity=" + totalQuantity +
                 ", total=" + total +
                 '}';
     }
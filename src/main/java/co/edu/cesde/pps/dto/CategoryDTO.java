@@ -12,6 +12,10 @@ import java.util.Objects;
  * - Árbol de categorías jerárquico
  * - Filtros de búsqueda
  * - Breadcrumbs de navegación
+ *
+ * Conteos de productos (ver Category.productCounts):
+ * - productsCount / activeProductsCount / inStockProductsCount: directos de la categoría
+ * - subtree*: los mismos conteos incluyendo todas las subcategorías (para el menú)
  */
 public class CategoryDTO {
 
@@ -23,6 +27,11 @@ public class CategoryDTO {
     private Boolean isRoot;
     private Integer subcategoriesCount;
     private Integer productsCount;
+    private Integer activeProductsCount;
+    private Integer inStockProductsCount;
+    private Integer subtreeProductsCount;
+    private Integer subtreeActiveProductsCount;
+    private Integer subtreeInStockProductsCount;
     private List<CategoryDTO> subcategories;
 
     // Constructor vacío
@@ -120,6 +129,46 @@ public class CategoryDTO {
         this.productsCount = productsCount;
     }
 
+    public Integer getActiveProductsCount() {
+        return activeProductsCount;
+    }
+
+    public void setActiveProductsCount(Integer activeProductsCount) {
+        this.activeProductsCount = activeProductsCount;
+    }
+
+    public Integer getInStockProductsCount() {
+        return inStockProductsCount;
+    }
+
+    public void setInStockProductsCount(Integer inStockProductsCount) {
+        this.inStockProductsCount = inStockProductsCount;
+    }
+
+    public Integer getSubtreeProductsCount() {
+        return subtreeProductsCount;
+    }
+
+    public void setSubtreeProductsCount(Integer subtreeProductsCount) {
+        this.subtreeProductsCount = subtreeProductsCount;
+    }
+
+    public Integer getSubtreeActiveProductsCount() {
+        return subtreeActiveProductsCount;
+    }
+
+    public void setSubtreeActiveProductsCount(Integer subtreeActiveProductsCount) {
+        this.subtreeActiveProductsCount = subtreeActiveProductsCount;
+    }
+
+    public Integer getSubtreeInStockProductsCount() {
+        return subtreeInStockProductsCount;
+    }
+
+    public void setSubtreeInStockProductsCount(Integer subtreeInStockProductsCount) {
+        this.subtreeInStockProductsCount = subtreeInStockProductsCount;
+    }
+
     public List<CategoryDTO> getSubcategories() {
         return subcategories;
     }
@@ -150,6 +199,8 @@ public class CategoryDTO {
                 ", isRoot=" + isRoot +
                 ", subcategoriesCount=" + subcategoriesCount +
                 ", productsCount=" + productsCount +
+                ", inStockProductsCount=" + inStockProductsCount +
+                ", subtreeInStockProductsCount=" + subtreeInStockProductsCount +
                 '}';
     }
 }
@@ -0,0 +1,126 @@
+package co.edu.cesde.pps.dto;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * DTO con el árbol completo de categorías en una versión de la jerarquía.
+ *
+ * Se utiliza para:
+ * - Menú de navegación de la tienda (se arma una vez por versión, no por página)
+ * - Respuestas HTTP cacheables: getETag() cambia solo cuando cambia el árbol
+ *   o sus conteos, por lo que el cliente puede usar If-None-Match y recibir 304
+ *
+ * Dos versiones independientes:
+ * - version: estructura (nombres, slugs, jerarquía)
+ * - countsVersion: conteos de productos de los nodos
+ * Cambiar cualquiera de las dos implica publicar otro árbol: un snapshot ya
+ * publicado nunca cambia, por lo que un lector siempre ve nodos, conteos y
+ * ETag de una misma versión.
+ *
+ * Al construirse, las listas de subcategorías de todos los nodos se reemplazan
+ * por listas no modificables. Los CategoryDTO del árbol son compartidos entre
+ * todos los lectores: NO deben modificarse.
+ */
+public class CategoryTreeDTO {
+
+    private final long version;
+    private final long countsVersion;
+    private final List<CategoryDTO> roots;
+    private final Map<Long, CategoryDTO> nodesById;
+
+    // Constructor completo
+    public CategoryTreeDTO(long version, long countsVersion, List<CategoryDTO> roots) {
+        this.version = version;
+        this.countsVersion = countsVersion;
+        this.roots = Collections.unmodifiableList(roots);
+        this.nodesById = Collections.unmodifiableMap(freeze(roots));
+    }
+
+    // Getters
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getCountsVersion() {
+        return countsVersion;
+    }
+
+    /**
+     * @return ETag HTTP (fuerte) de esta versión del árbol y sus conteos, ej: "categories-v42.7"
+     */
+    public String getETag() {
+        return eTagOf(version, countsVersion);
+    }
+
+    /**
+     * @param version Versión de la jerarquía
+     * @param countsVersion Versión de conteos
+     * @return ETag HTTP del árbol en esas versiones (permite responder 304 sin construirlo)
+     */
+    public static String eTagOf(long version, long countsVersion) {
+        return "\"categories-v" + version + "." + countsVersion + "\"";
+    }
+
+    public List<CategoryDTO> getRoots() {
+        return roots;
+    }
+
+    /**
+     * @param categoryId ID de la categoría
+     * @return Nodo del árbol (con sus subcategorías anidadas) o null si no existe
+     */
+    public CategoryDTO findNode(Long categoryId) {
+        return nodesById.get(categoryId);
+    }
+
+    /**
+     * @return Cantidad de categorías del árbol
+     */
+    public int size() {
+        return nodesById.size();
+    }
+
+    // Recorre el árbol: vuelve no modificables las subcategorías e indexa por ID
+    private static Map<Long, CategoryDTO> freeze(List<CategoryDTO> roots) {
+        Map<Long, CategoryDTO> nodes = new HashMap<>();
+        Deque<CategoryDTO> pending = new ArrayDeque<>(roots);
+        while (!pending.isEmpty()) {
+            CategoryDTO node = pending.pop();
+            nodes.put(node.getCategoryId(), node);
+            List<CategoryDTO> children = node.getSubcategories() != null ? node.getSubcategories() : List.of();
+            node.setSubcategories(Collections.unmodifiableList(children));
+            children.forEach(pending::push);
+        }
+        return nodes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CategoryTreeDTO that = (CategoryTreeDTO) o;
+        return version == that.version && countsVersion == that.countsVersion;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(version, countsVersion);
+    }
+
+    @Override
+    public String toString() {
+        return "CategoryTreeDTO{" +
+                "version=" + version +
+                ", countsVersion=" + countsVersion +
+                ", roots=" + roots.size() +
+                ", size=" + nodesById.size() +
+                '}';
+    }
+}
@@ -0,0 +1,111 @@
+package co.edu.cesde.pps.dto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * DTO con una página de navegación facetada del catálogo y sus conteos.
+ *
+ * Se utiliza para:
+ * - Listado de una categoría con filtros de precio y disponibilidad
+ * - Mostrar cuántos productos hay por subcategoría y por rango de precio
+ *
+ * Conteos (sobre la categoría y sus subcategorías, solo productos activos):
+ * - totalCount: productos que cumplen todos los filtros
+ * - inStockCount: productos en el rango de precio con stock disponible
+ * - subcategoryCounts: subcategoría directa → productos que cumplen los filtros
+ * - priceBucketCounts: rango de precio (ej: "25-50") → productos que cumplen
+ *   el filtro de disponibilidad, sin aplicar el rango de precio pedido
+ */
+public class FacetedProductPageDTO {
+
+    private Long categoryId;
+    private PageDTO<ProductDTO> page;
+    private Long totalCount;
+    private Long inStockCount;
+    private Map<Long, Long> subcategoryCounts;
+    private Map<String, Long> priceBucketCounts;
+
+    // Constructor vacío
+    public FacetedProductPageDTO() {
+        this.subcategoryCounts = new LinkedHashMap<>();
+        this.priceBucketCounts = new LinkedHashMap<>();
+    }
+
+    // Getters y Setters
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public PageDTO<ProductDTO> getPage() {
+        return page;
+    }
+
+    public void setPage(PageDTO<ProductDTO> page) {
+        this.page = page;
+    }
+
+    public Long getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(Long totalCount) {
+        this.totalCount = totalCount;
+    }
+
+    public Long getInStockCount() {
+        return inStockCount;
+    }
+
+    public void setInStockCount(Long inStockCount) {
+        this.inStockCount = inStockCount;
+    }
+
+    public Map<Long, Long> getSubcategoryCounts() {
+        return subcategoryCounts;
+    }
+
+    public void setSubcategoryCounts(Map<Long, Long> subcategoryCounts) {
+        this.subcategoryCounts = subcategoryCounts;
+    }
+
+    public Map<String, Long> getPriceBucketCounts() {
+        return priceBucketCounts;
+    }
+
+    public void setPriceBucketCounts(Map<String, Long> priceBucketCounts) {
+        this.priceBucketCounts = priceBucketCounts;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FacetedProductPageDTO that = (FacetedProductPageDTO) o;
+        return Objects.equals(categoryId, that.categoryId) &&
+                Objects.equals(page, that.page);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(categoryId, page);
+    }
+
+    @Override
+    public String toString() {
+        return "FacetedProductPageDTO{" +
+                "categoryId=" + categoryId +
+                ", page=" + page +
+                ", totalCount=" + totalCount +
+                ", inStockCount=" + inStockCount +
+                ", subcategoryCounts=" + subcategoryCounts +
+                ", priceBucketCounts=" + priceBucketCounts +
+                '}';
+    }
+}
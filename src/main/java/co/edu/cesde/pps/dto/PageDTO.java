@@ -0,0 +1,96 @@
+package co.edu.cesde.pps.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * DTO genérico para una página de resultados con paginación por cursor (keyset).
+ *
+ * Se utiliza para:
+ * - Listados de catálogo, usuarios, categorías, direcciones y órdenes
+ * - Scroll infinito / botón "cargar más" en el frontend
+ *
+ * nextCursor es un token opaco: el cliente lo envía tal cual para pedir la
+ * página siguiente. Es null cuando no hay más resultados.
+ *
+ * @param <T> Tipo de DTO de los elementos
+ */
+public class PageDTO<T> {
+
+    private List<T> items;
+    private Integer pageSize;
+    private String nextCursor;
+    private Boolean hasMore;
+
+    // Constructor vacío
+    public PageDTO() {
+        this.items = new ArrayList<>();
+    }
+
+    // Constructor completo
+    public PageDTO(List<T> items, Integer pageSize, String nextCursor) {
+        this.items = items;
+        this.pageSize = pageSize;
+        this.nextCursor = nextCursor;
+        this.hasMore = nextCursor != null;
+    }
+
+    // Getters y Setters
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public Integer getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(Integer pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Boolean getHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(Boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PageDTO<?> pageDTO = (PageDTO<?>) o;
+        return Objects.equals(items, pageDTO.items) &&
+                Objects.equals(nextCursor, pageDTO.nextCursor);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(items, nextCursor);
+    }
+
+    @Override
+    public String toString() {
+        return "PageDTO{" +
+                "items=" + (items != null ? items.size() : 0) +
+                ", pageSize=" + pageSize +
+                ", nextCursor='" + nextCursor + '\'' +
+                ", hasMore=" + hasMore +
+                '}';
+    }
+}
@@ -0,0 +1,40 @@
+package co.edu.cesde.pps.exception;
+
+/**
+ * Excepción lanzada cuando la cola de admisión de un producto "hot" (venta flash)
+ * rechaza una solicitud.
+ *
+ * Se utiliza en operaciones sobre productos marcados como hot SKU:
+ * - Agregar producto al carrito
+ * - Procesar orden (checkout)
+ *
+ * Se lanza antes de ejecutar cualquier validación del carrito u orden, para que
+ * el cliente pueda reintentar más tarde sin haber consumido recursos.
+ */
+public class AdmissionRejectedException extends BusinessException {
+
+    private final Long productId;
+    private final String productSku;
+
+    /**
+     * Constructor con detalles del producto
+     *
+     * @param productId ID del producto hot
+     * @param productSku SKU del producto
+     * @param reason Motivo del rechazo (ej: cola llena, tiempo de espera agotado)
+     */
+    public AdmissionRejectedException(Long productId, String productSku, String reason) {
+        super(String.format("Request for product %s (ID: %d) was not admitted: %s",
+            productSku, productId, reason));
+        this.productId = productId;
+        this.productSku = productSku;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public String getProductSku() {
+        return productSku;
+    }
+}
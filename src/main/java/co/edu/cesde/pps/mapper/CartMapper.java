@@ -16,7 +16,7 @@ import java.util.stream.Collectors;
  * - Convertir DTO a Entity (toEntity)
  * - Manejar null safety
  * - Convertir items anidados
- * - Calcular totales
+ * - Exponer totales (mantenidos incrementalmente por Cart)
  * - Formatear valores monetarios
  */
 public class CartMapper {
@@ -28,6 +28,30 @@ public class CartMapper {
      * @return CartDTO o null si cart es null
      */
     public CartDTO toDTO(Cart cart) {
+        CartDTO dto = toSummaryDTO(cart);
+        if (dto == null) {
+            return null;
+        }
+
+        // Convertir items
+        List<CartItemDTO> itemDTOs = cart.getItems().stream()
+                .map(this::toCartItemDTO)
+                .collect(Collectors.toList());
+        dto.setItems(itemDTOs);
+
+        return dto;
+    }
+
+    /**
+     * Convierte Cart Entity a CartDTO resumido (sin items).
+     *
+     * Usa los totales mantenidos incrementalmente por Cart, por lo que su costo
+     * es O(1) sin importar la cantidad de líneas (ej: widget de mini-carrito).
+     *
+     * @param cart Entity a convertir
+     * @return CartDTO sin items o null si cart es null
+     */
+    public CartDTO toSummaryDTO(Cart cart) {
         if (cart == null) {
             return null;
         }
@@ -46,19 +70,10 @@ public class CartMapper {
         dto.setCreatedAt(cart.getCreatedAt());
         dto.setUpdatedAt(cart.getUpdatedAt());
 
-        // Convertir items
-        if (cart.getItems() != null) {
-            List<CartItemDTO> itemDTOs = cart.getItems().stream()
-                    .map(this::toCartItemDTO)
-                    .collect(Collectors.toList());
-            dto.setItems(itemDTOs);
-            dto.setItemsCount(itemDTOs.size());
-        } else {
-            dto.setItemsCount(0);
-        }
-
-        // Calcular y formatear total
-        dto.setTotal(cart.calculateTotal()); // Método helper de Cart
+        // Conteos y total mantenidos incrementalmente por Cart
+        dto.setItemsCount(cart.getItems().size());
+        dto.setTotalQuantity(cart.getTotalQuantity());
+        dto.setTotal(cart.getTotal());
         if (dto.getTotal() != null) {
             dto.setTotalFormatted(MoneyUtils.formatUSD(dto.getTotal()));
         }
@@ -95,7 +110,7 @@ public class CartMapper {
 
         dto.setQuantity(item.getQuantity());
         dto.setUnitPrice(item.getUnitPrice());
-        dto.setSubtotal(item.calculateSubtotal()); // Método helper de CartItem
+        dto.setSubtotal(item.getSubtotal()); // Mantenido incrementalmente por CartItem
         dto.setAddedAt(item.getAddedAt());
 
         // Formatear valores
@@ -2,6 +2,9 @@ package co.edu.cesde.pps.mapper;
 
 import co.edu.cesde.pps.dto.CategoryDTO;
 import co.edu.cesde.pps.model.Category;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -10,7 +13,7 @@ import java.util.stream.Collectors;
  *
  * Responsabilidades:
  * - Convertir Entity a DTO (toDTO)
- * - Convertir Entity a DTO con jerarquía recursiva (toDTOWithHierarchy)
+ * - Convertir Entity a DTO con jerarquía completa (toDTOWithHierarchy, iterativo)
  * - Convertir DTO a Entity (toEntity)
  * - Manejar null safety
  * - Extraer parentId de la relación
@@ -51,20 +54,25 @@ public class CategoryMapper {
             dto.setSubcategoriesCount(0);
         }
 
-        if (category.getProducts() != null) {
-            dto.setProductsCount(category.getProducts().size());
-        } else {
-            dto.setProductsCount(0);
-        }
+        // Conteos de productos mantenidos incrementalmente (O(1), sin recorrer productos)
+        dto.setProductsCount(Math.toIntExact(category.getProductsCount()));
+        dto.setActiveProductsCount(Math.toIntExact(category.getActiveProductsCount()));
+        dto.setInStockProductsCount(Math.toIntExact(category.getInStockProductsCount()));
+        dto.setSubtreeProductsCount(Math.toIntExact(category.getSubtreeProductsCount()));
+        dto.setSubtreeActiveProductsCount(Math.toIntExact(category.getSubtreeActiveProductsCount()));
+        dto.setSubtreeInStockProductsCount(Math.toIntExact(category.getSubtreeInStockProductsCount()));
 
         return dto;
     }
 
     /**
-     * Convierte Category Entity a CategoryDTO con subcategorías recursivamente.
+     * Convierte Category Entity a CategoryDTO con subcategorías anidadas.
      *
      * Útil para construir árbol de categorías completo.
      *
+     * Recorrido iterativo con pila explícita (ver mapHierarchy): la profundidad
+     * del árbol no consume pila del hilo.
+     *
      * @param category Entity a convertir
      * @return CategoryDTO con subcategorías anidadas o null si category es null
      */
@@ -73,17 +81,7 @@ public class CategoryMapper {
             return null;
         }
 
-        CategoryDTO dto = toDTO(category);
-
-        // Convertir subcategorías recursivamente
-        if (category.getSubcategories() != null && !category.getSubcategories().isEmpty()) {
-            List<CategoryDTO> subcategoryDTOs = category.getSubcategories().stream()
-                    .map(this::toDTOWithHierarchy) // Recursivo
-                    .collect(Collectors.toList());
-            dto.setSubcategories(subcategoryDTOs);
-        }
-
-        return dto;
+        return mapHierarchy(List.of(category)).get(0);
     }
 
     /**
@@ -135,9 +133,7 @@ public class CategoryMapper {
             return List.of();
         }
 
-        return categories.stream()
-                .map(this::toDTOWithHierarchy)
-                .collect(Collectors.toList());
+        return mapHierarchy(categories);
     }
 
     /**
@@ -155,4 +151,54 @@ public class CategoryMapper {
                 .map(this::toEntity)
                 .collect(Collectors.toList());
     }
+
+    // Métodos privados auxiliares
+
+    /**
+     * Convierte uno o varios árboles en una sola pasada, sin recursión ni streams.
+     *
+     * Cada nodo se mapea una vez con toDTO(); la lista de subcategorías del DTO se
+     * crea con el tamaño exacto y se llena en el orden original. La pila guarda
+     * pares (entity, DTO) pendientes de expandir sus hijos.
+     *
+     * Un elemento null (raíz o subcategoría) se mapea a null en su posición,
+     * igual que el mapper recursivo anterior, y no se expande (ArrayDeque no
+     * admite null).
+     */
+    private List<CategoryDTO> mapHierarchy(List<Category> roots) {
+        List<CategoryDTO> result = new ArrayList<>(roots.size());
+        Deque<Category> pendingEntities = new ArrayDeque<>();
+        Deque<CategoryDTO> pendingDTOs = new ArrayDeque<>();
+
+        for (Category root : roots) {
+            CategoryDTO rootDTO = toDTO(root);
+            result.add(rootDTO);
+            if (root != null) {
+                pendingEntities.push(root);
+                pendingDTOs.push(rootDTO);
+            }
+        }
+
+        while (!pendingEntities.isEmpty()) {
+            Category category = pendingEntities.pop();
+            CategoryDTO dto = pendingDTOs.pop();
+
+            List<Category> subcategories = category.getSubcategories();
+            if (subcategories == null || subcategories.isEmpty()) {
+                continue;
+            }
+
+            List<CategoryDTO> subcategoryDTOs = new ArrayList<>(subcategories.size());
+            for (Category subcategory : subcategories) {
+                CategoryDTO subcategoryDTO = toDTO(subcategory);
+                subcategoryDTOs.add(subcategoryDTO);
+                if (subcategory != null) {
+                    pendingEntities.push(subcategory);
+                    pendingDTOs.push(subcategoryDTO);
+                }
+            }
+            dto.setSubcategories(subcategoryDTOs);
+        }
+        return result;
+    }
 }
@@ -2,13 +2,17 @@ package co.edu.cesde.pps.model;
 
 import co.edu.cesde.pps.enums.CartStatus;
 import co.edu.cesde.pps.util.CalculationUtils;
+import co.edu.cesde.pps.util.MoneyUtils;
 import lombok.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 /**
@@ -69,26 +73,62 @@ import java.util.stream.Collectors;
  *
  * NOTA: Los métodos de gestión bidireccional (addItem, removeItem) fueron movidos
  * a la capa de servicio (CartService) en etapa 05 para mantener el modelo limpio.
+ * El carrito solo mantiene consistentes su lista de items y el índice por producto
+ * (attachItem, detachItem, clearItems); las reglas de negocio siguen en CartService.
+ *
+ * Índice itemsByProductId:
+ * Mapa productId → CartItem mantenido junto a la lista ordenada de items (no se
+ * persiste). Refleja la restricción UNIQUE (cart, product) y permite localizar la
+ * línea de un producto en O(1) en addItem/updateItemQuantity/removeItem/merge.
+ * Por eso la lista se expone como solo lectura: toda modificación debe pasar por
+ * attachItem/detachItem/clearItems. Por la misma razón no hay @Builder ni
+ * constructor con todos los campos: un carrito con items se arma con setItems()
+ * o attachItem(), que mantienen el índice y los totales.
+ *
+ * Totales incrementales (total, totalQuantity):
+ * Se actualizan con cada attach/detach/clear y cuando un item adjunto cambia su
+ * cantidad o precio (CartItem notifica el delta). Leer el total es O(1);
+ * calculateTotal() recalcula desde cero y verifyTotals() compara ambos valores.
+ *
+ * Concurrencia:
+ * Las modificaciones (attach/detach/clear, cambios de cantidad o precio) deben
+ * ejecutarse con el lock del carrito (ver CartService). Las lecturas no bloquean:
+ * items es CopyOnWriteArrayList (iterar nunca lanza ConcurrentModificationException),
+ * el índice es ConcurrentHashMap y status/totales son volatile.
  */
 
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
-@Builder
 @ToString
 
 public class Cart {
 
     private Long cartId;
+    @ToString.Exclude
     private User user; // Nullable - NULL para invitados
+    @ToString.Exclude
     private UserSession session;
-    private CartStatus status;
+    private volatile CartStatus status;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
     // Colección para relación 1:N
-    private List<CartItem> items;
+    @ToString.Exclude
+    private List<CartItem> items = new CopyOnWriteArrayList<>();
+
+    // Índice productId → CartItem (no persistido, derivado de items)
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private Map<Long, CartItem> itemsByProductId = new ConcurrentHashMap<>();
+
+    // Totales mantenidos incrementalmente (no persistidos, derivados de items)
+    @Setter(AccessLevel.NONE)
+    private volatile BigDecimal total = BigDecimal.ZERO;
+
+    @Setter(AccessLevel.NONE)
+    private volatile int totalQuantity;
 
 
     // Constructor para carrito de invitado
@@ -98,7 +138,8 @@ public class Cart {
         this.status = CartStatus.OPEN;
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
-        this.items = new ArrayList<>();
+        this.items = new CopyOnWriteArrayList<>();
+        this.itemsByProductId = new ConcurrentHashMap<>();
     }
 
     // Constructor para carrito de usuario registrado
@@ -108,7 +149,8 @@ public class Cart {
         this.status = CartStatus.OPEN;
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
-        this.items = new ArrayList<>();
+        this.items = new CopyOnWriteArrayList<>();
+        this.itemsByProductId = new ConcurrentHashMap<>();
     }
 
     // Métodos helper de consulta (sin efectos secundarios)
@@ -128,8 +170,11 @@ public class Cart {
     }
 
     /**
-     * Calcula el total del carrito sumando todos los items
-     * Delegado a CalculationUtils para centralizar lógica de cálculo
+     * Recalcula el total del carrito sumando todos los items (O(n)).
+     * Delegado a CalculationUtils para centralizar lógica de cálculo.
+     *
+     * Para lecturas usar getTotal() (mantenido incrementalmente, O(1));
+     * este método se conserva como referencia para verifyTotals().
      */
     public BigDecimal calculateTotal() {
         List<BigDecimal> subtotals = items.stream()
@@ -138,6 +183,135 @@ public class Cart {
         return CalculationUtils.calculateCartTotal(subtotals);
     }
 
+    // Gestión de items e índice por producto
+
+    /**
+     * Items del carrito en orden de inserción (vista de solo lectura).
+     */
+    public List<CartItem> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Reemplaza los items del carrito y reconstruye el índice por producto.
+     */
+    public void setItems(List<CartItem> items) {
+        this.items = new CopyOnWriteArrayList<>();
+        this.itemsByProductId = new ConcurrentHashMap<>();
+        this.total = BigDecimal.ZERO;
+        this.totalQuantity = 0;
+        if (items != null) {
+            items.forEach(this::attachItem);
+        }
+    }
+
+    /**
+     * Busca la línea del carrito correspondiente a un producto en O(1).
+     *
+     * @param productId ID del producto
+     * @return CartItem o null si el producto no está en el carrito
+     */
+    public CartItem findItemByProductId(Long productId) {
+        return productId != null ? itemsByProductId.get(productId) : null;
+    }
+
+    /**
+     * Verifica si el producto ya tiene una línea en el carrito.
+     */
+    public boolean containsProduct(Long productId) {
+        return productId != null && itemsByProductId.containsKey(productId);
+    }
+
+    /**
+     * Agrega un item al final de la lista, lo registra en el índice y
+     * establece la referencia item → carrito.
+     *
+     * @param item Item con producto asignado
+     * @throws IllegalStateException si el producto ya tiene una línea (UNIQUE cart, product)
+     */
+    public void attachItem(CartItem item) {
+        Long productId = item.getProduct().getProductId();
+        if (itemsByProductId.putIfAbsent(productId, item) != null) {
+            throw new IllegalStateException("Product " + productId + " already in cart " + cartId);
+        }
+        items.add(item);
+        item.setCart(this);
+        applyItemDelta(item.getSubtotal(), quantityOf(item));
+    }
+
+    /**
+     * Remueve un item de la lista y del índice, y limpia la referencia item → carrito.
+     *
+     * @param item Item a remover
+     * @return true si el item pertenecía al carrito
+     */
+    public boolean detachItem(CartItem item) {
+        Long productId = item.getProduct().getProductId();
+        if (!itemsByProductId.remove(productId, item)) {
+            return false;
+        }
+        items.remove(item);
+        item.setCart(null);
+        applyItemDelta(item.getSubtotal().negate(), -quantityOf(item));
+        return true;
+    }
+
+    /**
+     * Remueve todos los items del carrito.
+     */
+    public void clearItems() {
+        items.forEach(item -> item.setCart(null));
+        items.clear();
+        itemsByProductId.clear();
+        total = BigDecimal.ZERO;
+        totalQuantity = 0;
+    }
+
+    /**
+     * Verifica si el item es la línea registrada del carrito para su producto.
+     */
+    boolean isAttached(CartItem item) {
+        return item.getProduct() != null &&
+               itemsByProductId.get(item.getProduct().getProductId()) == item;
+    }
+
+    /**
+     * Aplica el cambio de subtotal y cantidad de una línea a los totales del carrito.
+     * Invocado por attach/detach y por CartItem al cambiar cantidad o precio.
+     */
+    void applyItemDelta(BigDecimal subtotalDelta, int quantityDelta) {
+        total = MoneyUtils.add(total, subtotalDelta);
+        totalQuantity += quantityDelta;
+    }
+
+    /**
+     * Verificación: compara los totales incrementales contra un recálculo completo.
+     *
+     * @throws IllegalStateException si hay diferencias
+     */
+    public void verifyTotals() {
+        int expectedQuantity = 0;
+        for (CartItem item : items) {
+            BigDecimal expectedSubtotal = item.calculateSubtotal();
+            if (expectedSubtotal.compareTo(item.getSubtotal()) != 0) {
+                throw new IllegalStateException("Cart " + cartId + " item " + item.getCartItemId() +
+                    " subtotal mismatch: incremental=" + item.getSubtotal() +
+                    ", recomputed=" + expectedSubtotal);
+            }
+            expectedQuantity += quantityOf(item);
+        }
+
+        BigDecimal expectedTotal = calculateTotal();
+        if (expectedTotal.compareTo(total) != 0 || expectedQuantity != totalQuantity) {
+            throw new IllegalStateException("Cart " + cartId + " totals mismatch: incremental=" +
+                total + "/" + totalQuantity + ", recomputed=" + expectedTotal + "/" + expectedQuantity);
+        }
+    }
+
+    private static int quantityOf(CartItem item) {
+        return item.getQuantity() != null ? item.getQuantity() : 0;
+    }
+
     // equals y hashCode basados en ID
 
     @Override
@@ -153,6 +327,7 @@ public class Cart {
         return Objects.hash(cartId);
     }
 
-    // toString sin navegación a objetos relacionados (solo IDs y tamaño de colección)
+    // toString generado por @ToString, sin navegación a objetos relacionados
+    // (user, session e items excluidos con @ToString.Exclude)
 
 }
@@ -30,6 +30,10 @@ import java.util.Objects;
  * Esto asegura consistencia si el precio del producto cambia mientras el
  * usuario navega. El precio se "congela" al agregar al carrito.
  *
+ * Subtotal incremental (subtotal):
+ * Se recalcula solo al cambiar quantity o unitPrice; si el item está adjunto a
+ * un carrito, el delta se propaga a los totales del carrito (Cart.total).
+ *
  * Relaciones:
  * - N:1 con Cart (muchos items pertenecen a un carrito)
  * - N:1 con Product (muchos items referencian a un producto)
@@ -50,6 +54,11 @@ public class CartItem {
     private BigDecimal unitPrice;
     private LocalDateTime addedAt;
 
+    // Subtotal mantenido al cambiar quantity/unitPrice (no persistido)
+    @Builder.Default
+    @Setter(AccessLevel.NONE)
+    private BigDecimal subtotal = BigDecimal.ZERO;
+
 
     // Constructor con campos obligatorios
     public CartItem(Cart cart, Product product, Integer quantity, BigDecimal unitPrice) {
@@ -58,13 +67,40 @@ public class CartItem {
         this.quantity = quantity;
         this.unitPrice = unitPrice;
         this.addedAt = LocalDateTime.now();
+        this.subtotal = calculateSubtotal();
     }
 
-    // Método helper para calcular subtotal del item
+    // Método helper para calcular subtotal del item (recálculo completo)
     public BigDecimal calculateSubtotal() {
         return CalculationUtils.calculateCartItemSubtotal(unitPrice, quantity);
     }
 
+    public void setQuantity(Integer quantity) {
+        BigDecimal oldSubtotal = subtotal;
+        int oldQuantity = this.quantity != null ? this.quantity : 0;
+        this.quantity = quantity;
+        refreshSubtotal(oldSubtotal, oldQuantity);
+    }
+
+    public void setUnitPrice(BigDecimal unitPrice) {
+        BigDecimal oldSubtotal = subtotal;
+        int oldQuantity = this.quantity != null ? this.quantity : 0;
+        this.unitPrice = unitPrice;
+        refreshSubtotal(oldSubtotal, oldQuantity);
+    }
+
+    /**
+     * Recalcula el subtotal de la línea y propaga el delta al carrito si el item
+     * está adjunto a él.
+     */
+    private void refreshSubtotal(BigDecimal oldSubtotal, int oldQuantity) {
+        this.subtotal = calculateSubtotal();
+        if (cart != null && cart.isAttached(this)) {
+            int newQuantity = quantity != null ? quantity : 0;
+            cart.applyItemDelta(subtotal.subtract(oldSubtotal), newQuantity - oldQuantity);
+        }
+    }
+
     // equals y hashCode basados en ID
 
     @Override
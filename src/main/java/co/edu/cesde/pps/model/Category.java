@@ -5,6 +5,7 @@ import lombok.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Entidad Category - Organiza el catálogo en categorías jerárquicas.
@@ -19,6 +20,7 @@ import java.util.Objects;
  * - slug: URL-friendly identifier (UNIQUE) - para URLs amigables
  * - subcategories: Lista de subcategorías (1:N con Category)
  * - products: Lista de productos de esta categoría (1:N con Product)
+ * - productCounts: Conteos de productos (no persistidos, ver abajo)
  *
  * Relaciones:
  * - N:1 con Category (auto-referencia para jerarquía - muchas categorías tienen un padre)
@@ -27,6 +29,12 @@ import java.util.Objects;
  *
  * NOTA: Los métodos de gestión bidireccional (addSubcategory, removeSubcategory) fueron movidos
  * a la capa de servicio (CategoryService) en etapa 05 para mantener el modelo limpio.
+ *
+ * Conteos de productos (productCounts):
+ * Contadores derivados (no se persisten) de productos totales, activos y activos
+ * con stock, de la propia categoría (directos) y de todo su subárbol. Se mantienen
+ * incrementalmente desde ProductService vía CategoryService.adjustProductCounts,
+ * por lo que leerlos es O(1) y no requiere recorrer productos.
  */
 @Getter
 @Setter
@@ -37,14 +45,28 @@ import java.util.Objects;
 
 public class Category {
 
+    private static final int PRODUCT_COUNTS = 6;
+    private static final int SUBTREE_OFFSET = 3;
+
     private Long categoryId;
     private Category parent; // Nullable - NULL para categorías raíz
     private String name;
     private String slug;
 
-    // Colecciones para relaciones 1:N
-    private List<Category> subcategories;
-    private List<Product> products;
+    // Colecciones para relaciones 1:N (inicializadas también con builder y constructor vacío)
+    @Builder.Default
+    @ToString.Exclude
+    private List<Category> subcategories = new ArrayList<>();
+    @Builder.Default
+    @ToString.Exclude
+    private List<Product> products = new ArrayList<>();
+
+    // [0..2] directos: total, activos, con stock | [3..5] los mismos para el subárbol
+    @Builder.Default
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private AtomicLongArray productCounts = new AtomicLongArray(PRODUCT_COUNTS);
 
 
 
@@ -55,6 +77,7 @@ public class Category {
         this.slug = slug;
         this.subcategories = new ArrayList<>();
         this.products = new ArrayList<>();
+        this.productCounts = new AtomicLongArray(PRODUCT_COUNTS);
     }
 
     // Constructor para subcategoría (con parent)
@@ -64,6 +87,7 @@ public class Category {
         this.slug = slug;
         this.subcategories = new ArrayList<>();
         this.products = new ArrayList<>();
+        this.productCounts = new AtomicLongArray(PRODUCT_COUNTS);
     }
 
     // Métodos helper de consulta (sin efectos secundarios)
@@ -75,6 +99,70 @@ public class Category {
         return parent == null;
     }
 
+    // Conteos de productos (O(1))
+
+    /**
+     * Productos asignados directamente a esta categoría (activos o no)
+     */
+    public long getProductsCount() {
+        return productCounts.get(0);
+    }
+
+    /**
+     * Productos activos asignados directamente a esta categoría
+     */
+    public long getActiveProductsCount() {
+        return productCounts.get(1);
+    }
+
+    /**
+     * Productos activos con stock asignados directamente a esta categoría
+     */
+    public long getInStockProductsCount() {
+        return productCounts.get(2);
+    }
+
+    /**
+     * Productos de esta categoría y de todas sus subcategorías (activos o no)
+     */
+    public long getSubtreeProductsCount() {
+        return productCounts.get(SUBTREE_OFFSET);
+    }
+
+    /**
+     * Productos activos de esta categoría y de todas sus subcategorías
+     */
+    public long getSubtreeActiveProductsCount() {
+        return productCounts.get(SUBTREE_OFFSET + 1);
+    }
+
+    /**
+     * Productos activos con stock de esta categoría y de todas sus subcategorías
+     */
+    public long getSubtreeInStockProductsCount() {
+        return productCounts.get(SUBTREE_OFFSET + 2);
+    }
+
+    /**
+     * Suma deltas a los conteos directos (y a los del subárbol, que los incluyen).
+     * Solo para CategoryService: los ancestros se actualizan con addSubtreeProductCounts.
+     */
+    public void addDirectProductCounts(long total, long active, long inStock) {
+        productCounts.addAndGet(0, total);
+        productCounts.addAndGet(1, active);
+        productCounts.addAndGet(2, inStock);
+        addSubtreeProductCounts(total, active, inStock);
+    }
+
+    /**
+     * Suma deltas solo a los conteos del subárbol (productos de descendientes).
+     */
+    public void addSubtreeProductCounts(long total, long active, long inStock) {
+        productCounts.addAndGet(SUBTREE_OFFSET, total);
+        productCounts.addAndGet(SUBTREE_OFFSET + 1, active);
+        productCounts.addAndGet(SUBTREE_OFFSET + 2, inStock);
+    }
+
     // equals y hashCode basados en ID
 
     @Override
@@ -6,6 +6,7 @@ import lombok.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Entidad Product - Representa productos vendibles en la tienda.
@@ -25,6 +26,11 @@ import java.util.Objects;
  * - price usa BigDecimal para evitar errores de redondeo en cálculos monetarios
  * - isActive permite ocultar productos sin borrarlos de la base de datos
  * - sku único facilita integración con sistemas de inventario externos
+ * - stockQty es volatile y se modifica de forma atómica (CAS) con
+ *   tryDecreaseStock/increaseStock: dos ventas concurrentes nunca pueden
+ *   dejar el stock negativo ni perder una actualización, sin lock global
+ * - stockQty es el stock libre: las unidades reservadas por carritos
+ *   (StockReservationService) ya están descontadas hasta que vencen o se liberan
  *
  * Relaciones:
  * - N:1 con Category (muchos productos pertenecen a una categoría)
@@ -40,13 +46,17 @@ import java.util.Objects;
 
 public class Product {
 
+    // CAS sobre stockQty (compara la referencia leída, por lo que el boxing es seguro)
+    private static final AtomicReferenceFieldUpdater<Product, Integer> STOCK_UPDATER =
+        AtomicReferenceFieldUpdater.newUpdater(Product.class, Integer.class, "stockQty");
+
     private Long productId;
     private Category category;
     private String sku;
     private String name;
     private String description;
     private BigDecimal price;
-    private Integer stockQty;
+    private volatile Integer stockQty;
     private Boolean isActive;
     private LocalDateTime createdAt;
 
@@ -67,6 +77,53 @@ public class Product {
         return isActive != null && isActive && stockQty != null && stockQty > 0;
     }
 
+    // Operaciones atómicas de stock
+
+    /**
+     * Disminuye el stock solo si alcanza para la cantidad pedida (compare-and-set).
+     *
+     * @param quantity Cantidad a descontar (positiva)
+     * @return true si se descontó; false si no había stock suficiente
+     */
+    public boolean tryDecreaseStock(int quantity) {
+        while (true) {
+            Integer current = stockQty;
+            if (current == null || current < quantity) {
+                return false;
+            }
+            if (STOCK_UPDATER.compareAndSet(this, current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Aumenta el stock de forma atómica (devoluciones, reposiciones, liberación).
+     *
+     * @param quantity Cantidad a sumar (positiva)
+     * @return Stock resultante
+     */
+    public int increaseStock(int quantity) {
+        while (true) {
+            Integer current = stockQty;
+            int updated = (current != null ? current : 0) + quantity;
+            if (STOCK_UPDATER.compareAndSet(this, current, updated)) {
+                return updated;
+            }
+        }
+    }
+
+    /**
+     * Reemplaza el stock solo si sigue siendo el valor leído (compare-and-set).
+     *
+     * @param expected Valor leído de stockQty
+     * @param updated Nuevo stock
+     * @return true si se reemplazó; false si el stock cambió entre medio
+     */
+    public boolean compareAndSetStock(Integer expected, int updated) {
+        return STOCK_UPDATER.compareAndSet(this, expected, updated);
+    }
+
     // equals y hashCode basados en ID
 
     @Override
@@ -0,0 +1,186 @@
+package co.edu.cesde.pps.repository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Índice clave → valor con expiración por entrada (TTL), agrupado en buckets de tiempo.
+ *
+ * Pensado para entradas de vida corta y gran volumen (ej: carritos de invitado por
+ * sesión), donde recorrer todo el índice para encontrar expirados no escala.
+ *
+ * Estructura:
+ * - entries: clave → (valor, expiresAt) para búsquedas O(1)
+ * - buckets: inicio del bucket → claves que expiran en ese intervalo, ordenado por tiempo
+ *
+ * Expiración:
+ * - get() nunca retorna una entrada vencida (la elimina al detectarla)
+ * - purgeExpired() toma solo los buckets cuyo intervalo ya pasó: el costo es
+ *   proporcional a las entradas expiradas, no al tamaño del índice
+ * - put() ejecuta la purga de forma oportunista como máximo una vez por bucket,
+ *   de modo que las entradas vencidas no se acumulan aunque nadie las consulte
+ *
+ * Cada entrada eliminada por vencimiento (en get o en la purga) se notifica al
+ * listener de expiración, por ejemplo para marcar el carrito como ABANDONED.
+ *
+ * Si una clave se vuelve a registrar con otra expiración, la referencia en el bucket
+ * anterior queda obsoleta y se descarta al purgar (se compara contra la entrada vigente).
+ *
+ * Thread-safety: seguro para uso concurrente.
+ *
+ * @param <K> Tipo de la clave
+ * @param <V> Tipo del valor
+ */
+public class ExpiringIndex<K, V> {
+
+    private final long bucketSeconds;
+    private final Map<K, Entry<V>> entries;
+    private final ConcurrentNavigableMap<Long, Set<K>> buckets;
+    private final AtomicLong nextPurgeBucket;
+    private final Consumer<V> expirationListener;
+
+    /**
+     * @param bucketWidth Ancho de cada bucket de expiración (ej: 1 minuto)
+     * @throws IllegalArgumentException si el ancho es menor a 1 segundo
+     */
+    public ExpiringIndex(Duration bucketWidth) {
+        this(bucketWidth, value -> { });
+    }
+
+    /**
+     * @param bucketWidth Ancho de cada bucket de expiración (ej: 1 minuto)
+     * @param expirationListener Acción ejecutada por cada valor eliminado por vencimiento
+     * @throws IllegalArgumentException si el ancho es menor a 1 segundo
+     */
+    public ExpiringIndex(Duration bucketWidth, Consumer<V> expirationListener) {
+        if (bucketWidth.getSeconds() < 1) {
+            throw new IllegalArgumentException("bucketWidth must be at least 1 second");
+        }
+        this.bucketSeconds = bucketWidth.getSeconds();
+        this.entries = new ConcurrentHashMap<>();
+        this.buckets = new ConcurrentSkipListMap<>();
+        this.nextPurgeBucket = new AtomicLong(Long.MIN_VALUE);
+        this.expirationListener = expirationListener;
+    }
+
+    /**
+     * Registra (o reemplaza) una entrada con su fecha de expiración.
+     *
+     * @param key Clave
+     * @param value Valor
+     * @param expiresAt Momento a partir del cual la entrada deja de ser válida
+     */
+    public void put(K key, V value, LocalDateTime expiresAt) {
+        entries.put(key, new Entry<>(value, expiresAt));
+        buckets.computeIfAbsent(bucketOf(expiresAt), b -> ConcurrentHashMap.newKeySet()).add(key);
+        purgeIfDue(LocalDateTime.now());
+    }
+
+    /**
+     * Busca una entrada vigente.
+     *
+     * @param key Clave
+     * @param now Momento actual
+     * @return Valor o null si no existe o ya expiró
+     */
+    public V get(K key, LocalDateTime now) {
+        if (key == null) {
+            return null;
+        }
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(now)) {
+            if (entries.remove(key, entry)) {
+                expirationListener.accept(entry.value);
+            }
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Elimina una entrada (la referencia en su bucket se descarta al purgar).
+     *
+     * @param key Clave
+     * @return Valor eliminado o null si no existía
+     */
+    public V remove(K key) {
+        if (key == null) {
+            return null;
+        }
+        Entry<V> entry = entries.remove(key);
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * Elimina las entradas expiradas de todos los buckets cuyo intervalo ya terminó.
+     *
+     * @param now Momento actual
+     * @return Valores de las entradas eliminadas
+     */
+    public List<V> purgeExpired(LocalDateTime now) {
+        List<V> expired = new ArrayList<>();
+        ConcurrentNavigableMap<Long, Set<K>> dueBuckets = buckets.headMap(bucketOf(now), false);
+
+        Iterator<Map.Entry<Long, Set<K>>> it = dueBuckets.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Set<K>> bucket = it.next();
+            it.remove();
+            for (K key : bucket.getValue()) {
+                Entry<V> entry = entries.get(key);
+                // Solo eliminar si la entrada vigente es la que vencía en este bucket
+                if (entry != null && entry.isExpired(now) && entries.remove(key, entry)) {
+                    expired.add(entry.value);
+                    expirationListener.accept(entry.value);
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * @return Cantidad de entradas registradas (puede incluir vencidas aún no purgadas)
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private void purgeIfDue(LocalDateTime now) {
+        long current = bucketOf(now);
+        long due = nextPurgeBucket.get();
+        if (current >= due && nextPurgeBucket.compareAndSet(due, current + 1)) {
+            purgeExpired(now);
+        }
+    }
+
+    private long bucketOf(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), bucketSeconds);
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final LocalDateTime expiresAt;
+
+        private Entry(V value, LocalDateTime expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(LocalDateTime now) {
+            return !now.isBefore(expiresAt);
+        }
+    }
+}
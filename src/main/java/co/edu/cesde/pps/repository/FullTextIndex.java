@@ -0,0 +1,268 @@
+package co.edu.cesde.pps.repository;
+
+import co.edu.cesde.pps.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * Índice invertido en memoria para búsqueda de texto con ranking por relevancia.
+ *
+ * Reemplaza la búsqueda por contains() sobre cada entidad (O(n × largo del
+ * texto) por consulta). Cada entidad se tokeniza una sola vez al indexarla
+ * (StringUtils.tokenize: sin acentos, minúsculas) y se registra en las listas
+ * de postings de sus términos:
+ * - postings: término → (PK → peso del término en la entidad), ordenado por
+ *   término para resolver prefijos con un subMap ("port" → portatil, portafolio)
+ * - termsById: PK → términos de la entidad, para des-indexar al actualizar
+ *
+ * Consulta: cada término de la consulta debe coincidir (AND) con algún término
+ * de la entidad, exacto o por prefijo. Relevancia por término:
+ *   peso en la entidad (suma de pesos de campo × apariciones) × IDF
+ * donde IDF = log(1 + N / entidades con el término) favorece términos raros. Las
+ * coincidencias por prefijo valen la mitad que las exactas. Resultados ordenados
+ * por relevancia descendente y luego por PK.
+ *
+ * El índice NO observa cambios en la entidad: el servicio debe llamar a
+ * index/remove cada vez que crea, modifica o elimina los campos indexados.
+ *
+ * Thread-safety: las escrituras (index/remove) se serializan; las consultas no
+ * bloquean y pueden ver una entidad a medio re-indexar.
+ *
+ * @param <ID> Tipo de la clave primaria
+ * @param <T> Tipo de entidad indexada
+ */
+public class FullTextIndex<ID extends Comparable<? super ID>, T> {
+
+    private static final double PREFIX_MATCH_FACTOR = 0.5;
+
+    private final Function<T, ID> idExtractor;
+    private final List<Field<T>> fields;
+    private final ConcurrentNavigableMap<String, Map<ID, Integer>> postings;
+    private final Map<ID, Set<String>> termsById;
+    private final Map<ID, T> entitiesById;
+
+    /**
+     * @param idExtractor Función que obtiene la PK de la entidad (ej: Product::getProductId)
+     * @param fields Campos indexados con su peso (ver field())
+     */
+    public FullTextIndex(Function<T, ID> idExtractor, List<Field<T>> fields) {
+        this.idExtractor = idExtractor;
+        this.fields = new ArrayList<>(fields);
+        this.postings = new ConcurrentSkipListMap<>();
+        this.termsById = new ConcurrentHashMap<>();
+        this.entitiesById = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Define un campo indexado.
+     *
+     * @param extractor Función que obtiene el texto del campo (puede retornar null)
+     * @param weight Peso del campo en la relevancia (ej: nombre 3, descripción 1)
+     * @param <T> Tipo de entidad
+     * @return Definición del campo
+     */
+    public static <T> Field<T> field(Function<T, String> extractor, int weight) {
+        return new Field<>(extractor, weight);
+    }
+
+    /**
+     * Indexa (o re-indexa) la entidad con el contenido actual de sus campos.
+     *
+     * @param entity Entidad con PK asignada
+     */
+    public synchronized void index(T entity) {
+        ID id = idExtractor.apply(entity);
+        Map<String, Integer> weights = new HashMap<>();
+        for (Field<T> field : fields) {
+            for (String term : StringUtils.tokenize(field.extractor.apply(entity))) {
+                weights.merge(term, field.weight, Integer::sum);
+            }
+        }
+
+        removePostings(id);
+        for (Map.Entry<String, Integer> term : weights.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), t -> new ConcurrentHashMap<>())
+                    .put(id, term.getValue());
+        }
+        termsById.put(id, weights.keySet());
+        entitiesById.put(id, entity);
+    }
+
+    /**
+     * Elimina la entidad del índice.
+     *
+     * @param entity Entidad indexada
+     * @return true si estaba indexada
+     */
+    public synchronized boolean remove(T entity) {
+        ID id = idExtractor.apply(entity);
+        boolean removed = removePostings(id);
+        entitiesById.remove(id);
+        return removed;
+    }
+
+    /**
+     * Busca las entidades que coinciden con todos los términos de la consulta.
+     *
+     * @param query Texto de búsqueda
+     * @return Resultados ordenados por relevancia (vacío si la consulta no tiene términos)
+     */
+    public List<SearchHit<T>> search(String query) {
+        return searchPage(query, null, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Busca una página de resultados posteriores a (afterScore, afterId) en el
+     * orden de relevancia (paginación por cursor).
+     *
+     * @param query Texto de búsqueda
+     * @param afterScore Relevancia del último resultado ya entregado (null = desde el inicio)
+     * @param afterId PK del último resultado ya entregado
+     * @param limit Cantidad máxima de resultados
+     * @return Resultados ordenados por relevancia
+     */
+    public List<SearchHit<T>> searchPage(String query, Double afterScore, ID afterId, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>(StringUtils.tokenize(query));
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        int documentCount = Math.max(1, termsById.size());
+        Map<ID, Double> scores = null;
+        for (String queryTerm : queryTerms) {
+            Map<ID, Double> termScores = scoreTerm(queryTerm, documentCount);
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                // AND: conservar solo entidades que también coinciden con este término
+                Map<ID, Double> next = new HashMap<>();
+                for (Map.Entry<ID, Double> doc : scores.entrySet()) {
+                    Double termScore = termScores.get(doc.getKey());
+                    if (termScore != null) {
+                        next.put(doc.getKey(), doc.getValue() + termScore);
+                    }
+                }
+                scores = next;
+            }
+            if (scores.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+
+        List<SearchHit<T>> hits = new ArrayList<>();
+        for (Map.Entry<ID, Double> doc : scores.entrySet()) {
+            T entity = entitiesById.get(doc.getKey());
+            if (entity != null) {
+                hits.add(new SearchHit<>(entity, doc.getValue()));
+            }
+        }
+        hits.sort((a, b) -> compareRank(a.score, idExtractor.apply(a.entity), b.score, idExtractor.apply(b.entity)));
+
+        List<SearchHit<T>> page = new ArrayList<>(Math.min(hits.size(), limit));
+        for (SearchHit<T> hit : hits) {
+            if (afterScore != null &&
+                compareRank(hit.score, idExtractor.apply(hit.entity), afterScore, afterId) <= 0) {
+                continue;
+            }
+            page.add(hit);
+            if (page.size() == limit) {
+                break;
+            }
+        }
+        return page;
+    }
+
+    /**
+     * @return Cantidad de entidades indexadas
+     */
+    public int size() {
+        return entitiesById.size();
+    }
+
+    // Mejor puntaje por entidad entre el término exacto y los términos con ese prefijo
+    private Map<ID, Double> scoreTerm(String queryTerm, int documentCount) {
+        Map<ID, Double> termScores = new HashMap<>();
+        ConcurrentNavigableMap<String, Map<ID, Integer>> matches =
+            postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, true);
+        for (Map.Entry<String, Map<ID, Integer>> term : matches.entrySet()) {
+            Map<ID, Integer> docs = term.getValue();
+            double idf = Math.log(1.0 + (double) documentCount / Math.max(1, docs.size()));
+            double factor = term.getKey().equals(queryTerm) ? 1.0 : PREFIX_MATCH_FACTOR;
+            for (Map.Entry<ID, Integer> doc : docs.entrySet()) {
+                termScores.merge(doc.getKey(), doc.getValue() * idf * factor, Math::max);
+            }
+        }
+        return termScores;
+    }
+
+    // Relevancia descendente, luego PK ascendente
+    private int compareRank(double scoreA, ID idA, double scoreB, ID idB) {
+        int byScore = Double.compare(scoreB, scoreA);
+        return byScore != 0 ? byScore : idA.compareTo(idB);
+    }
+
+    private boolean removePostings(ID id) {
+        Set<String> previousTerms = termsById.remove(id);
+        if (previousTerms == null) {
+            return false;
+        }
+        for (String term : previousTerms) {
+            Map<ID, Integer> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(id);
+                if (docs.isEmpty()) {
+                    postings.remove(term, docs);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Campo indexado: extractor de texto y peso en la relevancia.
+     *
+     * @param <T> Tipo de entidad
+     */
+    public static final class Field<T> {
+        private final Function<T, String> extractor;
+        private final int weight;
+
+        private Field(Function<T, String> extractor, int weight) {
+            this.extractor = extractor;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Resultado de búsqueda: entidad y su relevancia.
+     *
+     * @param <T> Tipo de entidad
+     */
+    public static final class SearchHit<T> {
+        private final T entity;
+        private final double score;
+
+        private SearchHit(T entity, double score) {
+            this.entity = entity;
+            this.score = score;
+        }
+
+        public T getEntity() {
+            return entity;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package co.edu.cesde.pps.repository;
+
+import co.edu.cesde.pps.exception.EntityNotFoundException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Almacén genérico en memoria indexado por clave primaria.
+ *
+ * Reemplaza las listas "*InMemory" de los servicios, donde cada búsqueda por ID
+ * era un stream().filter().findFirst() O(n). Aquí:
+ * - findById / existsById / delete: O(1) (hash por PK)
+ * - save: O(1)
+ * - findAll / stream: recorren en orden de PK (igual al de inserción con IDs
+ *   secuenciales)
+ * - findPageAfter: O(log n + página), paginación por cursor sobre la PK
+ *
+ * La PK se obtiene de la entidad mediante idExtractor, por lo que la entidad
+ * debe tener su ID asignado antes de llamar a save().
+ *
+ * Thread-safety: seguro para uso concurrente. Las búsquedas usan un
+ * ConcurrentHashMap y los recorridos una vista ordenada (ConcurrentSkipListMap)
+ * que nunca lanza ConcurrentModificationException; la modificación de una misma
+ * entidad debe coordinarse en el servicio (ej: locks por carrito en CartService).
+ *
+ * NOTA: En Etapa 06 se reemplazará por los Repository de persistencia real
+ * (CartRepository, ProductRepository, etc.) con la misma semántica.
+ *
+ * @param <T> Tipo de entidad
+ * @param <ID> Tipo de la clave primaria
+ */
+public class InMemoryRepository<T, ID extends Comparable<? super ID>> {
+
+    private final String entityName;
+    private final Function<T, ID> idExtractor;
+    private final Map<ID, T> entitiesById;
+    // Misma información ordenada por PK, para recorridos consistentes
+    private final NavigableMap<ID, T> entitiesInIdOrder;
+
+    /**
+     * @param entityName Nombre de la entidad, usado en EntityNotFoundException (ej: "Cart")
+     * @param idExtractor Función que obtiene la PK de la entidad (ej: Cart::getCartId)
+     */
+    public InMemoryRepository(String entityName, Function<T, ID> idExtractor) {
+        this.entityName = entityName;
+        this.idExtractor = idExtractor;
+        this.entitiesById = new ConcurrentHashMap<>();
+        this.entitiesInIdOrder = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Guarda (inserta o reemplaza) una entidad por su PK.
+     *
+     * @param entity Entidad con ID asignado
+     * @return La misma entidad
+     * @throws IllegalArgumentException si la entidad no tiene ID
+     */
+    public T save(T entity) {
+        ID id = idExtractor.apply(entity);
+        if (id == null) {
+            throw new IllegalArgumentException(entityName + " must have an ID before being saved");
+        }
+        entitiesById.put(id, entity);
+        entitiesInIdOrder.put(id, entity);
+        return entity;
+    }
+
+    /**
+     * Busca entidad por PK.
+     *
+     * @param id PK de la entidad
+     * @return Optional con la entidad o vacío si no existe
+     */
+    public Optional<T> findById(ID id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(entitiesById.get(id));
+    }
+
+    /**
+     * Busca entidad por PK o lanza excepción.
+     *
+     * @param id PK de la entidad
+     * @return Entidad encontrada
+     * @throws EntityNotFoundException si no existe
+     */
+    public T findByIdOrThrow(ID id) {
+        return findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(entityName, id));
+    }
+
+    /**
+     * Verifica si existe una entidad con la PK dada.
+     *
+     * @param id PK de la entidad
+     * @return true si existe
+     */
+    public boolean existsById(ID id) {
+        return id != null && entitiesById.containsKey(id);
+    }
+
+    /**
+     * Elimina una entidad.
+     *
+     * @param entity Entidad a eliminar
+     * @return true si existía y fue eliminada
+     */
+    public boolean delete(T entity) {
+        return deleteById(idExtractor.apply(entity));
+    }
+
+    /**
+     * Elimina una entidad por PK.
+     *
+     * @param id PK de la entidad
+     * @return true si existía y fue eliminada
+     */
+    public boolean deleteById(ID id) {
+        if (id == null || entitiesById.remove(id) == null) {
+            return false;
+        }
+        entitiesInIdOrder.remove(id);
+        return true;
+    }
+
+    /**
+     * Lista todas las entidades en orden de PK.
+     *
+     * @return Copia inmutable de las entidades
+     */
+    public List<T> findAll() {
+        return Collections.unmodifiableList(new ArrayList<>(entitiesInIdOrder.values()));
+    }
+
+    /**
+     * Obtiene hasta limit entidades con PK mayor a afterId, en orden de PK.
+     *
+     * @param afterId PK del último elemento ya entregado (null = desde el inicio)
+     * @param limit Cantidad máxima de entidades
+     * @return Copia inmutable de las entidades
+     */
+    public List<T> findPageAfter(ID afterId, int limit) {
+        return findPageAfter(afterId, limit, entity -> true);
+    }
+
+    /**
+     * Obtiene hasta limit entidades que cumplen el filtro con PK mayor a afterId,
+     * en orden de PK. El recorrido se detiene al completar la página.
+     *
+     * @param afterId PK del último elemento ya entregado (null = desde el inicio)
+     * @param limit Cantidad máxima de entidades
+     * @param filter Condición que deben cumplir las entidades
+     * @return Copia inmutable de las entidades
+     */
+    public List<T> findPageAfter(ID afterId, int limit, Predicate<T> filter) {
+        NavigableMap<ID, T> remaining = afterId == null
+                ? entitiesInIdOrder
+                : entitiesInIdOrder.tailMap(afterId, false);
+        return Collections.unmodifiableList(remaining.values().stream()
+                .filter(filter)
+                .limit(limit)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Stream sobre las entidades en orden de PK (para filtros ad-hoc).
+     *
+     * @return Stream de entidades
+     */
+    public Stream<T> stream() {
+        return entitiesInIdOrder.values().stream();
+    }
+
+    /**
+     * @return Cantidad de entidades almacenadas
+     */
+    public int count() {
+        return entitiesById.size();
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+}
@@ -0,0 +1,252 @@
+package co.edu.cesde.pps.repository;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Índice secundario ordenado y no único (varias entidades por clave).
+ *
+ * Simula un índice B-tree sobre un campo (userId, orderStatusId, createdAt) para
+ * el modo en memoria. Reemplaza los recorridos completos con filter():
+ * - findByKey: O(log n + k), entidades de la clave en orden de PK
+ * - findInRange: O(log n + k), entidades en orden de (clave, PK)
+ * - findPageByKey / findPageInRange: O(log n + página), paginación por cursor
+ * - forEachInRange: recorre (clave, entidad) sin copiar, para conteos/facetas
+ * - put / remove / move: O(log n)
+ *
+ * Internamente es un único ConcurrentSkipListMap ordenado por (clave, PK): cada
+ * entidad ocupa una entrada, por lo que no hay listas por clave que crear o
+ * eliminar (y sin carreras al vaciarse una clave).
+ *
+ * Igual que UniqueIndex, el índice NO observa cambios en la entidad: el servicio
+ * debe llamar a put/move/remove cada vez que crea, modifica o elimina el campo.
+ *
+ * Thread-safety: seguro para uso concurrente; los recorridos nunca lanzan
+ * ConcurrentModificationException. Un move concurrente con una consulta puede
+ * mostrar la entidad momentáneamente bajo ambas claves, nunca bajo ninguna.
+ *
+ * @param <K> Tipo de la clave indexada
+ * @param <ID> Tipo de la clave primaria
+ * @param <T> Tipo de entidad indexada
+ */
+public class SortedIndex<K extends Comparable<? super K>, ID extends Comparable<? super ID>, T> {
+
+    private final Comparator<IndexKey<K, ID>> order;
+    private final ConcurrentNavigableMap<IndexKey<K, ID>, T> entries;
+
+    public SortedIndex() {
+        this.order = (a, b) -> {
+            int byKey = a.key.compareTo(b.key);
+            if (byKey != 0) {
+                return byKey;
+            }
+            if (a.bound != 0 || b.bound != 0) {
+                return Integer.compare(a.bound, b.bound); // Cotas: antes/después de toda PK
+            }
+            return a.id.compareTo(b.id);
+        };
+        this.entries = new ConcurrentSkipListMap<>(order);
+    }
+
+    /**
+     * Registra la entidad bajo la clave.
+     *
+     * @param key Valor del campo indexado (no null)
+     * @param id PK de la entidad
+     * @param entity Entidad a indexar
+     */
+    public void put(K key, ID id, T entity) {
+        entries.put(IndexKey.of(key, id), entity);
+    }
+
+    /**
+     * Mueve la entidad de oldKey a newKey (ej: cambio de estado de una orden).
+     *
+     * La nueva entrada se registra antes de eliminar la anterior, de modo que la
+     * entidad siempre es visible en el índice.
+     *
+     * @param oldKey Valor anterior del campo (puede ser null)
+     * @param newKey Nuevo valor del campo
+     * @param id PK de la entidad
+     * @param entity Entidad indexada
+     */
+    public void move(K oldKey, K newKey, ID id, T entity) {
+        put(newKey, id, entity);
+        if (oldKey != null && oldKey.compareTo(newKey) != 0) {
+            remove(oldKey, id);
+        }
+    }
+
+    /**
+     * Elimina la entidad registrada bajo la clave.
+     *
+     * @param key Valor del campo indexado
+     * @param id PK de la entidad
+     * @return true si existía y fue eliminada
+     */
+    public boolean remove(K key, ID id) {
+        return key != null && entries.remove(IndexKey.of(key, id)) != null;
+    }
+
+    /**
+     * Lista las entidades con la clave dada, en orden de PK.
+     *
+     * @param key Valor del campo indexado
+     * @return Copia inmutable de las entidades (vacía si no hay)
+     */
+    public List<T> findByKey(K key) {
+        return findPageByKey(key, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lista las entidades cuya clave está en el rango, en orden de (clave, PK).
+     *
+     * @param from Límite inferior (null = sin límite)
+     * @param fromInclusive true si incluye las entidades con clave == from
+     * @param to Límite superior (null = sin límite)
+     * @param toInclusive true si incluye las entidades con clave == to
+     * @return Copia inmutable de las entidades (vacía si no hay)
+     */
+    public List<T> findInRange(K from, boolean fromInclusive, K to, boolean toInclusive) {
+        return findPageInRange(from, fromInclusive, to, toInclusive, null, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Obtiene hasta limit entidades con la clave dada y PK mayor a afterId.
+     *
+     * @param key Valor del campo indexado
+     * @param afterId PK del último elemento ya entregado (null = desde el inicio)
+     * @param limit Cantidad máxima de entidades
+     * @return Copia inmutable de las entidades, en orden de PK
+     */
+    public List<T> findPageByKey(K key, ID afterId, int limit) {
+        if (key == null) {
+            return Collections.emptyList();
+        }
+        IndexKey<K, ID> lower = afterId == null ? IndexKey.lowerBound(key) : IndexKey.of(key, afterId);
+        return Collections.unmodifiableList(range(lower, IndexKey.upperBound(key)).values().stream()
+                .limit(limit)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Obtiene hasta limit entidades del rango posteriores a (afterKey, afterId).
+     *
+     * @param from Límite inferior (null = sin límite)
+     * @param fromInclusive true si incluye las entidades con clave == from
+     * @param to Límite superior (null = sin límite)
+     * @param toInclusive true si incluye las entidades con clave == to
+     * @param afterKey Clave del último elemento ya entregado (null = desde el inicio)
+     * @param afterId PK del último elemento ya entregado
+     * @param limit Cantidad máxima de entidades
+     * @return Copia inmutable de las entidades, en orden de (clave, PK)
+     */
+    public List<T> findPageInRange(K from, boolean fromInclusive, K to, boolean toInclusive,
+                                   K afterKey, ID afterId, int limit) {
+        return findPageInRange(from, fromInclusive, to, toInclusive, afterKey, afterId, entity -> true, limit);
+    }
+
+    /**
+     * Obtiene hasta limit entidades del rango posteriores a (afterKey, afterId)
+     * que cumplen el filtro. El recorrido se detiene al completar la página.
+     *
+     * @param from Límite inferior (null = sin límite)
+     * @param fromInclusive true si incluye las entidades con clave == from
+     * @param to Límite superior (null = sin límite)
+     * @param toInclusive true si incluye las entidades con clave == to
+     * @param afterKey Clave del último elemento ya entregado (null = desde el inicio)
+     * @param afterId PK del último elemento ya entregado
+     * @param filter Condición que deben cumplir las entidades
+     * @param limit Cantidad máxima de entidades
+     * @return Copia inmutable de las entidades, en orden de (clave, PK)
+     */
+    public List<T> findPageInRange(K from, boolean fromInclusive, K to, boolean toInclusive,
+                                   K afterKey, ID afterId, Predicate<? super T> filter, int limit) {
+        IndexKey<K, ID> lower = from == null ? null
+                : (fromInclusive ? IndexKey.lowerBound(from) : IndexKey.upperBound(from));
+        if (afterKey != null) {
+            IndexKey<K, ID> after = IndexKey.of(afterKey, afterId);
+            if (lower == null || order.compare(after, lower) > 0) {
+                lower = after;
+            }
+        }
+        IndexKey<K, ID> upper = to == null ? null
+                : (toInclusive ? IndexKey.upperBound(to) : IndexKey.lowerBound(to));
+        return Collections.unmodifiableList(range(lower, upper).values().stream()
+                .filter(filter)
+                .limit(limit)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Recorre las entradas del rango en orden de (clave, PK), sin copiarlas.
+     *
+     * @param from Límite inferior (null = sin límite)
+     * @param fromInclusive true si incluye las entidades con clave == from
+     * @param to Límite superior (null = sin límite)
+     * @param toInclusive true si incluye las entidades con clave == to
+     * @param action Acción por cada (clave, entidad)
+     */
+    public void forEachInRange(K from, boolean fromInclusive, K to, boolean toInclusive,
+                               BiConsumer<? super K, ? super T> action) {
+        IndexKey<K, ID> lower = from == null ? null
+                : (fromInclusive ? IndexKey.lowerBound(from) : IndexKey.upperBound(from));
+        IndexKey<K, ID> upper = to == null ? null
+                : (toInclusive ? IndexKey.upperBound(to) : IndexKey.lowerBound(to));
+        range(lower, upper).forEach((key, entity) -> action.accept(key.key, entity));
+    }
+
+    /**
+     * @return Cantidad de entradas registradas
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    // Límites exclusivos (null = sin límite); las cotas nunca coinciden con una entrada real
+    private ConcurrentNavigableMap<IndexKey<K, ID>, T> range(IndexKey<K, ID> lower, IndexKey<K, ID> upper) {
+        if (lower != null && upper != null && order.compare(lower, upper) >= 0) {
+            return new ConcurrentSkipListMap<>(order); // Rango vacío
+        }
+        ConcurrentNavigableMap<IndexKey<K, ID>, T> range = entries;
+        if (lower != null) {
+            range = range.tailMap(lower, false);
+        }
+        if (upper != null) {
+            range = range.headMap(upper, false);
+        }
+        return range;
+    }
+
+    // (clave, PK); bound = -1/+1 representa una cota antes/después de toda PK de la clave
+    private static final class IndexKey<K, ID> {
+        private final K key;
+        private final ID id;
+        private final int bound;
+
+        private IndexKey(K key, ID id, int bound) {
+            this.key = Objects.requireNonNull(key, "key");
+            this.id = id;
+            this.bound = bound;
+        }
+
+        private static <K, ID> IndexKey<K, ID> of(K key, ID id) {
+            return new IndexKey<>(key, Objects.requireNonNull(id, "id"), 0);
+        }
+
+        private static <K, ID> IndexKey<K, ID> lowerBound(K key) {
+            return new IndexKey<>(key, null, -1);
+        }
+
+        private static <K, ID> IndexKey<K, ID> upperBound(K key) {
+            return new IndexKey<>(key, null, 1);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package co.edu.cesde.pps.repository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Índice de jerarquía (bosque) con intervalos de recorrido Euler (pre/post-orden).
+ *
+ * Cada nodo recibe un intervalo [pre, post] que contiene los intervalos de todos
+ * sus descendientes. "B está en el subárbol de A" se resuelve con una sola
+ * comparación de rango (A.pre <= B.pre <= A.post), sin recorrer la jerarquía:
+ * filtrar N entidades por subárbol cuesta O(N) comparaciones y no O(N × altura).
+ *
+ * Mantenimiento incremental con numeración con huecos (las etiquetas son long
+ * separadas por LABEL_GAP al renumerar):
+ * - addLeaf: toma dos etiquetas del hueco libre al final del intervalo del padre
+ * - move: re-etiqueta solo el subárbol movido dentro del hueco del nuevo padre
+ * - remove: libera el intervalo de una hoja (sin re-etiquetar)
+ * Cada inserción ocupa solo una porción acotada al inicio del hueco (SLICE_STEP
+ * por etiqueta y nunca más de la mitad del hueco), dejando el resto para los
+ * siguientes hermanos: tras renumerar, un padre admite ~1300 hojas agregadas al
+ * final antes de agotar su hueco. Solo entonces se renumera todo el bosque
+ * (O(n)), lo que amortiza a O(n / 1300) por inserción. Las inserciones anidadas
+ * bajo nodos recién agregados tienen menos espacio y renumeran antes.
+ *
+ * Thread-safety: las escrituras toman el write lock de un StampedLock. Las
+ * consultas usan lectura optimista y se repiten con read lock si una escritura
+ * las interrumpió (querySubtree), por lo que nunca mezclan etiquetas viejas y nuevas.
+ *
+ * @param <ID> Tipo de la clave de los nodos
+ */
+public class TreeIntervalIndex<ID> {
+
+    private static final long LABEL_GAP = 1L << 32;
+    // Separación máxima entre etiquetas al insertar en un hueco
+    private static final long SLICE_STEP = LABEL_GAP >> 12;
+
+    private final String entityName;
+    private final Map<ID, Node<ID>> nodes;
+    private final Node<ID> virtualRoot; // Padre común de las raíces del bosque
+    private final StampedLock lock;
+    private int relabelCount; // Renumeraciones completas (diagnóstico)
+
+    /**
+     * @param entityName Nombre de la entidad (ej: "Category")
+     */
+    public TreeIntervalIndex(String entityName) {
+        this.entityName = entityName;
+        this.nodes = new ConcurrentHashMap<>();
+        this.virtualRoot = new Node<>(null, null);
+        this.virtualRoot.pre = 0;
+        this.virtualRoot.post = Long.MAX_VALUE;
+        this.lock = new StampedLock();
+    }
+
+    /**
+     * Agrega un nodo sin hijos como último hijo de parentId.
+     *
+     * @param id Clave del nodo
+     * @param parentId Clave del padre (null = raíz)
+     * @throws IllegalArgumentException si el nodo ya existe o el padre no existe
+     */
+    public void addLeaf(ID id, ID parentId) {
+        long stamp = lock.writeLock();
+        try {
+            if (nodes.containsKey(id)) {
+                throw new IllegalArgumentException(entityName + " already indexed: " + id);
+            }
+            Node<ID> parent = nodeOrRoot(parentId);
+            Node<ID> node = new Node<>(id, parent);
+            parent.children.add(node);
+            nodes.put(id, node);
+            if (!labelInGap(node)) {
+                relabelAll();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Mueve un nodo (con todo su subárbol) bajo un nuevo padre.
+     *
+     * @param id Clave del nodo
+     * @param newParentId Clave del nuevo padre (null = raíz)
+     * @throws IllegalArgumentException si no existen o el nuevo padre está en el subárbol del nodo
+     */
+    public void move(ID id, ID newParentId) {
+        long stamp = lock.writeLock();
+        try {
+            Node<ID> node = nodeOrThrow(id);
+            Node<ID> newParent = nodeOrRoot(newParentId);
+            if (newParent == node.parent) {
+                return;
+            }
+            if (newParent != virtualRoot && contains(node, newParent)) {
+                throw new IllegalArgumentException(entityName + " " + newParentId +
+                    " is in the subtree of " + id);
+            }
+            node.parent.children.remove(node);
+            node.parent = newParent;
+            newParent.children.add(node);
+            if (!labelInGap(node)) {
+                relabelAll();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Elimina un nodo sin hijos.
+     *
+     * @param id Clave del nodo
+     * @return true si existía
+     * @throws IllegalStateException si el nodo tiene hijos
+     */
+    public boolean remove(ID id) {
+        long stamp = lock.writeLock();
+        try {
+            Node<ID> node = nodes.get(id);
+            if (node == null) {
+                return false;
+            }
+            if (!node.children.isEmpty()) {
+                throw new IllegalStateException(entityName + " " + id + " still has children");
+            }
+            node.parent.children.remove(node);
+            nodes.remove(id);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Ejecuta una consulta con un filtro "está en el subárbol de rootId" (incluido
+     * rootId) basado en intervalos. La consulta puede ejecutarse más de una vez si
+     * la jerarquía cambia mientras corre: no debe tener efectos secundarios.
+     *
+     * @param rootId Clave de la raíz del subárbol
+     * @param query Consulta que recibe el filtro por clave de nodo
+     * @param <R> Tipo de resultado
+     * @return Resultado de la consulta
+     * @throws IllegalArgumentException si rootId no está indexado
+     */
+    public <R> R querySubtree(ID rootId, Function<Predicate<ID>, R> query) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                R result = runQuery(rootId, query);
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException ex) {
+                // Estado inconsistente por una escritura concurrente: se repite con read lock
+                if (lock.validate(stamp)) {
+                    throw ex;
+                }
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return runQuery(rootId, query);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Recorre el subárbol de rootId en pre-orden (cada nodo antes que sus hijos).
+     *
+     * @param rootId Clave de la raíz del subárbol
+     * @param action Recibe (clave del nodo, clave de su padre; null para rootId)
+     * @throws IllegalArgumentException si rootId no está indexado
+     */
+    public void forEachInSubtree(ID rootId, BiConsumer<? super ID, ? super ID> action) {
+        long stamp = lock.readLock();
+        try {
+            Node<ID> root = nodeOrThrow(rootId);
+            action.accept(root.id, null);
+            Deque<Node<ID>> pending = new ArrayDeque<>();
+            pushChildren(root, pending);
+            while (!pending.isEmpty()) {
+                Node<ID> node = pending.pop();
+                action.accept(node.id, node.parent.id);
+                pushChildren(node, pending);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @param ancestorId Clave del posible ancestro
+     * @param id Clave del nodo
+     * @return true si id está en el subárbol de ancestorId (o es el mismo nodo)
+     */
+    public boolean isInSubtree(ID ancestorId, ID id) {
+        return querySubtree(ancestorId, inSubtree -> inSubtree.test(id));
+    }
+
+    /**
+     * @return Cantidad de nodos indexados
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return Cantidad de renumeraciones completas del bosque desde la creación
+     */
+    int getRelabelCount() {
+        long stamp = lock.readLock();
+        try {
+            return relabelCount;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private <R> R runQuery(ID rootId, Function<Predicate<ID>, R> query) {
+        Node<ID> root = nodeOrThrow(rootId);
+        long pre = root.pre;
+        long post = root.post;
+        return query.apply(id -> {
+            Node<ID> node = id != null ? nodes.get(id) : null;
+            return node != null && pre <= node.pre && node.pre <= post;
+        });
+    }
+
+    private boolean contains(Node<ID> ancestor, Node<ID> node) {
+        return ancestor.pre <= node.pre && node.pre <= ancestor.post;
+    }
+
+    // Etiqueta el subárbol de node (último hijo de su padre) en una porción acotada
+    // al inicio del hueco libre del padre; el resto del hueco queda para otros hermanos
+    private boolean labelInGap(Node<ID> node) {
+        Node<ID> parent = node.parent;
+        int siblings = parent.children.size();
+        long low = siblings > 1 ? parent.children.get(siblings - 2).post : parent.pre;
+        long high = parent.post;
+
+        List<Node<ID>> eulerTour = eulerTour(node);
+        long slots = eulerTour.size() + 1;
+        long slice = Math.min((high - low) / 2, slots > Long.MAX_VALUE / SLICE_STEP
+            ? Long.MAX_VALUE : slots * SLICE_STEP);
+        long step = slice / slots;
+        if (step < 1) {
+            return false;
+        }
+        long label = low;
+        for (Node<ID> visit : eulerTour) {
+            label += step;
+            // Cada nodo aparece dos veces en el recorrido: primero pre, luego post
+            if (visit.visited) {
+                visit.post = label;
+                visit.visited = false;
+            } else {
+                visit.pre = label;
+                visit.visited = true;
+            }
+        }
+        return true;
+    }
+
+    // Renumera todo el bosque dejando LABEL_GAP entre etiquetas consecutivas
+    private void relabelAll() {
+        relabelCount++;
+        long label = 0;
+        for (Node<ID> root : virtualRoot.children) {
+            for (Node<ID> visit : eulerTour(root)) {
+                label += LABEL_GAP;
+                if (visit.visited) {
+                    visit.post = label;
+                    visit.visited = false;
+                } else {
+                    visit.pre = label;
+                    visit.visited = true;
+                }
+            }
+        }
+    }
+
+    // Secuencia de entradas y salidas del subárbol (cada nodo dos veces), sin recursión
+    private List<Node<ID>> eulerTour(Node<ID> root) {
+        List<Node<ID>> tour = new ArrayList<>();
+        Deque<Node<ID>> stack = new ArrayDeque<>();
+        Deque<Integer> nextChild = new ArrayDeque<>();
+        stack.push(root);
+        nextChild.push(0);
+        tour.add(root);
+        while (!stack.isEmpty()) {
+            Node<ID> node = stack.peek();
+            int child = nextChild.pop();
+            if (child < node.children.size()) {
+                nextChild.push(child + 1);
+                Node<ID> next = node.children.get(child);
+                stack.push(next);
+                nextChild.push(0);
+                tour.add(next);
+            } else {
+                stack.pop();
+                tour.add(node);
+            }
+        }
+        return tour;
+    }
+
+    private void pushChildren(Node<ID> node, Deque<Node<ID>> pending) {
+        for (int i = node.children.size() - 1; i >= 0; i--) {
+            pending.push(node.children.get(i));
+        }
+    }
+
+    private Node<ID> nodeOrRoot(ID id) {
+        return id == null ? virtualRoot : nodeOrThrow(id);
+    }
+
+    private Node<ID> nodeOrThrow(ID id) {
+        Node<ID> node = nodes.get(id);
+        if (node == null) {
+            throw new IllegalArgumentException(entityName + " not indexed: " + id);
+        }
+        return node;
+    }
+
+    private static final class Node<ID> {
+        private final ID id;
+        private Node<ID> parent;
+        private final List<Node<ID>> children = new ArrayList<>();
+        private long pre;
+        private long post;
+        private boolean visited; // Solo durante el etiquetado
+
+        private Node(ID id, Node<ID> parent) {
+            this.id = id;
+            this.parent = parent;
+        }
+    }
+}
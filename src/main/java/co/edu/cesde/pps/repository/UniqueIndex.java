@@ -0,0 +1,140 @@
+package co.edu.cesde.pps.repository;
+
+import co.edu.cesde.pps.exception.DuplicateEntityException;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice secundario único con claves insensibles a mayúsculas/minúsculas.
+ *
+ * Simula una restricción UNIQUE sobre un campo de texto (SKU, email, slug,
+ * order number) para el modo en memoria. Reemplaza los recorridos completos con
+ * equalsIgnoreCase: tanto la validación de unicidad como la búsqueda son O(1).
+ *
+ * Las claves se normalizan con trim + toLowerCase(Locale.ROOT), de modo que
+ * "SKU-001", "sku-001" y " Sku-001 " se consideran la misma clave.
+ *
+ * El índice NO observa cambios en la entidad: el servicio debe llamar a
+ * put/move/remove cada vez que crea, modifica o elimina el campo indexado.
+ *
+ * Thread-safety: las operaciones son seguras para uso concurrente; put y move
+ * reservan la nueva clave de forma atómica (putIfAbsent).
+ *
+ * @param <T> Tipo de entidad indexada
+ */
+public class UniqueIndex<T> {
+
+    private final String entityName;
+    private final String fieldName;
+    private final Map<String, T> entitiesByKey;
+
+    /**
+     * @param entityName Nombre de la entidad (ej: "Product")
+     * @param fieldName Nombre del campo indexado (ej: "sku")
+     */
+    public UniqueIndex(String entityName, String fieldName) {
+        this.entityName = entityName;
+        this.fieldName = fieldName;
+        this.entitiesByKey = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Busca la entidad asociada a la clave.
+     *
+     * @param key Valor del campo (cualquier combinación de mayúsculas)
+     * @return Optional con la entidad o vacío si no existe
+     */
+    public Optional<T> find(String key) {
+        if (key == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(entitiesByKey.get(normalize(key)));
+    }
+
+    /**
+     * Verifica si la clave ya está registrada.
+     *
+     * @param key Valor del campo
+     * @return true si existe alguna entidad con esa clave
+     */
+    public boolean containsKey(String key) {
+        return key != null && entitiesByKey.containsKey(normalize(key));
+    }
+
+    /**
+     * Verifica si la clave está registrada por una entidad distinta a la dada.
+     * Útil en actualizaciones donde la entidad conserva su propio valor.
+     *
+     * @param key Valor del campo
+     * @param entity Entidad que se está actualizando
+     * @return true si otra entidad ya usa la clave
+     */
+    public boolean isTakenByOther(String key, T entity) {
+        T owner = find(key).orElse(null);
+        return owner != null && owner != entity;
+    }
+
+    /**
+     * Registra la clave para la entidad.
+     *
+     * @param key Valor del campo
+     * @param entity Entidad a indexar
+     * @throws DuplicateEntityException si otra entidad ya usa la clave
+     */
+    public void put(String key, T entity) {
+        T previous = entitiesByKey.putIfAbsent(normalize(key), entity);
+        if (previous != null && previous != entity) {
+            throw new DuplicateEntityException(entityName, fieldName, key);
+        }
+    }
+
+    /**
+     * Mueve la entidad de oldKey a newKey (ej: cambio de SKU en updateProduct).
+     *
+     * La nueva clave se reserva primero; si ya pertenece a otra entidad se lanza
+     * excepción y el índice queda intacto. Solo después se libera la clave anterior.
+     *
+     * @param oldKey Valor anterior del campo (puede ser null)
+     * @param newKey Nuevo valor del campo
+     * @param entity Entidad indexada
+     * @throws DuplicateEntityException si otra entidad ya usa newKey
+     */
+    public void move(String oldKey, String newKey, T entity) {
+        String normalizedNew = normalize(newKey);
+        if (oldKey != null && normalize(oldKey).equals(normalizedNew)) {
+            // Misma clave normalizada (ej: solo cambió mayúsculas): nada que mover
+            entitiesByKey.putIfAbsent(normalizedNew, entity);
+            return;
+        }
+
+        put(newKey, entity);
+        if (oldKey != null) {
+            remove(oldKey, entity);
+        }
+    }
+
+    /**
+     * Elimina la clave solo si pertenece a la entidad dada.
+     *
+     * @param key Valor del campo
+     * @param entity Entidad indexada
+     * @return true si la clave fue eliminada
+     */
+    public boolean remove(String key, T entity) {
+        return key != null && entitiesByKey.remove(normalize(key), entity);
+    }
+
+    /**
+     * @return Cantidad de claves registradas
+     */
+    public int size() {
+        return entitiesByKey.size();
+    }
+
+    private String normalize(String key) {
+        return key.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,15 +1,19 @@
 package co.edu.cesde.pps.service;
 
 import co.edu.cesde.pps.dto.AddressDTO;
+import co.edu.cesde.pps.dto.PageDTO;
 import co.edu.cesde.pps.exception.EntityNotFoundException;
 import co.edu.cesde.pps.exception.ValidationException;
 import co.edu.cesde.pps.mapper.AddressMapper;
 import co.edu.cesde.pps.model.Address;
 import co.edu.cesde.pps.model.User;
+import co.edu.cesde.pps.repository.InMemoryRepository;
+import co.edu.cesde.pps.util.Pagination;
 import co.edu.cesde.pps.util.ValidationUtils;
+import co.edu.cesde.pps.util.IdGenerator;
+import co.edu.cesde.pps.util.SequenceIdGenerator;
 import co.edu.cesde.pps.config.AppConfig;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -34,13 +38,15 @@ public class AddressService {
     private final AddressMapper addressMapper;
     private final UserService userService;
     // TODO Etapa 06: private final AddressRepository addressRepository;
-    // Por ahora trabajamos con lista en memoria
-    private final List<Address> addressesInMemory;
+    // Por ahora trabajamos con un repositorio en memoria indexado por PK
+    private final InMemoryRepository<Address, Long> addressesInMemory;
+    private final IdGenerator idGenerator;
 
     public AddressService(UserService userService) {
         this.addressMapper = new AddressMapper();
         this.userService = userService;
-        this.addressesInMemory = new ArrayList<>();
+        this.addressesInMemory = new InMemoryRepository<>("Address", Address::getAddressId);
+        this.idGenerator = new SequenceIdGenerator("Address");
     }
 
     /**
@@ -71,7 +77,7 @@ public class AddressService {
 
         // Convertir DTO a Entity
         Address address = addressMapper.toEntity(addressDTO);
-        address.setAddressId(generateNextId());
+        address.setAddressId(idGenerator.nextId());
 
         // Gestión bidireccional
         user.getAddresses().add(address);    // Agregar a colección del usuario
@@ -86,7 +92,7 @@ public class AddressService {
         }
 
         // TODO Etapa 06: addressRepository.save(address);
-        addressesInMemory.add(address);
+        addressesInMemory.save(address);
 
         return addressMapper.toDTO(address);
     }
@@ -147,7 +153,7 @@ public class AddressService {
         address.setUser(null);                 // Remover referencia al usuario
 
         // TODO Etapa 06: addressRepository.delete(address);
-        addressesInMemory.remove(address);
+        addressesInMemory.delete(address);
 
         // Si era la default, marcar otra como default
         if (address.getIsDefault() && !user.getAddresses().isEmpty()) {
@@ -201,6 +207,28 @@ public class AddressService {
         return addressMapper.toDTOList(addresses);
     }
 
+    /**
+     * Obtiene una página de direcciones de un usuario (paginación por cursor).
+     *
+     * @param userId ID del usuario
+     * @param cursor Cursor de la página anterior (null = primera página)
+     * @param pageSize Tamaño de página (null = AppConfig.getDefaultPageSize())
+     * @return Página de AddressDTO
+     * @throws EntityNotFoundException si el usuario no existe
+     * @throws ValidationException si el cursor es inválido
+     */
+    public PageDTO<AddressDTO> findUserAddresses(Long userId, String cursor, Integer pageSize) {
+        userService.findUserEntityOrThrow(userId); // Validar que usuario existe
+        int size = Pagination.resolvePageSize(pageSize);
+        Long afterId = Pagination.decodeIdCursor(cursor);
+
+        // TODO Etapa 06: addressRepository.findByUserIdAndAddressIdGreaterThan(userId, afterId, PageRequest.of(0, size + 1))
+        List<Address> fetched = addressesInMemory.findPageAfter(afterId, size + 1,
+            a -> a.getUser().getUserId().equals(userId));
+        return Pagination.toPage(fetched, size,
+            a -> Pagination.encodeCursor(a.getAddressId()), addressMapper::toDTOList);
+    }
+
     /**
      * Busca una dirección por ID.
      *
@@ -224,10 +252,7 @@ public class AddressService {
     public Address findAddressEntityOrThrow(Long addressId) {
         // TODO Etapa 06: return addressRepository.findById(addressId)
         //     .orElseThrow(() -> new EntityNotFoundException("Address", addressId));
-        return addressesInMemory.stream()
-                .filter(a -> a.getAddressId().equals(addressId))
-                .findFirst()
-                .orElseThrow(() -> new EntityNotFoundException("Address", addressId));
+        return addressesInMemory.findByIdOrThrow(addressId);
     }
 
     // Métodos privados auxiliares
@@ -253,12 +278,4 @@ public class AddressService {
                 .filter(a -> a.getUser().getUserId().equals(userId))
                 .forEach(a -> a.setIsDefault(false));
     }
-
-    // Método auxiliar para simular auto-increment en memoria
-    private Long generateNextId() {
-        return addressesInMemory.stream()
-                .mapToLong(Address::getAddressId)
-                .max()
-                .orElse(0L) + 1;
-    }
 }
@@ -0,0 +1,90 @@
+package co.edu.cesde.pps.service;
+
+import co.edu.cesde.pps.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reconstrucción periódica del índice de autocompletado de productos, en un hilo
+ * daemon dedicado (ProductService.rebuildAutocompleteIndex()).
+ *
+ * Cada AppConfig.getAutocompleteRebuildIntervalSeconds() se construye un trie
+ * nuevo con los productos activos con stock y sus unidades vendidas; al terminar
+ * reemplaza al anterior. Las consultas de autocompletado nunca esperan a la
+ * reconstrucción: siguen respondiendo con el índice anterior.
+ *
+ * Uso:
+ * - start(): construye el índice de inmediato y luego periódicamente
+ * - runOnce(): reconstruye en el hilo actual (útil en pruebas manuales)
+ * - stop(): detiene las reconstrucciones
+ */
+public class AutocompleteIndexRefresher {
+
+    private static final Logger log = LoggerFactory.getLogger(AutocompleteIndexRefresher.class);
+
+    private final ProductService productService;
+    private ScheduledExecutorService scheduler;
+
+    public AutocompleteIndexRefresher(ProductService productService) {
+        this.productService = productService;
+    }
+
+    /**
+     * Inicia las reconstrucciones periódicas. No hace nada si ya está iniciado.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        long interval = AppConfig.getAutocompleteRebuildIntervalSeconds();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autocomplete-index-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::rebuildSafely, 0, interval, TimeUnit.SECONDS);
+        log.info("Autocomplete index refresher started (interval: {} s)", interval);
+    }
+
+    /**
+     * Reconstruye el índice en el hilo actual.
+     *
+     * @return Cantidad de productos indexados
+     */
+    public int runOnce() {
+        long start = System.nanoTime();
+        int indexed = productService.rebuildAutocompleteIndex();
+        log.debug("Autocomplete index rebuilt with {} product(s) in {} ms", indexed,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return indexed;
+    }
+
+    /**
+     * Detiene las reconstrucciones periódicas. No hace nada si no está iniciado.
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler = null;
+        log.info("Autocomplete index refresher stopped");
+    }
+
+    public synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+
+    private void rebuildSafely() {
+        try {
+            runOnce();
+        } catch (RuntimeException ex) {
+            // Una excepción cancelaría las ejecuciones siguientes del scheduler
+            log.error("Autocomplete index rebuild failed: {}", ex.getMessage(), ex);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package co.edu.cesde.pps.service;
+
+import co.edu.cesde.pps.config.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tareas en segundo plano de mantenimiento de carritos, en un hilo daemon dedicado:
+ * - Cada AppConfig.getCartAbandonmentSweepIntervalMinutes(): marca como ABANDONED
+ *   los carritos OPEN inactivos (CartService.abandonStaleCarts())
+ * - Cada STOCK_HOLD_SWEEP_INTERVAL_SECONDS: devuelve al stock las reservas de
+ *   items vencidas (CartService.releaseExpiredStockHolds())
+ *
+ * Cada barrido solo procesa los elementos cuyo vencimiento ya llegó (ruedas de
+ * tiempo), por lo que su costo no depende del total de carritos ni de reservas.
+ *
+ * Uso:
+ * - start(): inicia los barridos periódicos
+ * - runOnce(): ejecuta un barrido en el hilo actual (útil en pruebas manuales)
+ * - stop(): detiene los barridos
+ *
+ * TODO Etapa 06: Ejecutar cada barrido dentro de una transacción
+ */
+public class CartAbandonmentSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(CartAbandonmentSweeper.class);
+
+    // Las reservas duran minutos: se revisan con más frecuencia que el abandono
+    private static final long STOCK_HOLD_SWEEP_INTERVAL_SECONDS = 30;
+
+    private final CartService cartService;
+    private ScheduledExecutorService scheduler;
+
+    public CartAbandonmentSweeper(CartService cartService) {
+        this.cartService = cartService;
+    }
+
+    /**
+     * Inicia los barridos periódicos. No hace nada si ya está iniciado.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        long interval = AppConfig.getCartAbandonmentSweepIntervalMinutes();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-abandonment-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sweepSafely, interval, interval, TimeUnit.MINUTES);
+        scheduler.scheduleWithFixedDelay(this::releaseExpiredHoldsSafely, STOCK_HOLD_SWEEP_INTERVAL_SECONDS,
+            STOCK_HOLD_SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        log.info("Cart abandonment sweeper started (interval: {} min)", interval);
+    }
+
+    /**
+     * Ejecuta un barrido inmediato en el hilo actual.
+     *
+     * @return Cantidad de carritos marcados como ABANDONED
+     */
+    public int runOnce() {
+        int abandoned = cartService.abandonStaleCarts();
+        if (abandoned > 0) {
+            log.info("Marked {} cart(s) as ABANDONED", abandoned);
+        }
+        return abandoned;
+    }
+
+    /**
+     * Detiene los barridos periódicos. No hace nada si no está iniciado.
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler = null;
+        log.info("Cart abandonment sweeper stopped");
+    }
+
+    public synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+
+    private void releaseExpiredHoldsSafely() {
+        try {
+            int released = cartService.releaseExpiredStockHolds();
+            if (released > 0) {
+                log.debug("Released {} expired stock hold(s)", released);
+            }
+        } catch (RuntimeException ex) {
+            log.error("Stock hold sweep failed: {}", ex.getMessage(), ex);
+        }
+    }
+
+    private void sweepSafely() {
+        try {
+            runOnce();
+        } catch (RuntimeException ex) {
+            // Una excepción cancelaría las ejecuciones siguientes del scheduler
+            log.error("Cart abandonment sweep failed: {}", ex.getMessage(), ex);
+        }
+    }
+}
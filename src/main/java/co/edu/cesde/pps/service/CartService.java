@@ -1,7 +1,9 @@
 package co.edu.cesde.pps.service;
 
+import co.edu.cesde.pps.config.AppConfig;
 import co.edu.cesde.pps.dto.CartDTO;
 import co.edu.cesde.pps.enums.CartStatus;
+import co.edu.cesde.pps.exception.AdmissionRejectedException;
 import co.edu.cesde.pps.exception.CartMergeException;
 import co.edu.cesde.pps.exception.EntityNotFoundException;
 import co.edu.cesde.pps.exception.InsufficientStockException;
@@ -12,13 +14,24 @@ import co.edu.cesde.pps.model.Cart;
 import co.edu.cesde.pps.model.CartItem;
 import co.edu.cesde.pps.model.Product;
 import co.edu.cesde.pps.model.User;
-import co.edu.cesde.pps.util.CalculationUtils;
+import co.edu.cesde.pps.model.UserSession;
+import co.edu.cesde.pps.repository.ExpiringIndex;
+import co.edu.cesde.pps.repository.InMemoryRepository;
+import co.edu.cesde.pps.util.DateTimeUtils;
+import co.edu.cesde.pps.util.HierarchicalTimingWheel;
 import co.edu.cesde.pps.util.ValidationUtils;
+import co.edu.cesde.pps.util.IdGenerator;
+import co.edu.cesde.pps.util.IdGenerators;
+import co.edu.cesde.pps.util.StripedLock;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -28,12 +41,21 @@ import java.util.stream.Collectors;
  * - CRUD de carritos
  * - Agregar/actualizar/remover items (gestión bidireccional)
  * - Calcular totales
- * - Validar disponibilidad de productos
+ * - Validar disponibilidad y reservar stock de productos (ver StockReservationService)
  * - Actualizar timestamp (touch)
  * - **ALGORITMO DE CART MERGE** (fusión invitado → registrado)
  * - Limpiar carrito
+ * - Localizar carritos de invitado por sesión (expiran con la sesión)
+ * - Marcar carritos inactivos como ABANDONED (ver CartAbandonmentSweeper)
  * - Conversión Entity <-> DTO
  *
+ * Concurrencia:
+ * - Toda modificación de un carrito (items, estado, totales) se ejecuta con el
+ *   lock de su stripe (cartLocks); el merge toma los locks de ambos carritos
+ * - Las lecturas (findById, findSummaryById, calculateCartTotal) no bloquean:
+ *   el modelo usa colecciones seguras para lectura concurrente, por lo que una
+ *   lectura simultánea a una escritura ve el estado anterior o el nuevo
+ *
  * NOTA: En Etapa 06 se agregará:
  * - @Service annotation
  * - @Transactional (crítico para Cart Merge)
@@ -42,59 +64,166 @@ import java.util.stream.Collectors;
  */
 public class CartService {
 
+    // IDs de CartItem se pre-asignan por bloques: es la entidad de mayor volumen
+    private static final int ITEM_ID_BLOCK_SIZE = 64;
+
+    // Granularidad de expiración de los índices de carritos de invitado
+    private static final Duration GUEST_INDEX_BUCKET_WIDTH = Duration.ofMinutes(5);
+
+    // Resolución y niveles de la rueda de abandono (1 min x 64^3 ≈ 182 días de rango)
+    private static final Duration ABANDONMENT_WHEEL_TICK = Duration.ofMinutes(1);
+    private static final int ABANDONMENT_WHEEL_LEVELS = 3;
+
+    // Cantidad de stripes para los locks por carrito
+    private static final int CART_LOCK_STRIPES = 256;
+
     private final CartMapper cartMapper;
     private final UserService userService;
     private final ProductService productService;
+    private final StockReservationService stockReservations;
     // TODO Etapa 06: private final CartRepository cartRepository;
-    private final List<Cart> cartsInMemory;
+    private final InMemoryRepository<Cart, Long> cartsInMemory;
+    // Índice userId → carrito OPEN (un usuario tiene a lo sumo un carrito OPEN)
+    private final Map<Long, Cart> openCartsByUser;
+    // Índices de carritos de invitado por sesión (expiran con la sesión)
+    private final ExpiringIndex<Long, Cart> guestCartsBySessionId;
+    private final ExpiringIndex<String, Cart> guestCartsBySessionToken;
+    // Vencimientos de inactividad de carritos OPEN (ver abandonStaleCarts)
+    private final HierarchicalTimingWheel<Cart> abandonmentWheel;
+    // Locks por carrito: serializan las modificaciones de un mismo carrito
+    private final StripedLock cartLocks;
+    private final IdGenerator idGenerator;
+    private final IdGenerator itemIdGenerator;
 
     public CartService(UserService userService, ProductService productService) {
+        this(userService, productService, new StockReservationService(productService));
+    }
+
+    public CartService(UserService userService, ProductService productService,
+                       StockReservationService stockReservations) {
         this.cartMapper = new CartMapper();
         this.userService = userService;
         this.productService = productService;
-        this.cartsInMemory = new ArrayList<>();
+        this.stockReservations = stockReservations;
+        this.cartsInMemory = new InMemoryRepository<>("Cart", Cart::getCartId);
+        this.openCartsByUser = new ConcurrentHashMap<>();
+        this.guestCartsBySessionId = new ExpiringIndex<>(GUEST_INDEX_BUCKET_WIDTH, this::abandonExpiredGuestCart);
+        this.guestCartsBySessionToken = new ExpiringIndex<>(GUEST_INDEX_BUCKET_WIDTH, this::abandonExpiredGuestCart);
+        this.abandonmentWheel = new HierarchicalTimingWheel<>(ABANDONMENT_WHEEL_TICK,
+            ABANDONMENT_WHEEL_LEVELS, System.currentTimeMillis());
+        this.cartLocks = new StripedLock(CART_LOCK_STRIPES);
+        this.idGenerator = IdGenerators.forEntity("Cart");
+        this.itemIdGenerator = IdGenerators.forEntity("CartItem", ITEM_ID_BLOCK_SIZE);
     }
 
     /**
      * Crea un carrito para invitado (sin usuario).
      *
+     * La sesión expira después de AppConfig.getGuestSessionTimeoutHours().
+     *
      * @param sessionId ID de la sesión
-     * @return CartDTO del carrito creado
+     * @return CartDTO del carrito creado (o el carrito OPEN existente de la sesión)
      */
     public CartDTO createCartForGuest(Long sessionId) {
+        ValidationUtils.validateNotNull(sessionId, "sessionId");
+
+        // TODO Etapa 06: cargar UserSession desde BD
+        LocalDateTime now = LocalDateTime.now();
+        UserSession session = new UserSession();
+        session.setSessionId(sessionId);
+        session.setCreatedAt(now);
+        session.setExpiresAt(now.plusHours(AppConfig.getGuestSessionTimeoutHours()));
+
+        return createCartForGuest(session);
+    }
+
+    /**
+     * Crea un carrito para invitado asociado a la sesión dada.
+     *
+     * El carrito queda indexado por sessionId y sessionToken hasta que la sesión
+     * expira (session.expiresAt o, si no está definido, ahora +
+     * AppConfig.getGuestSessionTimeoutHours()). Si la sesión ya tiene un carrito
+     * OPEN vigente, se retorna ese carrito.
+     *
+     * @param session Sesión de invitado (sessionId requerido)
+     * @return CartDTO del carrito de la sesión
+     */
+    public CartDTO createCartForGuest(UserSession session) {
+        ValidationUtils.validateNotNull(session, "session");
+        ValidationUtils.validateNotNull(session.getSessionId(), "sessionId");
+
+        LocalDateTime now = LocalDateTime.now();
+        Cart existing = guestCartsBySessionId.get(session.getSessionId(), now);
+        if (existing != null && existing.isOpen()) {
+            return cartMapper.toDTO(existing);
+        }
+
+        if (session.getExpiresAt() == null) {
+            session.setExpiresAt(now.plusHours(AppConfig.getGuestSessionTimeoutHours()));
+        }
+
         Cart cart = new Cart();
-        cart.setCartId(generateNextId());
+        cart.setCartId(idGenerator.nextId());
         cart.setUser(null); // Invitado
+        cart.setSession(session);
         cart.setStatus(CartStatus.OPEN);
-        cart.setCreatedAt(LocalDateTime.now());
-        cart.setUpdatedAt(LocalDateTime.now());
+        cart.setCreatedAt(now);
+        cart.setUpdatedAt(now);
 
         // TODO Etapa 06: cartRepository.save(cart);
-        cartsInMemory.add(cart);
+        cartsInMemory.save(cart);
+        indexGuestCart(cart);
+        scheduleAbandonmentCheck(cart);
 
         return cartMapper.toDTO(cart);
     }
 
+    /**
+     * Busca el carrito OPEN de invitado de una sesión vigente.
+     *
+     * @param sessionId ID de la sesión
+     * @return CartDTO o null si no existe o la sesión expiró
+     */
+    public CartDTO findGuestCartBySession(Long sessionId) {
+        Cart cart = guestCartsBySessionId.get(sessionId, LocalDateTime.now());
+        return cart != null && cart.isOpen() ? cartMapper.toDTO(cart) : null;
+    }
+
+    /**
+     * Busca el carrito OPEN de invitado por token de sesión (cookie/JWT).
+     *
+     * @param sessionToken Token de la sesión
+     * @return CartDTO o null si no existe o la sesión expiró
+     */
+    public CartDTO findGuestCartBySessionToken(String sessionToken) {
+        Cart cart = guestCartsBySessionToken.get(sessionToken, LocalDateTime.now());
+        return cart != null && cart.isOpen() ? cartMapper.toDTO(cart) : null;
+    }
+
+    /**
+     * Elimina de los índices de invitado las sesiones expiradas y marca sus
+     * carritos OPEN como ABANDONED. Costo proporcional a las sesiones expiradas.
+     *
+     * @return Cantidad de carritos de invitado expirados
+     */
+    public int purgeExpiredGuestCarts() {
+        LocalDateTime now = LocalDateTime.now();
+        guestCartsBySessionToken.purgeExpired(now);
+        return guestCartsBySessionId.purgeExpired(now).size();
+    }
+
     /**
      * Crea un carrito para usuario registrado.
      *
+     * Un usuario tiene a lo sumo un carrito OPEN: si ya existe, se retorna ese
+     * carrito en lugar de crear uno nuevo.
+     *
      * @param userId ID del usuario
-     * @return CartDTO del carrito creado
+     * @return CartDTO del carrito OPEN del usuario
      * @throws EntityNotFoundException si el usuario no existe
      */
     public CartDTO createCartForUser(Long userId) {
-        User user = userService.findUserEntityOrThrow(userId);
-
-        Cart cart = new Cart();
-        cart.setCartId(generateNextId());
-        cart.setUser(user);
-        cart.setStatus(CartStatus.OPEN);
-        cart.setCreatedAt(LocalDateTime.now());
-        cart.setUpdatedAt(LocalDateTime.now());
-
-        // TODO Etapa 06: cartRepository.save(cart);
-        cartsInMemory.add(cart);
-
+        Cart cart = findOrCreateOpenCartForUser(userId);
         return cartMapper.toDTO(cart);
     }
 
@@ -110,6 +239,19 @@ public class CartService {
         return cartMapper.toDTO(cart);
     }
 
+    /**
+     * Obtiene el resumen del carrito (conteos y total, sin items).
+     * Costo O(1): pensado para el widget de mini-carrito.
+     *
+     * @param cartId ID del carrito
+     * @return CartDTO sin items
+     * @throws EntityNotFoundException si no existe
+     */
+    public CartDTO findSummaryById(Long cartId) {
+        Cart cart = findCartEntityOrThrow(cartId);
+        return cartMapper.toSummaryDTO(cart);
+    }
+
     /**
      * Busca carrito OPEN del usuario (puede no existir).
      *
@@ -118,12 +260,7 @@ public class CartService {
      */
     public CartDTO findOpenCartByUser(Long userId) {
         // TODO Etapa 06: Optional<Cart> cart = cartRepository.findByUserIdAndStatus(userId, CartStatus.OPEN);
-        Cart cart = cartsInMemory.stream()
-                .filter(c -> c.getUser() != null &&
-                           c.getUser().getUserId().equals(userId) &&
-                           c.getStatus() == CartStatus.OPEN)
-                .findFirst()
-                .orElse(null);
+        Cart cart = userId != null ? openCartsByUser.get(userId) : null;
 
         return cart != null ? cartMapper.toDTO(cart) : null;
     }
@@ -139,11 +276,21 @@ public class CartService {
      * @throws InvalidCartStateException si el carrito no está OPEN
      * @throws InsufficientStockException si no hay stock suficiente
      * @throws ValidationException si el producto no está activo
+     * @throws AdmissionRejectedException si el producto es hot y la cola lo rechaza
      */
     public CartDTO addItem(Long cartId, Long productId, Integer quantity) {
         // Validar cantidad
         ValidationUtils.validatePositive(quantity, "quantity");
 
+        // Productos hot: cola de admisión FIFO antes de cualquier otra validación
+        return productService.withHotSkuAdmission(Collections.singletonList(productId), quantity,
+            () -> cartLocks.withLock(cartId, () -> addItemToLockedCart(cartId, productId, quantity)));
+    }
+
+    /**
+     * Cuerpo de addItem, ejecutado con el lock del carrito adquirido.
+     */
+    private CartDTO addItemToLockedCart(Long cartId, Long productId, Integer quantity) {
         // Obtener carrito y validar estado
         Cart cart = findCartEntityOrThrow(cartId);
         if (cart.getStatus() != CartStatus.OPEN) {
@@ -157,37 +304,23 @@ public class CartService {
             throw new ValidationException("Product '" + product.getName() + "' is not active");
         }
 
-        // Validar stock disponible
-        if (!CalculationUtils.hasEnoughStock(product.getStockQty(), quantity)) {
-            throw new InsufficientStockException(productId, product.getSku(),
-                quantity, product.getStockQty());
-        }
+        // Buscar si el producto ya existe en el carrito (O(1) por índice)
+        CartItem existingItem = cart.findItemByProductId(productId);
+        int newQuantity = existingItem != null ? existingItem.getQuantity() + quantity : quantity;
 
-        // Buscar si el producto ya existe en el carrito
-        CartItem existingItem = cart.getItems().stream()
-                .filter(item -> item.getProduct().getProductId().equals(productId))
-                .findFirst()
-                .orElse(null);
+        // Reservar stock para la cantidad de la línea (solo se descuenta la diferencia)
+        stockReservations.hold(cartId, product, newQuantity);
 
         if (existingItem != null) {
             // Producto ya existe: actualizar cantidad
-            int newQuantity = existingItem.getQuantity() + quantity;
-
-            // Validar stock para nueva cantidad
-            if (!CalculationUtils.hasEnoughStock(product.getStockQty(), newQuantity)) {
-                throw new InsufficientStockException(productId, product.getSku(),
-                    newQuantity, product.getStockQty());
-            }
-
             existingItem.setQuantity(newQuantity);
         } else {
             // Producto nuevo: crear CartItem y gestión bidireccional
             CartItem newItem = new CartItem(cart, product, quantity, product.getPrice());
-            newItem.setCartItemId(generateNextCartItemId());
+            newItem.setCartItemId(itemIdGenerator.nextId());
             newItem.setAddedAt(LocalDateTime.now());
 
-            cart.getItems().add(newItem);      // Agregar a colección del carrito
-            newItem.setCart(cart);             // Establecer referencia al carrito
+            cart.attachItem(newItem);          // Agregar a colección e índice, y establecer referencia
         }
 
         // Actualizar timestamp del carrito
@@ -213,31 +346,26 @@ public class CartService {
     public CartDTO updateItemQuantity(Long cartId, Long productId, Integer newQuantity) {
         ValidationUtils.validatePositive(newQuantity, "quantity");
 
-        Cart cart = findCartEntityOrThrow(cartId);
-        if (cart.getStatus() != CartStatus.OPEN) {
-            throw new InvalidCartStateException(cartId, cart.getStatus(),
-                CartStatus.OPEN, "update item");
-        }
+        return cartLocks.withLock(cartId, () -> {
+            Cart cart = findCartEntityOrThrow(cartId);
+            if (cart.getStatus() != CartStatus.OPEN) {
+                throw new InvalidCartStateException(cartId, cart.getStatus(),
+                    CartStatus.OPEN, "update item");
+            }
 
-        // Buscar item en el carrito
-        CartItem item = cart.getItems().stream()
-                .filter(i -> i.getProduct().getProductId().equals(productId))
-                .findFirst()
-                .orElseThrow(() -> new ValidationException("Product not found in cart"));
-
-        // Validar stock
-        Product product = item.getProduct();
-        if (!CalculationUtils.hasEnoughStock(product.getStockQty(), newQuantity)) {
-            throw new InsufficientStockException(productId, product.getSku(),
-                newQuantity, product.getStockQty());
-        }
+            // Buscar item en el carrito
+            CartItem item = findItemOrThrow(cart, productId);
 
-        item.setQuantity(newQuantity);
-        touchCart(cart);
+            // Ajustar la reserva de stock a la nueva cantidad
+            stockReservations.hold(cartId, item.getProduct(), newQuantity);
 
-        // TODO Etapa 06: cartRepository.save(cart);
+            item.setQuantity(newQuantity);
+            touchCart(cart);
 
-        return cartMapper.toDTO(cart);
+            // TODO Etapa 06: cartRepository.save(cart);
+
+            return cartMapper.toDTO(cart);
+        });
     }
 
     /**
@@ -251,27 +379,26 @@ public class CartService {
      * @throws ValidationException si el producto no está en el carrito
      */
     public CartDTO removeItem(Long cartId, Long productId) {
-        Cart cart = findCartEntityOrThrow(cartId);
-        if (cart.getStatus() != CartStatus.OPEN) {
-            throw new InvalidCartStateException(cartId, cart.getStatus(),
-                CartStatus.OPEN, "remove item");
-        }
+        return cartLocks.withLock(cartId, () -> {
+            Cart cart = findCartEntityOrThrow(cartId);
+            if (cart.getStatus() != CartStatus.OPEN) {
+                throw new InvalidCartStateException(cartId, cart.getStatus(),
+                    CartStatus.OPEN, "remove item");
+            }
 
-        // Buscar item
-        CartItem item = cart.getItems().stream()
-                .filter(i -> i.getProduct().getProductId().equals(productId))
-                .findFirst()
-                .orElseThrow(() -> new ValidationException("Product not found in cart"));
+            // Buscar item
+            CartItem item = findItemOrThrow(cart, productId);
 
-        // Gestión bidireccional
-        cart.getItems().remove(item);     // Remover de colección
-        item.setCart(null);                // Remover referencia
+            // Gestión bidireccional: remover de colección e índice, y limpiar referencia
+            cart.detachItem(item);
+            stockReservations.release(cartId, productId);
 
-        touchCart(cart);
+            touchCart(cart);
 
-        // TODO Etapa 06: cartRepository.save(cart);
+            // TODO Etapa 06: cartRepository.save(cart);
 
-        return cartMapper.toDTO(cart);
+            return cartMapper.toDTO(cart);
+        });
     }
 
     /**
@@ -282,16 +409,20 @@ public class CartService {
      * @throws InvalidCartStateException si el carrito no está OPEN
      */
     public void clearCart(Long cartId) {
-        Cart cart = findCartEntityOrThrow(cartId);
-        if (cart.getStatus() != CartStatus.OPEN) {
-            throw new InvalidCartStateException(cartId, cart.getStatus(),
-                CartStatus.OPEN, "clear");
-        }
+        cartLocks.withLock(cartId, () -> {
+            Cart cart = findCartEntityOrThrow(cartId);
+            if (cart.getStatus() != CartStatus.OPEN) {
+                throw new InvalidCartStateException(cartId, cart.getStatus(),
+                    CartStatus.OPEN, "clear");
+            }
 
-        cart.getItems().clear();
-        touchCart(cart);
+            cart.clearItems();
+            stockReservations.releaseAll(cartId);
+            touchCart(cart);
 
-        // TODO Etapa 06: cartRepository.save(cart);
+            // TODO Etapa 06: cartRepository.save(cart);
+            return null;
+        });
     }
 
     /**
@@ -303,7 +434,7 @@ public class CartService {
      */
     public BigDecimal calculateCartTotal(Long cartId) {
         Cart cart = findCartEntityOrThrow(cartId);
-        return cart.calculateTotal(); // Usa método del modelo
+        return cart.getTotal(); // Total mantenido incrementalmente por el modelo
     }
 
     /**
@@ -338,81 +469,120 @@ public class CartService {
         Cart guestCart = findCartEntityOrThrow(guestCartId);
         Cart userCart = findOrCreateOpenCartForUser(userId);
 
-        // 2. Validar estados
-        if (guestCart.getStatus() != CartStatus.OPEN) {
-            throw new InvalidCartStateException(guestCartId, guestCart.getStatus(),
-                CartStatus.OPEN, "merge");
-        }
-        if (userCart.getStatus() != CartStatus.OPEN) {
-            throw new InvalidCartStateException(userCart.getCartId(),
-                userCart.getStatus(), CartStatus.OPEN, "merge");
-        }
+        // Bloquear ambos carritos (orden fijo por stripe, sin deadlock)
+        return cartLocks.withLocks(guestCart.getCartId(), userCart.getCartId(), () -> {
+            // 2. Validar estados
+            if (guestCart.getStatus() != CartStatus.OPEN) {
+                throw new InvalidCartStateException(guestCartId, guestCart.getStatus(),
+                    CartStatus.OPEN, "merge");
+            }
+            if (userCart.getStatus() != CartStatus.OPEN) {
+                throw new InvalidCartStateException(userCart.getCartId(),
+                    userCart.getStatus(), CartStatus.OPEN, "merge");
+            }
 
-        // 3. Validar que guestCart sea realmente de invitado
-        if (guestCart.getUser() != null) {
-            throw new CartMergeException(guestCartId, userCart.getCartId(),
-                "Guest cart already has a user assigned");
-        }
+            // 3. Validar que guestCart sea realmente de invitado
+            if (guestCart.getUser() != null) {
+                throw new CartMergeException(guestCartId, userCart.getCartId(),
+                    "Guest cart already has a user assigned");
+            }
 
-        // 4. Fusionar items del carrito invitado al carrito usuario
-        for (CartItem guestItem : new ArrayList<>(guestCart.getItems())) {
-            Product product = guestItem.getProduct();
-            Integer guestQuantity = guestItem.getQuantity();
-
-            // Buscar si el producto ya existe en carrito de usuario
-            CartItem userItem = userCart.getItems().stream()
-                    .filter(item -> item.getProduct().getProductId()
-                        .equals(product.getProductId()))
-                    .findFirst()
-                    .orElse(null);
-
-            if (userItem != null) {
-                // Producto YA existe en carrito usuario: sumar cantidades
-                int totalQuantity = userItem.getQuantity() + guestQuantity;
-
-                // Validar stock para cantidad fusionada
-                if (!CalculationUtils.hasEnoughStock(product.getStockQty(), totalQuantity)) {
-                    throw new InsufficientStockException(product.getProductId(),
-                        product.getSku(), totalQuantity, product.getStockQty());
-                }
+            // 4. Fusionar items del carrito invitado al carrito usuario
+            //    (O(guestItems): cada línea del usuario se localiza por índice)
+            //    Las reservas de stock del invitado pasan al usuario sin tocar stock
+            stockReservations.transferAll(guestCart.getCartId(), userCart.getCartId());
 
-                userItem.setQuantity(totalQuantity);
+            for (CartItem guestItem : guestCart.getItems()) {
+                Product product = guestItem.getProduct();
+                Integer guestQuantity = guestItem.getQuantity();
 
-                // Resolver conflicto de precio: mantener más reciente
-                if (guestItem.getAddedAt().isAfter(userItem.getAddedAt())) {
-                    userItem.setUnitPrice(guestItem.getUnitPrice());
-                }
-            } else {
-                // Producto NO existe en carrito usuario: mover item
-                // Validar stock disponible
-                if (!CalculationUtils.hasEnoughStock(product.getStockQty(), guestQuantity)) {
-                    throw new InsufficientStockException(product.getProductId(),
-                        product.getSku(), guestQuantity, product.getStockQty());
-                }
+                // Buscar si el producto ya existe en carrito de usuario
+                CartItem userItem = userCart.findItemByProductId(product.getProductId());
+
+                if (userItem != null) {
+                    // Producto YA existe en carrito usuario: sumar cantidades
+                    int totalQuantity = userItem.getQuantity() + guestQuantity;
+
+                    // Reservar stock para la cantidad fusionada (normalmente ya retenida)
+                    stockReservations.hold(userCart.getCartId(), product, totalQuantity);
+
+                    userItem.setQuantity(totalQuantity);
+
+                    // Resolver conflicto de precio: mantener más reciente
+                    if (guestItem.getAddedAt().isAfter(userItem.getAddedAt())) {
+                        userItem.setUnitPrice(guestItem.getUnitPrice());
+                    }
+                } else {
+                    // Producto NO existe en carrito usuario: mover item
+                    // Reservar stock (normalmente ya retenido por el invitado)
+                    stockReservations.hold(userCart.getCartId(), product, guestQuantity);
 
-                // Crear nuevo item en carrito de usuario
-                CartItem newItem = new CartItem(userCart, product, guestQuantity,
-                    guestItem.getUnitPrice());
-                newItem.setCartItemId(generateNextCartItemId());
-                newItem.setAddedAt(guestItem.getAddedAt());
+                    // Crear nuevo item en carrito de usuario
+                    CartItem newItem = new CartItem(userCart, product, guestQuantity,
+                        guestItem.getUnitPrice());
+                    newItem.setCartItemId(itemIdGenerator.nextId());
+                    newItem.setAddedAt(guestItem.getAddedAt());
 
-                // Gestión bidireccional
-                userCart.getItems().add(newItem);
-                newItem.setCart(userCart);
+                    // Gestión bidireccional
+                    userCart.attachItem(newItem);
+                }
             }
-        }
 
-        // 5. Marcar carrito invitado como ABANDONED
-        guestCart.setStatus(CartStatus.ABANDONED);
-        touchCart(guestCart);
+            // 5. Marcar carrito invitado como ABANDONED
+            changeStatus(guestCart, CartStatus.ABANDONED);
+            unindexGuestCart(guestCart);
+            touchCart(guestCart);
+
+            // 6. Actualizar carrito de usuario
+            touchCart(userCart);
 
-        // 6. Actualizar carrito de usuario
-        touchCart(userCart);
+            // TODO Etapa 06: cartRepository.save(guestCart);
+            // TODO Etapa 06: cartRepository.save(userCart);
 
-        // TODO Etapa 06: cartRepository.save(guestCart);
-        // TODO Etapa 06: cartRepository.save(userCart);
+            return cartMapper.toDTO(userCart);
+        });
+    }
+
+    /**
+     * Marca como ABANDONED los carritos OPEN sin actividad durante
+     * AppConfig.getCartAbandonmentThresholdHours().
+     *
+     * Los carritos se programan en una rueda de tiempo jerárquica al crearse, con
+     * vencimiento updatedAt + umbral. Las escrituras no tocan la rueda: al vencer,
+     * se revisa el updatedAt real y, si hubo actividad, se re-programa. Así el
+     * costo es proporcional a los carritos vencidos, no al total de carritos.
+     *
+     * Invocado periódicamente por CartAbandonmentSweeper.
+     *
+     * @return Cantidad de carritos marcados como ABANDONED
+     */
+    public int abandonStaleCarts() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minusHours(AppConfig.getCartAbandonmentThresholdHours());
+        int abandoned = 0;
+
+        for (Cart cart : abandonmentWheel.advance(DateTimeUtils.toEpochMillis(now))) {
+            boolean wasAbandoned = cartLocks.withLock(cart.getCartId(), () -> {
+                if (!cart.isOpen()) {
+                    return false; // Ya convertido o abandonado: se descarta
+                }
+                if (cart.getUpdatedAt().isAfter(cutoff)) {
+                    scheduleAbandonmentCheck(cart); // Hubo actividad: re-programar
+                    return false;
+                }
 
-        return cartMapper.toDTO(userCart);
+                changeStatus(cart, CartStatus.ABANDONED);
+                if (cart.isGuestCart()) {
+                    unindexGuestCart(cart);
+                }
+                // TODO Etapa 06: cartRepository.save(cart);
+                return true;
+            });
+            if (wasAbandoned) {
+                abandoned++;
+            }
+        }
+        return abandoned;
     }
 
     /**
@@ -432,9 +602,70 @@ public class CartService {
      * @param cartId ID del carrito
      */
     public void touchCartById(Long cartId) {
-        Cart cart = findCartEntityOrThrow(cartId);
-        touchCart(cart);
-        // TODO Etapa 06: cartRepository.save(cart);
+        cartLocks.withLock(cartId, () -> {
+            Cart cart = findCartEntityOrThrow(cartId);
+            touchCart(cart);
+            // TODO Etapa 06: cartRepository.save(cart);
+            return null;
+        });
+    }
+
+    /**
+     * Marca el carrito como CONVERTED (checkout completado).
+     * Método interno para uso de OrderService; mantiene el índice de carritos OPEN.
+     *
+     * @param cart Carrito convertido en orden
+     */
+    public void markAsConverted(Cart cart) {
+        cartLocks.withLock(cart.getCartId(), () -> {
+            changeStatus(cart, CartStatus.CONVERTED);
+            touchCart(cart);
+            return null;
+        });
+    }
+
+    /**
+     * Ejecuta la acción con el lock del carrito adquirido.
+     * Permite a OrderService hacer el checkout sin que el carrito cambie en medio.
+     *
+     * @param cartId ID del carrito
+     * @param action Acción a ejecutar
+     * @return Resultado de la acción
+     */
+    public <T> T withCartLock(Long cartId, Supplier<T> action) {
+        return cartLocks.withLock(cartId, action);
+    }
+
+    /**
+     * Toma las reservas de stock del carrito para el checkout.
+     * Método interno para uso de OrderService (con el lock del carrito adquirido).
+     *
+     * @param cart Carrito en checkout
+     * @return Mapa productId → unidades ya retenidas (descontadas del stock)
+     */
+    public Map<Long, Integer> claimStockHolds(Cart cart) {
+        return stockReservations.claimAll(cart.getCartId());
+    }
+
+    /**
+     * Restaura las reservas tomadas con claimStockHolds() si el checkout falla.
+     *
+     * @param cart Carrito en checkout
+     * @param claimed Resultado de claimStockHolds()
+     */
+    public void restoreStockHolds(Cart cart, Map<Long, Integer> claimed) {
+        stockReservations.restore(cart.getCartId(), claimed);
+    }
+
+    /**
+     * Devuelve al stock las reservas de items vencidas (AppConfig.getStockHoldTimeoutMinutes()).
+     * Los items siguen en el carrito; el checkout volverá a asignar su stock.
+     * Invocado periódicamente por CartAbandonmentSweeper.
+     *
+     * @return Cantidad de reservas liberadas
+     */
+    public int releaseExpiredStockHolds() {
+        return stockReservations.releaseExpired();
     }
 
     /**
@@ -446,63 +677,138 @@ public class CartService {
      */
     public Cart findCartEntityOrThrow(Long cartId) {
         // TODO Etapa 06: return cartRepository.findById(cartId)
-        return cartsInMemory.stream()
-                .filter(c -> c.getCartId().equals(cartId))
-                .findFirst()
-                .orElseThrow(() -> new EntityNotFoundException("Cart", cartId));
+        return cartsInMemory.findByIdOrThrow(cartId);
     }
 
     // Métodos privados auxiliares
 
     /**
      * Busca carrito OPEN del usuario o crea uno nuevo si no existe.
+     *
+     * El carrito se crea y guarda fuera del índice y luego se publica con
+     * putIfAbsent (la función de computeIfAbsent debe ser corta y sin efectos
+     * secundarios). Si otro hilo publicó primero, se deshace el guardado y se
+     * retorna el carrito ganador; la revisión de abandono solo se programa para
+     * el carrito publicado.
      */
     private Cart findOrCreateOpenCartForUser(Long userId) {
         User user = userService.findUserEntityOrThrow(userId);
 
-        // Buscar carrito OPEN existente
-        Cart cart = cartsInMemory.stream()
-                .filter(c -> c.getUser() != null &&
-                           c.getUser().getUserId().equals(userId) &&
-                           c.getStatus() == CartStatus.OPEN)
-                .findFirst()
-                .orElse(null);
-
-        if (cart == null) {
-            // Crear nuevo carrito
-            cart = new Cart();
-            cart.setCartId(generateNextId());
-            cart.setUser(user);
-            cart.setStatus(CartStatus.OPEN);
-            cart.setCreatedAt(LocalDateTime.now());
-            cart.setUpdatedAt(LocalDateTime.now());
-
-            cartsInMemory.add(cart);
+        // Buscar carrito OPEN existente (O(1) por índice)
+        Cart existing = openCartsByUser.get(userId);
+        if (existing != null) {
+            return existing;
+        }
+
+        // Crear nuevo carrito
+        Cart cart = new Cart();
+        cart.setCartId(idGenerator.nextId());
+        cart.setUser(user);
+        cart.setStatus(CartStatus.OPEN);
+        cart.setCreatedAt(LocalDateTime.now());
+        cart.setUpdatedAt(LocalDateTime.now());
+
+        // Guardar antes de publicar: quien lo encuentre en el índice puede buscarlo por ID
+        // TODO Etapa 06: cartRepository.save(cart);
+        cartsInMemory.save(cart);
+        Cart winner = openCartsByUser.putIfAbsent(userId, cart);
+        if (winner != null) {
+            cartsInMemory.delete(cart); // Otro hilo creó el carrito OPEN primero
+            return winner;
         }
 
+        scheduleAbandonmentCheck(cart);
         return cart;
     }
 
     /**
-     * Actualiza el timestamp updatedAt del carrito.
+     * Programa la revisión de abandono del carrito en updatedAt + umbral de inactividad.
      */
-    private void touchCart(Cart cart) {
-        cart.setUpdatedAt(LocalDateTime.now());
+    private void scheduleAbandonmentCheck(Cart cart) {
+        LocalDateTime deadline = cart.getUpdatedAt()
+                .plusHours(AppConfig.getCartAbandonmentThresholdHours());
+        abandonmentWheel.schedule(cart, DateTimeUtils.toEpochMillis(deadline));
+    }
+
+    /**
+     * Registra el carrito de invitado en los índices por sesión hasta que la sesión expire.
+     */
+    private void indexGuestCart(Cart cart) {
+        UserSession session = cart.getSession();
+        guestCartsBySessionId.put(session.getSessionId(), cart, session.getExpiresAt());
+        if (session.getSessionToken() != null) {
+            guestCartsBySessionToken.put(session.getSessionToken(), cart, session.getExpiresAt());
+        }
+    }
+
+    /**
+     * Elimina el carrito de invitado de los índices por sesión (ej: tras el merge).
+     */
+    private void unindexGuestCart(Cart cart) {
+        UserSession session = cart.getSession();
+        if (session == null) {
+            return;
+        }
+        guestCartsBySessionId.remove(session.getSessionId());
+        guestCartsBySessionToken.remove(session.getSessionToken());
+    }
+
+    /**
+     * Listener de expiración de sesión: un carrito de invitado cuya sesión expiró
+     * ya no puede recuperarse, por lo que se marca como ABANDONED.
+     */
+    private void abandonExpiredGuestCart(Cart cart) {
+        cartLocks.withLock(cart.getCartId(), () -> {
+            if (cart.isOpen() && cart.isGuestCart()) {
+                changeStatus(cart, CartStatus.ABANDONED);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Cambia el estado del carrito manteniendo el índice de carritos OPEN por usuario
+     * y liberando las reservas de stock de los carritos abandonados.
+     * Toda transición de estado debe pasar por aquí.
+     */
+    private void changeStatus(Cart cart, CartStatus newStatus) {
+        CartStatus previous = cart.getStatus();
+        cart.setStatus(newStatus);
+
+        if (newStatus == CartStatus.ABANDONED) {
+            stockReservations.releaseAll(cart.getCartId()); // Devolver stock retenido
+        }
+
+        if (cart.getUser() == null) {
+            return; // Carritos de invitado no se indexan por usuario
+        }
+        Long userId = cart.getUser().getUserId();
+        if (previous == CartStatus.OPEN && newStatus != CartStatus.OPEN) {
+            openCartsByUser.remove(userId, cart);
+        } else if (newStatus == CartStatus.OPEN) {
+            openCartsByUser.putIfAbsent(userId, cart);
+        }
     }
 
-    // Métodos auxiliares para simular auto-increment
-    private Long generateNextId() {
-        return cartsInMemory.stream()
-                .mapToLong(Cart::getCartId)
-                .max()
-                .orElse(0L) + 1;
+    /**
+     * Busca la línea de un producto en el carrito o lanza excepción.
+     */
+    private CartItem findItemOrThrow(Cart cart, Long productId) {
+        CartItem item = cart.findItemByProductId(productId);
+        if (item == null) {
+            throw new ValidationException("Product not found in cart");
+        }
+        return item;
     }
 
-    private Long generateNextCartItemId() {
-        return cartsInMemory.stream()
-                .flatMap(cart -> cart.getItems().stream())
-                .mapToLong(CartItem::getCartItemId)
-                .max()
-                .orElse(0L) + 1;
+    /**
+     * Actualiza el timestamp updatedAt del carrito.
+     * En modo verificación, compara los totales incrementales con un recálculo.
+     */
+    private void touchCart(Cart cart) {
+        cart.setUpdatedAt(LocalDateTime.now());
+        if (AppConfig.isCartTotalsVerificationEnabled()) {
+            cart.verifyTotals();
+        }
     }
 }
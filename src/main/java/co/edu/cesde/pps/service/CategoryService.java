@@ -1,16 +1,36 @@
 package co.edu.cesde.pps.service;
 
+import co.edu.cesde.pps.dto.BreadcrumbDTO;
 import co.edu.cesde.pps.dto.CategoryDTO;
+import co.edu.cesde.pps.dto.CategoryTreeDTO;
+import co.edu.cesde.pps.dto.PageDTO;
 import co.edu.cesde.pps.exception.DuplicateEntityException;
 import co.edu.cesde.pps.exception.EntityNotFoundException;
 import co.edu.cesde.pps.exception.ValidationException;
 import co.edu.cesde.pps.mapper.CategoryMapper;
 import co.edu.cesde.pps.model.Category;
+import co.edu.cesde.pps.repository.InMemoryRepository;
+import co.edu.cesde.pps.repository.TreeIntervalIndex;
+import co.edu.cesde.pps.repository.UniqueIndex;
+import co.edu.cesde.pps.util.Pagination;
 import co.edu.cesde.pps.util.StringUtils;
 import co.edu.cesde.pps.util.ValidationUtils;
+import co.edu.cesde.pps.util.IdGenerator;
+import co.edu.cesde.pps.util.SequenceIdGenerator;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -19,11 +39,33 @@ import java.util.stream.Collectors;
  * Responsabilidades:
  * - CRUD de categorías
  * - Gestión de jerarquía (addSubcategory, removeSubcategory)
- * - Construcción de árbol de categorías
+ * - Construcción de árbol de categorías (snapshot inmutable versionado)
  * - Validación de slug único
  * - Validación de relaciones padre-hijo
  * - Conversión Entity <-> DTO
  *
+ * Árbol de categorías: el menú de navegación lo consulta en cada página, pero
+ * cambia muy poco. Se guarda un CategoryTreeDTO inmutable y cada operación que
+ * modifica la jerarquía (crear, actualizar, agregar/remover subcategoría,
+ * eliminar) incrementa la versión. El árbol se reconstruye en la primera
+ * lectura posterior al cambio; el resto de lecturas solo comparan la versión
+ * y retornan el snapshot sin locks. La versión sirve como ETag HTTP.
+ *
+ * Los conteos de productos cambian con cada producto, no con la jerarquía:
+ * tienen su propia versión (countsVersion), por lo que getCategoryTreeVersion()
+ * no cambia con ellos. El snapshot publicado nunca se modifica: la primera
+ * lectura posterior a un cambio de conteos publica un snapshot nuevo con la
+ * misma versión de jerarquía.
+ *
+ * Subárboles: hierarchyIndex asigna a cada categoría un intervalo de recorrido
+ * Euler (TreeIntervalIndex), mantenido en las mismas operaciones. "X pertenece al
+ * subárbol de C" es una comparación de rango, sin recorrer la jerarquía. También
+ * resuelve la detección de ciclos al mover una categoría.
+ *
+ * Breadcrumbs: la ruta de ancestros de cada categoría se cachea (ancestorPaths)
+ * y se arma a partir de la ruta cacheada del padre. Solo se invalida el
+ * subárbol afectado: el que se mueve o el de la categoría renombrada.
+ *
  * NOTA: En Etapa 06 se agregará:
  * - @Service annotation
  * - @Transactional
@@ -34,11 +76,31 @@ public class CategoryService {
 
     private final CategoryMapper categoryMapper;
     // TODO Etapa 06: private final CategoryRepository categoryRepository;
-    private final List<Category> categoriesInMemory;
+    private final InMemoryRepository<Category, Long> categoriesInMemory;
+    private final IdGenerator idGenerator;
+    private final UniqueIndex<Category> slugIndex;
+    private final TreeIntervalIndex<Long> hierarchyIndex;
+    private final Map<Long, List<BreadcrumbDTO>> ancestorPaths;
+
+    // Cambios de jerarquía y reconstrucción del árbol se serializan con este lock
+    private final Object hierarchyLock = new Object();
+    // Conteos de productos: ajustes concurrentes con read lock; cambiar el padre de una
+    // categoría o copiar los conteos al snapshot, con write lock (siempre dentro de hierarchyLock)
+    private final StampedLock countsLock = new StampedLock();
+    private final AtomicLong treeVersion;
+    private final AtomicLong countsVersion;
+    private volatile CategoryTreeDTO treeSnapshot;
 
     public CategoryService() {
         this.categoryMapper = new CategoryMapper();
-        this.categoriesInMemory = new ArrayList<>();
+        this.categoriesInMemory = new InMemoryRepository<>("Category", Category::getCategoryId);
+        this.idGenerator = new SequenceIdGenerator("Category");
+        this.slugIndex = new UniqueIndex<>("Category", "slug");
+        this.hierarchyIndex = new TreeIntervalIndex<>("Category");
+        this.ancestorPaths = new ConcurrentHashMap<>();
+        // Inicia en el instante de arranque: un ETag no se repite tras reiniciar
+        this.treeVersion = new AtomicLong(System.currentTimeMillis());
+        this.countsVersion = new AtomicLong();
     }
 
     /**
@@ -65,17 +127,28 @@ public class CategoryService {
 
         // Crear categoría
         Category category = categoryMapper.toEntity(categoryDTO);
-        category.setCategoryId(generateNextId());
+        category.setCategoryId(idGenerator.nextId());
         category.setSlug(slug);
 
-        // Asignar parent si existe
-        if (categoryDTO.getParentId() != null) {
-            Category parent = findCategoryEntityOrThrow(categoryDTO.getParentId());
-            category.setParent(parent);
-        }
+        synchronized (hierarchyLock) {
+            Category parent = categoryDTO.getParentId() != null
+                ? findCategoryEntityOrThrow(categoryDTO.getParentId())
+                : null;
+
+            // Reservar el slug antes de enlazar: si otro hilo lo tomó, la jerarquía queda intacta
+            slugIndex.put(slug, category);
 
-        // TODO Etapa 06: categoryRepository.save(category);
-        categoriesInMemory.add(category);
+            // Asignar parent si existe (gestión bidireccional)
+            if (parent != null) {
+                category.setParent(parent);
+                parent.getSubcategories().add(category);
+            }
+
+            // TODO Etapa 06: categoryRepository.save(category);
+            categoriesInMemory.save(category);
+            hierarchyIndex.addLeaf(category.getCategoryId(), categoryDTO.getParentId());
+            bumpTreeVersion();
+        }
 
         return categoryMapper.toDTO(category);
     }
@@ -102,36 +175,61 @@ public class CategoryService {
             newSlug = StringUtils.slugify(categoryDTO.getName());
         }
 
-        // Verificar slug único si cambió
-        if (!category.getSlug().equals(newSlug) && existsBySlug(newSlug)) {
+        // Verificar slug único si cambió (ignorando la propia categoría)
+        if (slugIndex.isTakenByOther(newSlug, category)) {
             throw new DuplicateEntityException("Category", "slug", newSlug);
         }
 
-        // Actualizar campos
-        category.setName(categoryDTO.getName());
-        category.setSlug(newSlug);
+        // Validar que no sea su propio padre
+        if (categoryId.equals(categoryDTO.getParentId())) {
+            throw new ValidationException("Category cannot be its own parent");
+        }
+
+        synchronized (hierarchyLock) {
+            // Validar nuevo parent antes de modificar la entidad
+            Category newParent = null;
+            if (categoryDTO.getParentId() != null) {
+                newParent = findCategoryEntityOrThrow(categoryDTO.getParentId());
 
-        // Actualizar parent si cambió
-        if (categoryDTO.getParentId() != null) {
-            // Validar que no sea su propio padre
-            if (categoryDTO.getParentId().equals(categoryId)) {
-                throw new ValidationException("Category cannot be its own parent");
+                // Validar que no cree ciclo: el nuevo padre no puede estar en su subárbol
+                if (hierarchyIndex.isInSubtree(categoryId, newParent.getCategoryId())) {
+                    throw new ValidationException("Cannot create cycle in category hierarchy");
+                }
             }
 
-            Category newParent = findCategoryEntityOrThrow(categoryDTO.getParentId());
+            // Mover entrada del índice de slug antes de cualquier otro cambio: si otro
+            // hilo tomó el slug, la categoría y las rutas cacheadas quedan intactas
+            String oldSlug = category.getSlug();
+            slugIndex.move(oldSlug, newSlug, category);
+
+            // Rutas cacheadas del subárbol: cambian si se mueve o se renombra
+            Category oldParent = category.getParent();
+            if (!Objects.equals(oldParent, newParent) ||
+                !Objects.equals(category.getName(), categoryDTO.getName()) ||
+                !Objects.equals(oldSlug, newSlug)) {
+                invalidateAncestorPaths(categoryId);
+            }
 
-            // Validar que no cree ciclo
-            if (wouldCreateCycle(category, newParent)) {
-                throw new ValidationException("Cannot create cycle in category hierarchy");
+            // Actualizar campos
+            category.setName(categoryDTO.getName());
+            category.setSlug(newSlug);
+
+            // Actualizar parent (null convierte en raíz), manteniendo las subcategorías del padre
+            if (!Objects.equals(oldParent, newParent)) {
+                if (oldParent != null) {
+                    oldParent.getSubcategories().remove(category);
+                }
+                if (newParent != null) {
+                    newParent.getSubcategories().add(category);
+                }
+                reparent(category, oldParent, newParent);
+                hierarchyIndex.move(categoryId, newParent != null ? newParent.getCategoryId() : null);
             }
 
-            category.setParent(newParent);
-        } else {
-            category.setParent(null); // Convertir en raíz
+            // TODO Etapa 06: categoryRepository.save(category);
+            bumpTreeVersion();
         }
 
-        // TODO Etapa 06: categoryRepository.save(category);
-
         return categoryMapper.toDTO(category);
     }
 
@@ -145,18 +243,28 @@ public class CategoryService {
     public void deleteCategory(Long categoryId) {
         Category category = findCategoryEntityOrThrow(categoryId);
 
-        // Validar que no tenga subcategorías
-        if (category.getSubcategories() != null && !category.getSubcategories().isEmpty()) {
-            throw new ValidationException("Cannot delete category with subcategories");
-        }
+        synchronized (hierarchyLock) {
+            // Validar que no tenga productos (conteo mantenido por ProductService)
+            if (category.getProductsCount() > 0) {
+                throw new ValidationException("Cannot delete category with products");
+            }
 
-        // Validar que no tenga productos
-        if (category.getProducts() != null && !category.getProducts().isEmpty()) {
-            throw new ValidationException("Cannot delete category with products");
-        }
+            // Validar que no tenga subcategorías (dentro del lock: no se agregan mientras tanto)
+            if (!category.getSubcategories().isEmpty()) {
+                throw new ValidationException("Cannot delete category with subcategories");
+            }
+
+            if (category.getParent() != null) {
+                category.getParent().getSubcategories().remove(category);
+            }
 
-        // TODO Etapa 06: categoryRepository.delete(category);
-        categoriesInMemory.remove(category);
+            // TODO Etapa 06: categoryRepository.delete(category);
+            slugIndex.remove(category.getSlug(), category);
+            categoriesInMemory.delete(category);
+            hierarchyIndex.remove(categoryId);
+            ancestorPaths.remove(categoryId);
+            bumpTreeVersion();
+        }
     }
 
     /**
@@ -180,9 +288,7 @@ public class CategoryService {
      */
     public CategoryDTO findBySlug(String slug) {
         // TODO Etapa 06: Category category = categoryRepository.findBySlug(slug)
-        Category category = categoriesInMemory.stream()
-                .filter(c -> c.getSlug().equalsIgnoreCase(slug))
-                .findFirst()
+        Category category = slugIndex.find(slug)
                 .orElseThrow(() -> new EntityNotFoundException("Category with slug: " + slug));
 
         return categoryMapper.toDTO(category);
@@ -195,7 +301,48 @@ public class CategoryService {
      */
     public List<CategoryDTO> findAllCategories() {
         // TODO Etapa 06: List<Category> categories = categoryRepository.findAll();
-        return categoryMapper.toDTOList(categoriesInMemory);
+        return categoryMapper.toDTOList(categoriesInMemory.findAll());
+    }
+
+    /**
+     * Lista una página de categorías (paginación por cursor).
+     *
+     * @param cursor Cursor de la página anterior (null = primera página)
+     * @param pageSize Tamaño de página (null = AppConfig.getDefaultPageSize())
+     * @return Página de CategoryDTO
+     * @throws ValidationException si el cursor es inválido
+     */
+    public PageDTO<CategoryDTO> findAllCategories(String cursor, Integer pageSize) {
+        return findCategoryPage(cursor, pageSize, category -> true);
+    }
+
+    /**
+     * Lista una página de categorías raíz (paginación por cursor).
+     *
+     * @param cursor Cursor de la página anterior (null = primera página)
+     * @param pageSize Tamaño de página (null = AppConfig.getDefaultPageSize())
+     * @return Página de CategoryDTO
+     * @throws ValidationException si el cursor es inválido
+     */
+    public PageDTO<CategoryDTO> findRootCategories(String cursor, Integer pageSize) {
+        return findCategoryPage(cursor, pageSize, Category::isRootCategory);
+    }
+
+    /**
+     * Lista una página de subcategorías de una categoría (paginación por cursor).
+     *
+     * @param parentId ID de la categoría padre
+     * @param cursor Cursor de la página anterior (null = primera página)
+     * @param pageSize Tamaño de página (null = AppConfig.getDefaultPageSize())
+     * @return Página de CategoryDTO
+     * @throws EntityNotFoundException si la categoría padre no existe
+     * @throws ValidationException si el cursor es inválido
+     */
+    public PageDTO<CategoryDTO> findSubcategories(Long parentId, String cursor, Integer pageSize) {
+        findCategoryEntityOrThrow(parentId); // Validar que existe
+
+        return findCategoryPage(cursor, pageSize, c -> c.getParent() != null &&
+                                                      c.getParent().getCategoryId().equals(parentId));
     }
 
     /**
@@ -257,15 +404,22 @@ public class CategoryService {
 
         // Crear subcategoría
         Category subcategory = categoryMapper.toEntity(subcategoryDTO);
-        subcategory.setCategoryId(generateNextId());
+        subcategory.setCategoryId(idGenerator.nextId());
         subcategory.setSlug(slug);
 
-        // Gestión bidireccional
-        parent.getSubcategories().add(subcategory);  // Agregar a colección
-        subcategory.setParent(parent);                // Establecer referencia
+        synchronized (hierarchyLock) {
+            // Reservar el slug antes de enlazar: si otro hilo lo tomó, la jerarquía queda intacta
+            slugIndex.put(slug, subcategory);
 
-        // TODO Etapa 06: categoryRepository.save(subcategory);
-        categoriesInMemory.add(subcategory);
+            // Gestión bidireccional
+            parent.getSubcategories().add(subcategory);  // Agregar a colección
+            subcategory.setParent(parent);                // Establecer referencia
+
+            // TODO Etapa 06: categoryRepository.save(subcategory);
+            categoriesInMemory.save(subcategory);
+            hierarchyIndex.addLeaf(subcategory.getCategoryId(), parentId);
+            bumpTreeVersion();
+        }
 
         return categoryMapper.toDTO(subcategory);
     }
@@ -282,42 +436,155 @@ public class CategoryService {
         Category parent = findCategoryEntityOrThrow(parentId);
         Category subcategory = findCategoryEntityOrThrow(subcategoryId);
 
-        // Validar que la subcategoría pertenezca al padre
-        if (subcategory.getParent() == null ||
-            !subcategory.getParent().getCategoryId().equals(parentId)) {
-            throw new ValidationException("Category is not a subcategory of specified parent");
-        }
+        synchronized (hierarchyLock) {
+            // Validar que la subcategoría pertenezca al padre
+            if (subcategory.getParent() == null ||
+                !subcategory.getParent().getCategoryId().equals(parentId)) {
+                throw new ValidationException("Category is not a subcategory of specified parent");
+            }
 
-        // Gestión bidireccional
-        parent.getSubcategories().remove(subcategory);  // Remover de colección
-        subcategory.setParent(null);                     // Remover referencia (convertir en raíz)
+            // Gestión bidireccional
+            parent.getSubcategories().remove(subcategory);  // Remover de colección
+            reparent(subcategory, parent, null);             // Remover referencia (convertir en raíz)
+            invalidateAncestorPaths(subcategoryId);
+            hierarchyIndex.move(subcategoryId, null);
 
-        // TODO Etapa 06: categoryRepository.save(subcategory);
+            // TODO Etapa 06: categoryRepository.save(subcategory);
+            bumpTreeVersion();
+        }
     }
 
     /**
-     * Construye árbol de categorías completo desde una categoría raíz.
+     * Obtiene el árbol de categorías desde una categoría (nodo del snapshot).
      *
      * @param categoryId ID de la categoría raíz
-     * @return CategoryDTO con subcategorías anidadas
+     * @return CategoryDTO con subcategorías anidadas (solo lectura, compartido)
      * @throws EntityNotFoundException si no existe
      */
     public CategoryDTO buildCategoryTree(Long categoryId) {
-        Category category = findCategoryEntityOrThrow(categoryId);
-        return categoryMapper.toDTOWithHierarchy(category);
+        CategoryDTO node = getCategoryTree().findNode(categoryId);
+        if (node == null) {
+            throw new EntityNotFoundException("Category", categoryId);
+        }
+        return node;
     }
 
     /**
-     * Construye árbol completo de todas las categorías raíz.
+     * Obtiene el árbol completo de todas las categorías raíz (del snapshot).
      *
-     * @return Lista de CategoryDTO con jerarquías completas
+     * @return Lista de CategoryDTO con jerarquías completas (solo lectura, compartida)
      */
     public List<CategoryDTO> buildFullCategoryTree() {
-        List<Category> rootCategories = categoriesInMemory.stream()
-                .filter(Category::isRootCategory)
-                .collect(Collectors.toList());
+        return getCategoryTree().getRoots();
+    }
+
+    /**
+     * Obtiene el snapshot inmutable del árbol de categorías.
+     *
+     * Sin cambios desde la última lectura: retorna el mismo snapshot sin locks.
+     * Tras un cambio de jerarquía o de conteos, la primera lectura construye y
+     * publica un snapshot nuevo (una sola vez, aunque varios lectores lleguen a
+     * la vez); quien ya tenía el anterior lo sigue viendo sin cambios.
+     *
+     * @return Árbol completo con sus versiones (usar getETag() en respuestas HTTP)
+     */
+    public CategoryTreeDTO getCategoryTree() {
+        CategoryTreeDTO snapshot = treeSnapshot;
+        if (snapshot != null && snapshot.getVersion() == treeVersion.get()
+                && snapshot.getCountsVersion() == countsVersion.get()) {
+            return snapshot;
+        }
 
-        return categoryMapper.toDTOListWithHierarchy(rootCategories);
+        synchronized (hierarchyLock) {
+            long version = treeVersion.get();
+            long counts = countsVersion.get();
+            snapshot = treeSnapshot;
+            if (snapshot == null || snapshot.getVersion() != version || snapshot.getCountsVersion() != counts) {
+                // TODO Etapa 06: List<Category> roots = categoryRepository.findByParentIsNull();
+                List<Category> rootCategories = categoriesInMemory.stream()
+                        .filter(Category::isRootCategory)
+                        .collect(Collectors.toList());
+                // Sin ajustes de conteos en curso: el snapshot refleja exactamente countsVersion
+                long stamp = countsLock.writeLock();
+                try {
+                    counts = countsVersion.get();
+                    snapshot = new CategoryTreeDTO(version, counts,
+                        categoryMapper.toDTOListWithHierarchy(rootCategories));
+                } finally {
+                    countsLock.unlockWrite(stamp);
+                }
+                treeSnapshot = snapshot;
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Versión actual de la jerarquía de categorías. Cambia con cada modificación
+     * de la jerarquía, no con los conteos de productos.
+     *
+     * @return Versión actual
+     */
+    public long getCategoryTreeVersion() {
+        return treeVersion.get();
+    }
+
+    /**
+     * ETag actual del árbol de categorías (jerarquía y conteos); permite responder
+     * 304 (If-None-Match) sin construir ni actualizar el árbol.
+     *
+     * @return ETag HTTP, igual a getCategoryTree().getETag()
+     */
+    public String getCategoryTreeETag() {
+        return CategoryTreeDTO.eTagOf(treeVersion.get(), countsVersion.get());
+    }
+
+    /**
+     * Obtiene la ruta de navegación (breadcrumb) de una categoría: sus ancestros
+     * desde la raíz, terminando en la propia categoría.
+     *
+     * Ej: Gaming → [Computadores, Portátiles, Gaming]
+     *
+     * La ruta se sirve desde caché; si no está, se arma desde la ruta cacheada del
+     * ancestro más cercano, sin mapear categorías completas.
+     *
+     * @param categoryId ID de la categoría
+     * @return Ruta desde la raíz (no modificable, compartida)
+     * @throws EntityNotFoundException si no existe
+     */
+    public List<BreadcrumbDTO> getBreadcrumb(Long categoryId) {
+        List<BreadcrumbDTO> path = ancestorPaths.get(categoryId);
+        if (path != null) {
+            return path;
+        }
+
+        // Bajo el lock de jerarquía: una invalidación no puede quedar pisada por una ruta vieja
+        synchronized (hierarchyLock) {
+            Category category = findCategoryEntityOrThrow(categoryId);
+
+            // Subir hasta el primer ancestro con ruta cacheada
+            Deque<Category> uncached = new ArrayDeque<>();
+            List<BreadcrumbDTO> base = List.of();
+            for (Category current = category; current != null; current = current.getParent()) {
+                List<BreadcrumbDTO> cached = ancestorPaths.get(current.getCategoryId());
+                if (cached != null) {
+                    base = cached;
+                    break;
+                }
+                uncached.push(current);
+            }
+
+            // Bajar armando y cacheando la ruta de cada categoría
+            while (!uncached.isEmpty()) {
+                Category current = uncached.pop();
+                List<BreadcrumbDTO> extended = new ArrayList<>(base.size() + 1);
+                extended.addAll(base);
+                extended.add(new BreadcrumbDTO(current.getCategoryId(), current.getName(), current.getSlug()));
+                base = Collections.unmodifiableList(extended);
+                ancestorPaths.put(current.getCategoryId(), base);
+            }
+            return base;
+        }
     }
 
     /**
@@ -328,8 +595,97 @@ public class CategoryService {
      */
     public boolean existsBySlug(String slug) {
         // TODO Etapa 06: return categoryRepository.existsBySlug(slug);
-        return categoriesInMemory.stream()
-                .anyMatch(c -> c.getSlug().equalsIgnoreCase(slug));
+        return slugIndex.containsKey(slug);
+    }
+
+    /**
+     * Obtiene las categorías del subárbol de una categoría (incluida ella misma),
+     * cada una asociada a la subcategoría directa por la que cuelga de la raíz.
+     *
+     * Ej: Electrónica → {Electrónica: Electrónica, Cámaras: Cámaras,
+     *                     Réflex: Cámaras, Audio: Audio}
+     *
+     * Se usa para facetas por subcategoría (ProductService.browseCategory).
+     *
+     * @param categoryId ID de la categoría raíz del subárbol
+     * @return categoryId → ID de la subcategoría directa (la raíz se asocia a sí misma)
+     * @throws EntityNotFoundException si no existe
+     */
+    public Map<Long, Long> findSubtreeBranches(Long categoryId) {
+        findCategoryEntityOrThrow(categoryId); // Validar que existe
+
+        // TODO Etapa 06: consulta recursiva (WITH RECURSIVE) en categoryRepository
+        // Pre-orden: el padre siempre se visita antes que sus hijos
+        Map<Long, Long> branches = new LinkedHashMap<>();
+        hierarchyIndex.forEachInSubtree(categoryId, (id, parentId) ->
+            branches.put(id, parentId == null || parentId.equals(categoryId) ? id : branches.get(parentId)));
+        return branches;
+    }
+
+    /**
+     * Ejecuta una consulta filtrando por el subárbol de una categoría (incluida
+     * ella misma). El filtro recibe un categoryId y responde con una comparación
+     * de intervalos, O(1) sin importar la profundidad de la jerarquía.
+     *
+     * Ej: productos de "Portátiles" incluyendo "Gaming":
+     *   queryCategorySubtree(id, inSubtree -> products.filter(p -> inSubtree.test(p.getCategoryId())))
+     *
+     * La consulta se repite si la jerarquía cambia mientras se ejecuta, por lo que
+     * no debe tener efectos secundarios.
+     *
+     * @param categoryId ID de la categoría raíz del subárbol
+     * @param query Consulta que recibe el filtro por categoryId
+     * @param <R> Tipo de resultado
+     * @return Resultado de la consulta
+     * @throws EntityNotFoundException si no existe
+     */
+    public <R> R queryCategorySubtree(Long categoryId, Function<Predicate<Long>, R> query) {
+        findCategoryEntityOrThrow(categoryId); // Validar que existe
+
+        // TODO Etapa 06: columnas lft/rgt (nested set) en category y filtro BETWEEN en la consulta
+        return hierarchyIndex.querySubtree(categoryId, query);
+    }
+
+    // Página en orden de categoryId: se consultan pageSize + 1 para saber si hay más
+    private PageDTO<CategoryDTO> findCategoryPage(String cursor, Integer requestedSize,
+                                                  Predicate<Category> filter) {
+        int pageSize = Pagination.resolvePageSize(requestedSize);
+        Long afterId = Pagination.decodeIdCursor(cursor);
+
+        // TODO Etapa 06: categoryRepository.findByCategoryIdGreaterThan(afterId, PageRequest.of(0, pageSize + 1))
+        List<Category> fetched = categoriesInMemory.findPageAfter(afterId, pageSize + 1, filter);
+        return Pagination.toPage(fetched, pageSize,
+            c -> Pagination.encodeCursor(c.getCategoryId()), categoryMapper::toDTOList);
+    }
+
+    /**
+     * Aplica el cambio de un producto a los conteos de su categoría y de todos sus
+     * ancestros (O(profundidad), sin recorrer productos).
+     * Método interno para uso de ProductService.
+     *
+     * Ej: un producto activo que se agota → adjustProductCounts(categoría, 0, 0, -1)
+     *
+     * @param category Categoría del producto
+     * @param total Delta de productos totales
+     * @param active Delta de productos activos
+     * @param inStock Delta de productos activos con stock
+     */
+    public void adjustProductCounts(Category category, long total, long active, long inStock) {
+        if (total == 0 && active == 0 && inStock == 0) {
+            return;
+        }
+        // Read lock: los ajustes corren en paralelo entre sí (contadores atómicos),
+        // pero no durante un cambio de padre, que desbalancearía los ancestros
+        long stamp = countsLock.readLock();
+        try {
+            category.addDirectProductCounts(total, active, inStock);
+            for (Category ancestor = category.getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+                ancestor.addSubtreeProductCounts(total, active, inStock);
+            }
+            countsVersion.incrementAndGet(); // Solo conteos: la versión de jerarquía no cambia
+        } finally {
+            countsLock.unlockRead(stamp);
+        }
     }
 
     /**
@@ -342,33 +698,38 @@ public class CategoryService {
      */
     public Category findCategoryEntityOrThrow(Long categoryId) {
         // TODO Etapa 06: return categoryRepository.findById(categoryId)
-        return categoriesInMemory.stream()
-                .filter(c -> c.getCategoryId().equals(categoryId))
-                .findFirst()
-                .orElseThrow(() -> new EntityNotFoundException("Category", categoryId));
+        return categoriesInMemory.findByIdOrThrow(categoryId);
     }
 
     // Métodos privados auxiliares
 
-    /**
-     * Verifica si asignar newParent a category crearía un ciclo.
-     */
-    private boolean wouldCreateCycle(Category category, Category newParent) {
-        Category current = newParent;
-        while (current != null) {
-            if (current.getCategoryId().equals(category.getCategoryId())) {
-                return true; // Ciclo detectado
+    // Invocar dentro de hierarchyLock, después de modificar la jerarquía
+    private void bumpTreeVersion() {
+        treeVersion.incrementAndGet();
+    }
+
+    // Invocar dentro de hierarchyLock: cambia el padre y traslada los conteos del
+    // subárbol movido entre ancestros, sin ajustes de conteos concurrentes
+    private void reparent(Category category, Category oldParent, Category newParent) {
+        long stamp = countsLock.writeLock();
+        try {
+            long total = category.getSubtreeProductsCount();
+            long active = category.getSubtreeActiveProductsCount();
+            long inStock = category.getSubtreeInStockProductsCount();
+            for (Category ancestor = oldParent; ancestor != null; ancestor = ancestor.getParent()) {
+                ancestor.addSubtreeProductCounts(-total, -active, -inStock);
+            }
+            for (Category ancestor = newParent; ancestor != null; ancestor = ancestor.getParent()) {
+                ancestor.addSubtreeProductCounts(total, active, inStock);
             }
-            current = current.getParent();
+            category.setParent(newParent);
+        } finally {
+            countsLock.unlockWrite(stamp);
         }
-        return false;
     }
 
-    // Método auxiliar para simular auto-increment
-    private Long generateNextId() {
-        return categoriesInMemory.stream()
-                .mapToLong(Category::getCategoryId)
-                .max()
-                .orElse(0L) + 1;
+    // Invocar dentro de hierarchyLock, antes de mover o renombrar la categoría
+    private void invalidateAncestorPaths(Long categoryId) {
+        hierarchyIndex.forEachInSubtree(categoryId, (id, parentId) -> ancestorPaths.remove(id));
     }
 }
@@ -1,22 +1,33 @@
 package co.edu.cesde.pps.service;
 
 import co.edu.cesde.pps.dto.OrderDTO;
+import co.edu.cesde.pps.dto.PageDTO;
 import co.edu.cesde.pps.enums.CartStatus;
+import co.edu.cesde.pps.exception.AdmissionRejectedException;
 import co.edu.cesde.pps.exception.EntityNotFoundException;
 import co.edu.cesde.pps.exception.InsufficientStockException;
 import co.edu.cesde.pps.exception.InvalidCartStateException;
 import co.edu.cesde.pps.exception.ValidationException;
 import co.edu.cesde.pps.mapper.OrderMapper;
 import co.edu.cesde.pps.model.*;
+import co.edu.cesde.pps.repository.InMemoryRepository;
+import co.edu.cesde.pps.repository.SortedIndex;
+import co.edu.cesde.pps.repository.UniqueIndex;
 import co.edu.cesde.pps.util.CalculationUtils;
+import co.edu.cesde.pps.util.IdGenerator;
+import co.edu.cesde.pps.util.IdGenerators;
+import co.edu.cesde.pps.util.OrderNumberGenerator;
+import co.edu.cesde.pps.util.Pagination;
+import co.edu.cesde.pps.util.StripedLock;
+import co.edu.cesde.pps.util.ValidationUtils;
 import co.edu.cesde.pps.config.AppConfig;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -29,7 +40,9 @@ import java.util.stream.Collectors;
  * - Validar direcciones
  * - Actualizar stock de productos
  * - Marcar carrito como CONVERTED
- * - Búsqueda de órdenes
+ * - Búsqueda de órdenes (índices por usuario, estado y fecha de creación),
+ *   con listas completas o paginadas por cursor
+ * - Cambio de estado de órdenes
  * - Conversión Entity <-> DTO
  *
  * NOTA: En Etapa 06 se agregará:
@@ -40,24 +53,65 @@ import java.util.stream.Collectors;
  */
 public class OrderService {
 
+    // IDs de OrderItem se pre-asignan por bloques: es la entidad de mayor volumen
+    private static final int ITEM_ID_BLOCK_SIZE = 64;
+
     private final OrderMapper orderMapper;
     private final UserService userService;
     private final CartService cartService;
     private final AddressService addressService;
     private final ProductService productService;
     // TODO Etapa 06: private final OrderRepository orderRepository;
-    private final List<Order> ordersInMemory;
-    private final Random random;
+    private final InMemoryRepository<Order, Long> ordersInMemory;
+    private final IdGenerator idGenerator;
+    private final IdGenerator itemIdGenerator;
+    private final UniqueIndex<Order> orderNumberIndex;
+    private final OrderNumberGenerator orderNumberGenerator;
+    // Índices secundarios: "mis órdenes", dashboard por estado y reportes por fecha
+    private final SortedIndex<Long, Long, Order> ordersByUser;
+    private final SortedIndex<Long, Long, Order> ordersByStatus;
+    private final SortedIndex<LocalDateTime, Long, Order> ordersByCreatedAt;
+    private final StripedLock orderLocks;
 
     public OrderService(UserService userService, CartService cartService,
                        AddressService addressService, ProductService productService) {
+        this(userService, cartService, addressService, productService,
+            new InMemoryRepository<>("Order", Order::getOrderId));
+    }
+
+    /**
+     * Crea el servicio sobre un almacén de órdenes ya existente (ej: al reiniciar
+     * la aplicación). Reconstruye los índices y continúa los IDs y la secuencia
+     * diaria de números de orden después de lo ya guardado, por lo que no se
+     * reutiliza ningún número.
+     *
+     * TODO Etapa 06: reemplazar orderStore por OrderRepository inyectado y
+     * consultar solo los números del día para este nodo
+     *
+     * @param orderStore Almacén de órdenes compartido
+     */
+    public OrderService(UserService userService, CartService cartService,
+                       AddressService addressService, ProductService productService,
+                       InMemoryRepository<Order, Long> orderStore) {
         this.orderMapper = new OrderMapper();
         this.userService = userService;
         this.cartService = cartService;
         this.addressService = addressService;
         this.productService = productService;
-        this.ordersInMemory = new ArrayList<>();
-        this.random = new Random();
+        this.ordersInMemory = orderStore;
+        this.idGenerator = IdGenerators.forEntity("Order");
+        this.itemIdGenerator = IdGenerators.forEntity("OrderItem", ITEM_ID_BLOCK_SIZE);
+        this.orderNumberIndex = new UniqueIndex<>("Order", "orderNumber");
+        this.orderNumberGenerator = new OrderNumberGenerator(AppConfig.getOrderNumberPrefix(),
+            AppConfig.getNodeId());
+        this.ordersByUser = new SortedIndex<>();
+        this.ordersByStatus = new SortedIndex<>();
+        this.ordersByCreatedAt = new SortedIndex<>();
+        this.orderLocks = new StripedLock(64);
+
+        for (Order order : orderStore.findAll()) {
+            restoreOrder(order);
+        }
     }
 
     /**
@@ -69,11 +123,11 @@ public class OrderService {
      * 1. Validar usuario registrado
      * 2. Validar carrito (OPEN, no vacío, pertenece al usuario)
      * 3. Validar direcciones existen
-     * 4. Verificar disponibilidad y stock de todos los productos
+     * 4. Verificar disponibilidad de todos los productos (activos)
      * 5. Crear orden con número único
      * 6. Copiar items del carrito a la orden (congelar precios)
      * 7. Calcular totales (subtotal, tax, shipping, total)
-     * 8. Actualizar stock de productos
+     * 8. Convertir reservas de stock y descontar el faltante (todo o nada)
      * 9. Marcar carrito como CONVERTED
      *
      * @param userId ID del usuario
@@ -85,9 +139,27 @@ public class OrderService {
      * @throws InvalidCartStateException si el carrito no está OPEN
      * @throws ValidationException si el carrito está vacío o no pertenece al usuario
      * @throws InsufficientStockException si no hay stock suficiente
+     * @throws AdmissionRejectedException si algún producto es hot y su cola rechaza la solicitud
      */
     public OrderDTO checkout(Long userId, Long cartId, Long shippingAddressId,
                             Long billingAddressId) {
+        // Productos hot del carrito: cola de admisión antes de cualquier otra validación
+        Cart cart = cartService.findCartEntityOrThrow(cartId);
+        List<Long> productIds = cart.getItems().stream()
+                .map(item -> item.getProduct().getProductId())
+                .collect(Collectors.toList());
+
+        // El carrito no puede modificarse mientras se convierte en orden
+        return productService.withHotSkuAdmission(productIds, 0,
+            () -> cartService.withCartLock(cartId,
+                () -> checkoutLockedCart(userId, cartId, shippingAddressId, billingAddressId)));
+    }
+
+    /**
+     * Pasos 1-9 del checkout, ejecutados con el lock del carrito adquirido.
+     */
+    private OrderDTO checkoutLockedCart(Long userId, Long cartId, Long shippingAddressId,
+                                        Long billingAddressId) {
         // 1. Validar usuario está registrado
         userService.findUserEntityOrThrow(userId);
 
@@ -122,7 +194,8 @@ public class OrderService {
             throw new ValidationException("Billing address does not belong to user");
         }
 
-        // 4. Verificar disponibilidad y stock de todos los productos
+        // 4. Verificar disponibilidad de todos los productos
+        //    (el stock se asigna en el paso 8, descontando lo ya reservado por el carrito)
         for (CartItem item : cart.getItems()) {
             Product product = item.getProduct();
 
@@ -131,19 +204,13 @@ public class OrderService {
                 throw new ValidationException("Product '" + product.getName() +
                     "' is no longer available");
             }
-
-            // Verificar stock suficiente
-            if (!CalculationUtils.hasEnoughStock(product.getStockQty(), item.getQuantity())) {
-                throw new InsufficientStockException(product.getProductId(),
-                    product.getSku(), item.getQuantity(), product.getStockQty());
-            }
         }
 
         // 5. Crear orden con número único
         String orderNumber = generateOrderNumber();
         Order order = new Order(orderNumber, userId, 1L, // TODO: orderStatusId = PENDING
             shippingAddressId, billingAddressId);
-        order.setOrderId(generateNextId());
+        order.setOrderId(idGenerator.nextId());
 
         // 6. Copiar items del carrito a la orden (congelar precios históricos)
         for (CartItem cartItem : cart.getItems()) {
@@ -153,7 +220,7 @@ public class OrderService {
                 cartItem.getQuantity(),
                 cartItem.getUnitPrice()  // Precio histórico al momento de compra
             );
-            orderItem.setOrderItemId(generateNextOrderItemId());
+            orderItem.setOrderItemId(itemIdGenerator.nextId());
 
             // Calcular lineTotal
             orderItem.setLineTotal(CalculationUtils.calculateOrderItemLineTotal(
@@ -180,19 +247,40 @@ public class OrderService {
         order.setShippingCost(shippingCost);
         order.setTotal(total);
 
-        // 8. Actualizar stock de productos
+        // 8. Convertir las reservas del carrito y descontar solo el faltante
+        //    (reservas vencidas o parciales), todo o nada: si una línea ya no
+        //    tiene stock, no se descuenta ninguna y las reservas se restauran
+        Map<Long, Integer> held = cartService.claimStockHolds(cart);
+        Map<Long, Integer> shortfallByProduct = new HashMap<>();
         for (CartItem item : cart.getItems()) {
-            productService.decreaseStock(item.getProduct().getProductId(),
-                item.getQuantity());
+            Long productId = item.getProduct().getProductId();
+            int shortfall = item.getQuantity() - held.getOrDefault(productId, 0);
+            if (shortfall > 0) {
+                shortfallByProduct.merge(productId, shortfall, Integer::sum);
+            }
+        }
+        try {
+            productService.allocateStock(shortfallByProduct);
+        } catch (RuntimeException ex) {
+            cartService.restoreStockHolds(cart, held);
+            throw ex;
         }
 
         // 9. Marcar carrito como CONVERTED
-        cart.setStatus(CartStatus.CONVERTED);
-        cart.setUpdatedAt(LocalDateTime.now());
+        cartService.markAsConverted(cart);
+
+        // Popularidad para autocompletado: unidades vendidas por producto
+        Map<Long, Integer> soldByProduct = new HashMap<>();
+        for (OrderItem item : order.getItems()) {
+            soldByProduct.merge(item.getProduct().getProductId(), item.getQuantity(), Integer::sum);
+        }
+        productService.recordUnitsSold(soldByProduct);
 
         // TODO Etapa 06: orderRepository.save(order);
         // TODO Etapa 06: cartRepository.save(cart);
-        ordersInMemory.add(order);
+        orderNumberIndex.put(order.getOrderNumber(), order);
+        indexOrder(order); // Antes de save: updateOrderStatus no encuentra la orden aún
+        ordersInMemory.save(order);
 
         return orderMapper.toDTO(order);
     }
@@ -218,9 +306,7 @@ public class OrderService {
      */
     public OrderDTO findByOrderNumber(String orderNumber) {
         // TODO Etapa 06: Order order = orderRepository.findByOrderNumber(orderNumber)
-        Order order = ordersInMemory.stream()
-                .filter(o -> o.getOrderNumber().equalsIgnoreCase(orderNumber))
-                .findFirst()
+        Order order = orderNumberIndex.find(orderNumber)
                 .orElseThrow(() -> new EntityNotFoundException("Order with number: " + orderNumber));
 
         return orderMapper.toDTO(order);
@@ -236,9 +322,7 @@ public class OrderService {
         userService.findUserEntityOrThrow(userId); // Validar que existe
 
         // TODO Etapa 06: List<Order> orders = orderRepository.findByUserId(userId);
-        List<Order> userOrders = ordersInMemory.stream()
-                .filter(o -> o.getUserId().equals(userId))
-                .collect(Collectors.toList());
+        List<Order> userOrders = ordersByUser.findByKey(userId);
 
         return orderMapper.toDTOList(userOrders);
     }
@@ -251,15 +335,14 @@ public class OrderService {
      */
     public List<OrderDTO> findOrdersByStatus(Long statusId) {
         // TODO Etapa 06: List<Order> orders = orderRepository.findByOrderStatusId(statusId);
-        List<Order> statusOrders = ordersInMemory.stream()
-                .filter(o -> o.getOrderStatusId().equals(statusId))
-                .collect(Collectors.toList());
+        List<Order> statusOrders = ordersByStatus.findByKey(statusId);
 
         return orderMapper.toDTOList(statusOrders);
     }
 
     /**
-     * Lista órdenes por rango de fechas.
+     * Lista órdenes por rango de fechas (extremos excluidos), ordenadas por fecha
+     * de creación.
      *
      * @param startDate Fecha inicio
      * @param endDate Fecha fin
@@ -267,29 +350,117 @@ public class OrderService {
      */
     public List<OrderDTO> findOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
         // TODO Etapa 06: List<Order> orders = orderRepository.findByCreatedAtBetween(start, end);
-        List<Order> rangeOrders = ordersInMemory.stream()
-                .filter(o -> o.getCreatedAt().isAfter(startDate) &&
-                           o.getCreatedAt().isBefore(endDate))
-                .collect(Collectors.toList());
+        List<Order> rangeOrders = ordersByCreatedAt.findInRange(startDate, false, endDate, false);
 
         return orderMapper.toDTOList(rangeOrders);
     }
 
     /**
-     * Genera un número de orden único.
+     * Lista una página de órdenes de un usuario (paginación por cursor).
+     *
+     * @param userId ID del usuario
+     * @param cursor Cursor de la página anterior (null = primera página)
+     * @param pageSize Tamaño de página (null = AppConfig.getDefaultPageSize())
+     * @return Página de OrderDTO, en orden de orderId
+     * @throws EntityNotFoundException si el usuario no existe
+     * @throws ValidationException si el cursor es inválido
+     */
+    public PageDTO<OrderDTO> findOrdersByUser(Long userId, String cursor, Integer pageSize) {
+        userService.findUserEntityOrThrow(userId); // Validar que existe
+        int size = Pagination.resolvePageSize(pageSize);
+        Long afterId = Pagination.decodeIdCursor(cursor);
+
+        List<Order> fetched = ordersByUser.findPageByKey(userId, afterId, size + 1);
+        return Pagination.toPage(fetched, size,
+            o -> Pagination.encodeCursor(o.getOrderId()), orderMapper::toDTOList);
+    }
+
+    /**
+     * Lista una página de órdenes por estado (paginación por cursor).
+     *
+     * @param statusId ID del estado
+     * @param cursor Cursor de la página anterior (null = primera página)
+     * @param pageSize Tamaño de página (null = AppConfig.getDefaultPageSize())
+     * @return Página de OrderDTO, en orden de orderId
+     * @throws ValidationException si el cursor es inválido
+     */
+    public PageDTO<OrderDTO> findOrdersByStatus(Long statusId, String cursor, Integer pageSize) {
+        int size = Pagination.resolvePageSize(pageSize);
+        Long afterId = Pagination.decodeIdCursor(cursor);
+
+        List<Order> fetched = ordersByStatus.findPageByKey(statusId, afterId, size + 1);
+        return Pagination.toPage(fetched, size,
+            o -> Pagination.encodeCursor(o.getOrderId()), orderMapper::toDTOList);
+    }
+
+    /**
+     * Lista una página de órdenes por rango de fechas (extremos excluidos).
+     *
+     * El cursor guarda (createdAt, orderId) de la última orden entregada.
+     *
+     * @param startDate Fecha inicio
+     * @param endDate Fecha fin
+     * @param cursor Cursor de la página anterior (null = primera página)
+     * @param pageSize Tamaño de página (null = AppConfig.getDefaultPageSize())
+     * @return Página de OrderDTO, en orden de fecha de creación
+     * @throws ValidationException si el cursor es inválido
+     */
+    public PageDTO<OrderDTO> findOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate,
+                                                   String cursor, Integer pageSize) {
+        int size = Pagination.resolvePageSize(pageSize);
+        String[] after = Pagination.decodeCursor(cursor, 2);
+        LocalDateTime afterCreatedAt = null;
+        Long afterId = null;
+        if (after != null) {
+            try {
+                afterCreatedAt = LocalDateTime.parse(after[0]);
+            } catch (DateTimeParseException e) {
+                throw new ValidationException("cursor", cursor, "Invalid page cursor");
+            }
+            afterId = Pagination.parseLong(after[1], cursor);
+        }
+
+        List<Order> fetched = ordersByCreatedAt.findPageInRange(startDate, false, endDate, false,
+            afterCreatedAt, afterId, size + 1);
+        return Pagination.toPage(fetched, size,
+            o -> Pagination.encodeCursor(o.getCreatedAt(), o.getOrderId()), orderMapper::toDTOList);
+    }
+
+    /**
+     * Cambia el estado de una orden manteniendo el índice por estado.
      *
-     * Formato: {PREFIX}-YYYYMMDD-XXXXXX
-     * Ejemplo: ORD-20260203-123456
+     * TODO Etapa 06: validar transiciones permitidas y devolver stock al cancelar
+     *
+     * @param orderId ID de la orden
+     * @param newStatusId ID del nuevo estado
+     * @return OrderDTO actualizado
+     * @throws EntityNotFoundException si la orden no existe
+     * @throws ValidationException si newStatusId es null
+     */
+    public OrderDTO updateOrderStatus(Long orderId, Long newStatusId) {
+        ValidationUtils.validateNotNull(newStatusId, "newStatusId");
+
+        return orderLocks.withLock(orderId, () -> {
+            Order order = findOrderEntityOrThrow(orderId);
+            Long oldStatusId = order.getOrderStatusId();
+            order.setOrderStatusId(newStatusId);
+            ordersByStatus.move(oldStatusId, newStatusId, order.getOrderId(), order);
+
+            // TODO Etapa 06: orderRepository.save(order);
+            return orderMapper.toDTO(order);
+        });
+    }
+
+    /**
+     * Genera un número de orden único (por nodo y por día, ver OrderNumberGenerator).
+     *
+     * Formato: {PREFIX}YYYYMMDD-NNNN-SSSSSS (nodo y secuencia diaria)
+     * Ejemplo: ORD-20260203-0001-000123
      *
      * @return Número de orden único
      */
     public String generateOrderNumber() {
-        String prefix = AppConfig.getOrderNumberPrefix(); // "ORD-"
-        String date = LocalDateTime.now().format(
-            DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String randomPart = String.format("%06d", random.nextInt(1000000));
-
-        return prefix + date + "-" + randomPart;
+        return orderNumberGenerator.next();
     }
 
     /**
@@ -307,6 +478,24 @@ public class OrderService {
         return CalculationUtils.calculateShippingCost(subtotal, 1); // shippingZone = 1 por defecto
     }
 
+    // Registra una orden ya guardada: índices y continuación de las secuencias
+    private void restoreOrder(Order order) {
+        idGenerator.continueAfter(order.getOrderId());
+        for (OrderItem item : order.getItems()) {
+            itemIdGenerator.continueAfter(item.getOrderItemId());
+        }
+        orderNumberGenerator.continueAfter(order.getOrderNumber());
+        orderNumberIndex.put(order.getOrderNumber(), order);
+        indexOrder(order);
+    }
+
+    private void indexOrder(Order order) {
+        Long orderId = order.getOrderId();
+        ordersByUser.put(order.getUserId(), orderId, order);
+        ordersByStatus.put(order.getOrderStatusId(), orderId, order);
+        ordersByCreatedAt.put(order.getCreatedAt(), orderId, order);
+    }
+
     /**
      * Busca entity Order por ID o lanza excepción.
      *
@@ -316,25 +505,6 @@ public class OrderService {
      */
     public Order findOrderEntityOrThrow(Long orderId) {
         // TODO Etapa 06: return orderRepository.findById(orderId)
-        return ordersInMemory.stream()
-                .filter(o -> o.getOrderId().equals(orderId))
-                .findFirst()
-                .orElseThrow(() -> new EntityNotFoundException("Order", orderId));
-    }
-
-    // Métodos auxiliares para simular auto-increment
-    private Long generateNextId() {
-        return ordersInMemory.stream()
-                .mapToLong(Order::getOrderId)
-                .max()
-                .orElse(0L) + 1;
-    }
-
-    private Long generateNextOrderItemId() {
-        return ordersInMemory.stream()
-                .flatMap(order -> order.getItems().stream())
-                .mapToLong(OrderItem::getOrderItemId)
-                .max()
-                .orElse(0L) + 1;
+        return ordersInMemory.findByIdOrThrow(orderId);
     }
 }
@@ -1,19 +1,52 @@
 package co.edu.cesde.pps.service;
 
+import co.edu.cesde.pps.config.AppConfig;
+import co.edu.cesde.pps.dto.AdmissionStatsDTO;
+import co.edu.cesde.pps.dto.BreadcrumbDTO;
+import co.edu.cesde.pps.dto.FacetedProductPageDTO;
+import co.edu.cesde.pps.dto.PageDTO;
 import co.edu.cesde.pps.dto.ProductDTO;
+import co.edu.cesde.pps.exception.AdmissionRejectedException;
 import co.edu.cesde.pps.exception.DuplicateEntityException;
 import co.edu.cesde.pps.exception.EntityNotFoundException;
 import co.edu.cesde.pps.exception.InsufficientStockException;
+import co.edu.cesde.pps.exception.ValidationException;
 import co.edu.cesde.pps.mapper.ProductMapper;
 import co.edu.cesde.pps.model.Category;
 import co.edu.cesde.pps.model.Product;
+import co.edu.cesde.pps.repository.FullTextIndex;
+import co.edu.cesde.pps.repository.FullTextIndex.SearchHit;
+import co.edu.cesde.pps.repository.InMemoryRepository;
+import co.edu.cesde.pps.repository.SortedIndex;
+import co.edu.cesde.pps.repository.UniqueIndex;
+import co.edu.cesde.pps.util.AdmissionGate;
+import co.edu.cesde.pps.util.AutocompleteTrie;
 import co.edu.cesde.pps.util.CalculationUtils;
+import co.edu.cesde.pps.util.Pagination;
+import co.edu.cesde.pps.util.StripedLock;
 import co.edu.cesde.pps.util.ValidationUtils;
+import co.edu.cesde.pps.util.IdGenerator;
+import co.edu.cesde.pps.util.SequenceIdGenerator;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -22,8 +55,14 @@ import java.util.stream.Collectors;
  * Responsabilidades:
  * - CRUD de productos
  * - Gestión de stock (verificar, actualizar, reservar)
+ * - Admisión FIFO para productos "hot" en ventas flash (ver withHotSkuAdmission)
  * - Validación de disponibilidad
- * - Búsqueda y filtrado
+ * - Búsqueda y filtrado (listas completas o paginadas por cursor)
+ * - Búsqueda de texto con índice invertido (nombre, descripción, SKU)
+ * - Autocompletado por popularidad (unidades vendidas), ver autocomplete
+ * - Navegación facetada por categoría, precio y disponibilidad, ver browseCategory
+ * - Conteos de productos por categoría (totales, activos, con stock), mantenidos
+ *   incrementalmente en cada alta, modificación, baja y cambio de stock
  * - Validación de SKU único
  * - Conversión Entity <-> DTO
  *
@@ -38,12 +77,58 @@ public class ProductService {
     private final ProductMapper productMapper;
     private final CategoryService categoryService;
     // TODO Etapa 06: private final ProductRepository productRepository;
-    private final List<Product> productsInMemory;
+    private final InMemoryRepository<Product, Long> productsInMemory;
+    private final IdGenerator idGenerator;
+    private final UniqueIndex<Product> skuIndex;
+    // Búsqueda de texto sobre productos activos
+    private final FullTextIndex<Long, Product> searchIndex;
+    // Unidades vendidas por producto (popularidad para autocompletado)
+    private final Map<Long, LongAdder> unitsSoldByProduct;
+    // Unidades retenidas por carritos por producto (ya descontadas de stockQty)
+    private final Map<Long, AtomicInteger> heldUnitsByProduct;
+    // Snapshot inmutable: se reemplaza completo en rebuildAutocompleteIndex()
+    private volatile AutocompleteTrie autocompleteIndex;
+    // Navegación facetada: categoryId → productos activos de la categoría por precio
+    private final Map<Long, SortedIndex<BigDecimal, Long, Product>> priceIndexByCategory;
+    // productId → lo contabilizado en conteos y facetas; también es el índice de
+    // disponibilidad de la navegación (se actualiza solo cuando el stock pasa por cero)
+    private final Map<Long, CountedState> countedStates;
+    // categoryId → [bucket * 2] activos, [bucket * 2 + 1] activos con stock (solo directos)
+    private final Map<Long, AtomicLongArray> facetCountsByCategory;
+    private final BigDecimal[] priceBucketBounds;
+    private final String[] priceBucketLabels;
+    // Colas de admisión de productos hot: productId → cola
+    private final Map<Long, AdmissionGate> hotSkuGates;
+    // Aísla las asignaciones de varias líneas entre sí (ver allocateStock)
+    private final StripedLock allocationLocks;
 
     public ProductService(CategoryService categoryService) {
         this.productMapper = new ProductMapper();
         this.categoryService = categoryService;
-        this.productsInMemory = new ArrayList<>();
+        this.productsInMemory = new InMemoryRepository<>("Product", Product::getProductId);
+        this.idGenerator = new SequenceIdGenerator("Product");
+        this.skuIndex = new UniqueIndex<>("Product", "sku");
+        this.searchIndex = new FullTextIndex<>(Product::getProductId, Arrays.asList(
+            FullTextIndex.field(Product::getName, 3),
+            FullTextIndex.field(Product::getSku, 3),
+            FullTextIndex.field(Product::getDescription, 1)));
+        this.hotSkuGates = new ConcurrentHashMap<>();
+        this.unitsSoldByProduct = new ConcurrentHashMap<>();
+        this.heldUnitsByProduct = new ConcurrentHashMap<>();
+        this.autocompleteIndex = AutocompleteTrie.empty();
+        this.priceIndexByCategory = new ConcurrentHashMap<>();
+        this.countedStates = new ConcurrentHashMap<>();
+        this.facetCountsByCategory = new ConcurrentHashMap<>();
+        this.allocationLocks = new StripedLock(64);
+
+        int[] bounds = AppConfig.getPriceFacetBoundaries();
+        this.priceBucketBounds = new BigDecimal[bounds.length];
+        this.priceBucketLabels = new String[bounds.length + 1];
+        for (int i = 0; i < bounds.length; i++) {
+            priceBucketBounds[i] = BigDecimal.valueOf(bounds[i]);
+            priceBucketLabels[i] = (i == 0 ? 0 : bounds[i - 1]) + "-" + bounds[i];
+        }
+        priceBucketLabels[bounds.length] = (bounds.length == 0 ? 0 : bounds[bounds.length - 1]) + "+";
     }
 
     /**
@@ -71,12 +156,16 @@ public class ProductService {
 
         // Crear producto
         Product product = productMapper.toEntity(productDTO);
-        product.setProductId(generateNextId());
+        product.setProductId(idGenerator.nextId());
         product.setCategory(category);
         product.setCreatedAt(LocalDateTime.now());
 
         // TODO Etapa 06: productRepository.save(product);
-        productsInMemory.add(product);
+        skuIndex.put(product.getSku(), product);
+        productsInMemory.save(product);
+        updateSearchIndex(product);
+        reindexForBrowsing(null, null, product);
+        refreshAvailability(product);
 
         return productMapper.toDTO(product);
     }
@@ -89,12 +178,14 @@ public class ProductService {
      * @return ProductDTO actualizado
      * @throws EntityNotFoundException si no existe
      * @throws DuplicateEntityException si el nuevo SKU ya existe
+     * @throws ValidationException si el stock cambia y hay unidades retenidas por carritos
      */
     public ProductDTO updateProduct(Long productId, ProductDTO productDTO) {
         Product product = findProductEntityOrThrow(productId);
 
-        // Validar SKU único si cambió
-        if (!product.getSku().equals(productDTO.getSku()) && existsBySku(productDTO.getSku())) {
+        // Validar SKU único si cambió (ignorando el propio producto)
+        ValidationUtils.validateNotBlank(productDTO.getSku(), "sku");
+        if (skuIndex.isTakenByOther(productDTO.getSku(), product)) {
             throw new DuplicateEntityException("Product", "sku", productDTO.getSku());
         }
 
@@ -103,22 +194,48 @@ public class ProductService {
         ValidationUtils.validateNonNegative(productDTO.getPrice(), "price");
         ValidationUtils.validateNonNegative(BigDecimal.valueOf(productDTO.getStockQty()), "stockQty");
 
+        // Resolver la nueva categoría antes de tocar índices o campos: si no existe,
+        // el producto queda intacto
+        Category newCategory = product.getCategory();
+        if (productDTO.getCategoryId() != null &&
+            !productDTO.getCategoryId().equals(product.getCategory().getCategoryId())) {
+            newCategory = categoryService.findCategoryEntityOrThrow(productDTO.getCategoryId());
+        }
+
+        // Reservar el nuevo SKU antes de cualquier cambio: si otro hilo lo tomó
+        // después de la validación, put lanza excepción con el producto intacto
+        String previousSku = product.getSku();
+        boolean skuChanged = skuIndex.find(productDTO.getSku()).orElse(null) != product;
+        skuIndex.put(productDTO.getSku(), product);
+
+        // El stock libre se reemplaza con CAS y solo si no hay unidades retenidas;
+        // si se rechaza, se libera el SKU reservado
+        try {
+            setFreeStock(product, productDTO.getStockQty());
+        } catch (RuntimeException ex) {
+            if (skuChanged) {
+                skuIndex.remove(productDTO.getSku(), product);
+            }
+            throw ex;
+        }
+        if (skuChanged) {
+            skuIndex.remove(previousSku, product);
+        }
+        Long previousCategoryId = product.getCategory().getCategoryId();
+        BigDecimal previousPrice = product.getPrice();
+
         // Actualizar campos
         product.setSku(productDTO.getSku());
         product.setName(productDTO.getName());
         product.setDescription(productDTO.getDescription());
         product.setPrice(productDTO.getPrice());
-        product.setStockQty(productDTO.getStockQty());
         product.setIsActive(productDTO.getIsActive());
-
-        // Actualizar categoría si cambió
-        if (productDTO.getCategoryId() != null &&
-            !productDTO.getCategoryId().equals(product.getCategory().getCategoryId())) {
-            Category newCategory = categoryService.findCategoryEntityOrThrow(productDTO.getCategoryId());
-            product.setCategory(newCategory);
-        }
+        product.setCategory(newCategory);
 
         // TODO Etapa 06: productRepository.save(product);
+        updateSearchIndex(product);
+        reindexForBrowsing(previousCategoryId, previousPrice, product);
+        refreshAvailability(product);
 
         return productMapper.toDTO(product);
     }
@@ -133,6 +250,9 @@ public class ProductService {
         Product product = findProductEntityOrThrow(productId);
         product.setIsActive(false);
         // TODO Etapa 06: productRepository.save(product);
+        searchIndex.remove(product);
+        reindexForBrowsing(product.getCategory().getCategoryId(), product.getPrice(), product);
+        refreshAvailability(product);
     }
 
     /**
@@ -156,9 +276,7 @@ public class ProductService {
      */
     public ProductDTO findBySku(String sku) {
         // TODO Etapa 06: Product product = productRepository.findBySku(sku)
-        Product product = productsInMemory.stream()
-                .filter(p -> p.getSku().equalsIgnoreCase(sku))
-                .findFirst()
+        Product product = skuIndex.find(sku)
                 .orElseThrow(() -> new EntityNotFoundException("Product with SKU: " + sku));
 
         return productMapper.toDTO(product);
@@ -171,7 +289,7 @@ public class ProductService {
      */
     public List<ProductDTO> findAllProducts() {
         // TODO Etapa 06: List<Product> products = productRepository.findAll();
-        return productMapper.toDTOList(productsInMemory);
+        return productMapper.toDTOList(productsInMemory.findAll());
     }
 
     /**
@@ -206,20 +324,285 @@ public class ProductService {
     }
 
     /**
-     * Busca productos por nombre (búsqueda parcial).
+     * Obtiene la ruta de navegación (breadcrumb) de la página de un producto:
+     * las categorías desde la raíz hasta la categoría del producto.
+     *
+     * @param productId ID del producto
+     * @return Ruta desde la raíz (cacheada por CategoryService.getBreadcrumb)
+     * @throws EntityNotFoundException si el producto no existe
+     */
+    public List<BreadcrumbDTO> getBreadcrumb(Long productId) {
+        Product product = findProductEntityOrThrow(productId);
+        return categoryService.getBreadcrumb(product.getCategory().getCategoryId());
+    }
+
+    /**
+     * Busca productos de una categoría y de todas sus subcategorías
+     * (ej: "Portátiles" incluye "Portátiles Gaming").
      *
-     * @param name Nombre a buscar
+     * Cada producto se filtra con una comparación de intervalos sobre su
+     * categoría (CategoryService.queryCategorySubtree), sin recorrer la jerarquía.
+     *
+     * @param categoryId ID de la categoría
      * @return Lista de ProductDTO
+     * @throws EntityNotFoundException si la categoría no existe
+     */
+    public List<ProductDTO> findByCategoryTree(Long categoryId) {
+        // TODO Etapa 06: productRepository.findByCategoryInterval(lft, rgt)
+        List<Product> subtreeProducts = categoryService.queryCategorySubtree(categoryId,
+            inSubtree -> productsInMemory.stream()
+                    .filter(p -> inSubtree.test(p.getCategory().getCategoryId()))
+                    .collect(Collectors.toList()));
+
+        return productMapper.toDTOList(subtreeProducts);
+    }
+
+    /**
+     * Busca productos activos por texto (ver FullTextIndex).
+     *
+     * Cada palabra de la búsqueda debe coincidir, completa o como prefijo y sin
+     * importar acentos ni mayúsculas, con alguna palabra del nombre, la
+     * descripción o el SKU. Ej: "camara dig" encuentra "Cámara Digital 20MP".
+     *
+     * @param name Texto a buscar
+     * @return Lista de ProductDTO ordenada por relevancia
      */
     public List<ProductDTO> searchByName(String name) {
-        // TODO Etapa 06: List<Product> products = productRepository.findByNameContaining(name);
-        List<Product> matchingProducts = productsInMemory.stream()
-                .filter(p -> p.getName().toLowerCase().contains(name.toLowerCase()))
+        // TODO Etapa 06: reemplazar por búsqueda full-text de la BD (MATCH ... AGAINST)
+        List<Product> matchingProducts = searchIndex.search(name).stream()
+                .map(SearchHit::getEntity)
                 .collect(Collectors.toList());
 
         return productMapper.toDTOList(matchingProducts);
     }
 
+    /**
+     * Lista una página de productos (paginación por cursor).
+     *
+     * @param cursor Cursor de la página anterior (null = primera página)
+     * @param pageSize Tamaño de página (null = AppConfig.getProductsPerPage())
+     * @return Página de ProductDTO
+     * @throws ValidationException si el cursor es inválido
+     */
+    public PageDTO<ProductDTO> findAllProducts(String cursor, Integer pageSize) {
+        return findProductPage(cursor, pageSize, product -> true);
+    }
+
+    /**
+     * Lista una página de productos activos (paginación por cursor).
+     *
+     * @param cursor Cursor de la página anterior (null = primera página)
+     * @param pageSize Tamaño de página (null = AppConfig.getProductsPerPage())
+     * @return Página de ProductDTO
+     * @throws ValidationException si el cursor es inválido
+     */
+    public PageDTO<ProductDTO> findActiveProducts(String cursor, Integer pageSize) {
+        return findProductPage(cursor, pageSize, Product::getIsActive);
+    }
+
+    /**
+     * Lista una página de productos de una categoría (paginación por cursor).
+     *
+     * @param categoryId ID de la categoría
+     * @param cursor Cursor de la página anterior (null = primera página)
+     * @param pageSize Tamaño de página (null = AppConfig.getProductsPerPage())
+     * @return Página de ProductDTO
+     * @throws EntityNotFoundException si la categoría no existe
+     * @throws ValidationException si el cursor es inválido
+     */
+    public PageDTO<ProductDTO> findByCategory(Long categoryId, String cursor, Integer pageSize) {
+        categoryService.findCategoryEntityOrThrow(categoryId); // Validar que existe
+
+        // TODO Etapa 06: productRepository.findByCategoryIdAndProductIdGreaterThan(categoryId, afterId, limit)
+        return findProductPage(cursor, pageSize,
+            p -> p.getCategory().getCategoryId().equals(categoryId));
+    }
+
+    /**
+     * Lista una página de productos de una categoría y de todas sus
+     * subcategorías (paginación por cursor).
+     *
+     * @param categoryId ID de la categoría
+     * @param cursor Cursor de la página anterior (null = primera página)
+     * @param pageSize Tamaño de página (null = AppConfig.getProductsPerPage())
+     * @return Página de ProductDTO
+     * @throws EntityNotFoundException si la categoría no existe
+     * @throws ValidationException si el cursor es inválido
+     */
+    public PageDTO<ProductDTO> findByCategoryTree(Long categoryId, String cursor, Integer pageSize) {
+        // TODO Etapa 06: productRepository.findByCategoryIntervalAndProductIdGreaterThan(lft, rgt, afterId, limit)
+        return categoryService.queryCategorySubtree(categoryId,
+            inSubtree -> findProductPage(cursor, pageSize,
+                p -> inSubtree.test(p.getCategory().getCategoryId())));
+    }
+
+    /**
+     * Busca una página de productos activos por texto (paginación por cursor).
+     *
+     * El cursor guarda (relevancia, productId) del último resultado entregado.
+     *
+     * @param name Texto a buscar
+     * @param cursor Cursor de la página anterior (null = primera página)
+     * @param pageSize Tamaño de página (null = AppConfig.getProductsPerPage())
+     * @return Página de ProductDTO ordenada por relevancia
+     * @throws ValidationException si el cursor es inválido
+     */
+    public PageDTO<ProductDTO> searchByName(String name, String cursor, Integer pageSize) {
+        int size = Pagination.resolvePageSize(pageSize,
+            AppConfig.getProductsPerPage(), AppConfig.getMaxProductsPerPage());
+        String[] after = Pagination.decodeCursor(cursor, 2);
+        Double afterScore = null;
+        Long afterId = null;
+        if (after != null) {
+            try {
+                afterScore = Double.valueOf(after[0]);
+            } catch (NumberFormatException e) {
+                throw new ValidationException("cursor", cursor, "Invalid page cursor");
+            }
+            afterId = Pagination.parseLong(after[1], cursor);
+        }
+
+        List<SearchHit<Product>> fetched = searchIndex.searchPage(name, afterScore, afterId, size + 1);
+        return Pagination.toPage(fetched, size,
+            hit -> Pagination.encodeCursor(hit.getScore(), hit.getEntity().getProductId()),
+            hits -> productMapper.toDTOList(hits.stream()
+                    .map(SearchHit::getEntity)
+                    .collect(Collectors.toList())));
+    }
+
+    /**
+     * Sugerencias de autocompletado para el buscador (type-ahead).
+     *
+     * Consulta el snapshot del trie (AutocompleteTrie) sin bloquear ni recorrer el
+     * catálogo; los productos más vendidos aparecen primero. Se descartan los que
+     * desde la última reconstrucción se desactivaron o quedaron sin stock.
+     * Los productos nuevos aparecen tras la siguiente reconstrucción
+     * (AutocompleteIndexRefresher).
+     *
+     * @param prefix Lo que el usuario lleva escrito (ej: "cam dig")
+     * @param limit Cantidad máxima de sugerencias (null = AppConfig.getAutocompleteMaxSuggestions())
+     * @return Lista de ProductDTO sugeridos, por popularidad
+     */
+    public List<ProductDTO> autocomplete(String prefix, Integer limit) {
+        int maxSuggestions = Pagination.resolvePageSize(limit,
+            AppConfig.getAutocompleteMaxSuggestions(), AppConfig.getAutocompleteMaxSuggestions());
+
+        List<Product> suggestions = new ArrayList<>(maxSuggestions);
+        for (Long productId : autocompleteIndex.suggest(prefix, AutocompleteTrie.MAX_SUGGESTIONS_PER_NODE)) {
+            Product product = productsInMemory.findById(productId).orElse(null);
+            if (product != null && isActiveAndInStock(product)) {
+                suggestions.add(product);
+                if (suggestions.size() == maxSuggestions) {
+                    break;
+                }
+            }
+        }
+        return productMapper.toDTOList(suggestions);
+    }
+
+    /**
+     * Reconstruye el índice de autocompletado con los productos activos con stock
+     * y sus unidades vendidas, y lo publica reemplazando el anterior. Las consultas
+     * siguen usando el índice anterior mientras se construye el nuevo.
+     *
+     * @return Cantidad de productos indexados
+     */
+    public synchronized int rebuildAutocompleteIndex() {
+        List<AutocompleteTrie.Entry> entries = productsInMemory.stream()
+                .filter(this::isActiveAndInStock)
+                .map(p -> AutocompleteTrie.entry(p.getName(), p.getProductId(), getUnitsSold(p.getProductId())))
+                .collect(Collectors.toList());
+
+        AutocompleteTrie rebuilt = AutocompleteTrie.build(entries);
+        autocompleteIndex = rebuilt;
+        return rebuilt.getEntryCount();
+    }
+
+    /**
+     * Registra unidades vendidas (llamado por OrderService al completar el checkout).
+     *
+     * @param quantitiesByProduct productId → unidades vendidas
+     */
+    public void recordUnitsSold(Map<Long, Integer> quantitiesByProduct) {
+        for (Map.Entry<Long, Integer> line : quantitiesByProduct.entrySet()) {
+            unitsSoldByProduct.computeIfAbsent(line.getKey(), id -> new LongAdder()).add(line.getValue());
+        }
+    }
+
+    /**
+     * @param productId ID del producto
+     * @return Unidades vendidas del producto desde el inicio de la aplicación
+     */
+    public long getUnitsSold(Long productId) {
+        LongAdder sold = unitsSoldByProduct.get(productId);
+        return sold != null ? sold.sum() : 0L;
+    }
+
+    /**
+     * Navegación facetada: productos de una categoría (y sus subcategorías) en un
+     * rango de precio, opcionalmente solo con stock, ordenados por precio.
+     *
+     * Se resuelve con índices, sin recorrer el catálogo ni mapear más de una página:
+     * - Por categoría, un SortedIndex de productos activos ordenado por (precio, ID):
+     *   el rango de precio es un subMap y la página continúa tras el cursor
+     * - La disponibilidad se lee de countedStates (mapa por productId, sin límite
+     *   de rango de IDs)
+     * - Las facetas salen de contadores por (categoría, rango de precio), ver countFacets
+     *
+     * El cursor guarda (precio, productId) del último producto entregado.
+     *
+     * @param categoryId ID de la categoría
+     * @param minPrice Precio mínimo, inclusive (null = sin mínimo)
+     * @param maxPrice Precio máximo, inclusive (null = sin máximo)
+     * @param inStockOnly true para incluir solo productos con stock disponible
+     * @param cursor Cursor de la página anterior (null = primera página)
+     * @param pageSize Tamaño de página (null = AppConfig.getProductsPerPage())
+     * @return Página de productos ordenada por precio con conteos por faceta
+     * @throws EntityNotFoundException si la categoría no existe
+     * @throws ValidationException si el rango de precio o el cursor son inválidos
+     */
+    public FacetedProductPageDTO browseCategory(Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                                boolean inStockOnly, String cursor, Integer pageSize) {
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new ValidationException("minPrice", minPrice, "minPrice cannot be greater than maxPrice");
+        }
+        int size = Pagination.resolvePageSize(pageSize,
+            AppConfig.getProductsPerPage(), AppConfig.getMaxProductsPerPage());
+        String[] after = Pagination.decodeCursor(cursor, 2);
+        BigDecimal afterPrice = null;
+        Long afterId = null;
+        if (after != null) {
+            try {
+                afterPrice = new BigDecimal(after[0]);
+            } catch (NumberFormatException e) {
+                throw new ValidationException("cursor", cursor, "Invalid page cursor");
+            }
+            afterId = Pagination.parseLong(after[1], cursor);
+        }
+
+        // Subárbol: categoryId → subcategoría directa por la que cuelga
+        Map<Long, Long> branches = categoryService.findSubtreeBranches(categoryId);
+        Predicate<Product> stockFilter = inStockOnly ? this::isMarkedInStock : product -> true;
+
+        // Página: las primeras size + 1 de cada categoría bastan para la mezcla ordenada
+        List<Product> candidates = new ArrayList<>();
+        for (Long id : branches.keySet()) {
+            SortedIndex<BigDecimal, Long, Product> priceIndex = priceIndexByCategory.get(id);
+            if (priceIndex != null) {
+                candidates.addAll(priceIndex.findPageInRange(minPrice, true, maxPrice, true,
+                    afterPrice, afterId, stockFilter, size + 1));
+            }
+        }
+        candidates.sort(Comparator.comparing(Product::getPrice).thenComparing(Product::getProductId));
+        List<Product> fetched = candidates.size() > size + 1 ? candidates.subList(0, size + 1) : candidates;
+
+        FacetedProductPageDTO result = countFacets(categoryId, branches, minPrice, maxPrice, inStockOnly);
+        result.setPage(Pagination.toPage(fetched, size,
+            p -> Pagination.encodeCursor(p.getPrice().toPlainString(), p.getProductId()),
+            productMapper::toDTOList));
+        return result;
+    }
+
     /**
      * Verifica disponibilidad de producto con cantidad solicitada.
      *
@@ -230,6 +613,7 @@ public class ProductService {
      */
     public boolean checkAvailability(Long productId, Integer quantity) {
         Product product = findProductEntityOrThrow(productId);
+        // Lectura volatile del contador: instantánea, puede cambiar antes de descontar
         return product.getIsActive() &&
                CalculationUtils.hasEnoughStock(product.getStockQty(), quantity);
     }
@@ -253,17 +637,54 @@ public class ProductService {
      * @param productId ID del producto
      * @param newStock Nuevo stock
      * @throws EntityNotFoundException si el producto no existe
+     * @throws ValidationException si el stock cambia y hay unidades retenidas por carritos
      */
     public void updateStock(Long productId, Integer newStock) {
         Product product = findProductEntityOrThrow(productId);
         ValidationUtils.validateNonNegative(BigDecimal.valueOf(newStock), "stock");
-        product.setStockQty(newStock);
+        setFreeStock(product, newStock);
+        refreshAvailability(product);
         // TODO Etapa 06: productRepository.save(product);
     }
 
+    /**
+     * Reemplaza el stock libre de un producto (valor absoluto de un formulario de admin).
+     *
+     * Con unidades retenidas por carritos un valor absoluto es ambiguo: al
+     * liberarse las reservas el stock quedaría inflado en lo retenido. En ese
+     * caso el cambio se rechaza y debe hacerse como diferencia
+     * (increaseStock/decreaseStock). El reemplazo es un CAS sobre el valor
+     * leído, por lo que tampoco pisa descuentos concurrentes.
+     *
+     * @param product Producto
+     * @param newStock Nuevo stock libre
+     * @throws ValidationException si el stock cambia y hay unidades retenidas
+     */
+    private void setFreeStock(Product product, int newStock) {
+        while (true) {
+            Integer current = product.getStockQty();
+            if (current != null && current == newStock) {
+                return;
+            }
+            int held = getHeldUnits(product.getProductId());
+            if (held > 0) {
+                throw new ValidationException("stockQty", newStock,
+                    held + " units are held by carts; use increaseStock/decreaseStock");
+            }
+            // tryHoldStock suma a heldUnits antes de descontar: si descontó entre la
+            // lectura y el CAS, el CAS falla y el reintento ve la reserva
+            if (product.compareAndSetStock(current, newStock)) {
+                return;
+            }
+        }
+    }
+
     /**
      * Disminuye el stock de un producto (para ventas).
      *
+     * La verificación y el descuento son una sola operación atómica (CAS sobre
+     * Product.stockQty): dos checkouts concurrentes no pueden sobrevender.
+     *
      * @param productId ID del producto
      * @param quantity Cantidad a disminuir
      * @throws EntityNotFoundException si el producto no existe
@@ -271,15 +692,13 @@ public class ProductService {
      */
     public void decreaseStock(Long productId, Integer quantity) {
         Product product = findProductEntityOrThrow(productId);
+        ValidationUtils.validatePositive(quantity, "quantity");
 
-        if (!CalculationUtils.hasEnoughStock(product.getStockQty(), quantity)) {
+        if (!tryTakeStock(product, quantity)) {
             throw new InsufficientStockException(productId, product.getSku(),
                 quantity, product.getStockQty());
         }
-
-        int newStock = CalculationUtils.calculateNewStock(product.getStockQty(), quantity);
-        product.setStockQty(newStock);
-        // TODO Etapa 06: productRepository.save(product);
+        // TODO Etapa 06: productRepository.save(product) con bloqueo optimista (@Version)
     }
 
     /**
@@ -293,11 +712,257 @@ public class ProductService {
         Product product = findProductEntityOrThrow(productId);
         ValidationUtils.validatePositive(quantity, "quantity");
 
-        int newStock = product.getStockQty() + quantity;
-        product.setStockQty(newStock);
+        returnStock(product, quantity);
         // TODO Etapa 06: productRepository.save(product);
     }
 
+    /**
+     * Descuenta stock de un producto ya resuelto (CAS, ver Product.tryDecreaseStock)
+     * manteniendo el índice de disponibilidad. Todo descuento de stock debe pasar
+     * por aquí o por decreaseStock/allocateStock (ej: StockReservationService).
+     *
+     * @param product Producto
+     * @param quantity Cantidad a descontar (positiva)
+     * @return true si se descontó; false si no había stock suficiente
+     */
+    public boolean tryTakeStock(Product product, int quantity) {
+        if (!product.tryDecreaseStock(quantity)) {
+            return false;
+        }
+        Integer remaining = product.getStockQty();
+        if (remaining != null && remaining <= 0) {
+            refreshAvailability(product); // Se agotó
+        }
+        return true;
+    }
+
+    /**
+     * Devuelve stock a un producto ya resuelto manteniendo el índice de
+     * disponibilidad (contraparte de tryTakeStock).
+     *
+     * @param product Producto
+     * @param quantity Cantidad a devolver (positiva)
+     * @return Stock resultante
+     */
+    public int returnStock(Product product, int quantity) {
+        int updated = product.increaseStock(quantity);
+        if (updated - quantity <= 0) {
+            refreshAvailability(product); // Volvió a tener stock
+        }
+        return updated;
+    }
+
+    /**
+     * Retiene stock a nombre de un carrito (ver StockReservationService): descuenta
+     * como tryTakeStock y contabiliza las unidades como retenidas.
+     *
+     * @param product Producto
+     * @param quantity Cantidad a retener (positiva)
+     * @return true si se retuvo; false si no había stock suficiente
+     */
+    public boolean tryHoldStock(Product product, int quantity) {
+        AtomicInteger held = heldUnitsByProduct.computeIfAbsent(product.getProductId(), id -> new AtomicInteger());
+        held.addAndGet(quantity); // Antes de descontar (ver setFreeStock)
+        if (tryTakeStock(product, quantity)) {
+            return true;
+        }
+        held.addAndGet(-quantity);
+        return false;
+    }
+
+    /**
+     * Devuelve al stock unidades retenidas (contraparte de tryHoldStock).
+     *
+     * @param product Producto
+     * @param quantity Cantidad a devolver (positiva)
+     */
+    public void releaseHeldStock(Product product, int quantity) {
+        returnStock(product, quantity);
+        adjustHeldStock(product, -quantity); // Después de devolver (ver setFreeStock)
+    }
+
+    /**
+     * Ajusta lo contabilizado como retenido sin tocar el stock: el checkout toma
+     * las unidades retenidas (negativo) o las restaura si falla (positivo).
+     *
+     * @param product Producto
+     * @param delta Diferencia de unidades retenidas
+     */
+    public void adjustHeldStock(Product product, int delta) {
+        heldUnitsByProduct.computeIfAbsent(product.getProductId(), id -> new AtomicInteger()).addAndGet(delta);
+    }
+
+    /**
+     * @param productId ID del producto
+     * @return Unidades del producto retenidas por carritos
+     */
+    public int getHeldUnits(Long productId) {
+        AtomicInteger held = heldUnitsByProduct.get(productId);
+        return held != null ? held.get() : 0;
+    }
+
+    /**
+     * Descuenta el stock de varios productos como una sola operación (todo o nada).
+     *
+     * Pensado para el checkout: o se descuentan todas las líneas o ninguna.
+     * - Todos los productos se resuelven y validan antes de tocar el stock
+     * - Se adquieren los locks de todos los productos (allocationLocks) en orden
+     *   determinístico, por lo que dos asignaciones concurrentes no pueden
+     *   bloquearse mutuamente ni ver el descuento temporal de la otra
+     * - Con los locks tomados se verifica que todas las líneas alcancen y recién
+     *   entonces se descuenta cada una (CAS por producto, tryTakeStock)
+     * - Las operaciones de una sola línea (decreaseStock, retenciones de
+     *   carritos) no toman estos locks: si una de ellas gana el stock entre la
+     *   verificación y el descuento, se devuelve lo ya descontado y se lanza
+     *   excepción (en ese caso la falta de stock es real)
+     *
+     * @param quantitiesByProduct Mapa productId → cantidad a descontar
+     * @throws EntityNotFoundException si algún producto no existe
+     * @throws ValidationException si alguna cantidad no es positiva
+     * @throws InsufficientStockException si algún producto no tiene stock suficiente
+     *         (en ese caso no se descuenta nada)
+     */
+    public void allocateStock(Map<Long, Integer> quantitiesByProduct) {
+        SortedMap<Long, Integer> ordered = new TreeMap<>(quantitiesByProduct);
+
+        // Resolver y validar todo antes de modificar stock
+        List<Product> products = new ArrayList<>(ordered.size());
+        for (Map.Entry<Long, Integer> line : ordered.entrySet()) {
+            ValidationUtils.validatePositive(line.getValue(), "quantity");
+            products.add(findProductEntityOrThrow(line.getKey()));
+        }
+
+        allocationLocks.withLocks(ordered.keySet(), () -> {
+            for (Product product : products) {
+                int quantity = ordered.get(product.getProductId());
+                Integer available = product.getStockQty();
+                if (available == null || available < quantity) {
+                    throw new InsufficientStockException(product.getProductId(), product.getSku(),
+                        quantity, available);
+                }
+            }
+
+            int applied = 0;
+            for (Product product : products) {
+                int quantity = ordered.get(product.getProductId());
+                if (!tryTakeStock(product, quantity)) {
+                    // Compensar: devolver lo descontado a las líneas anteriores
+                    for (int i = 0; i < applied; i++) {
+                        Product allocated = products.get(i);
+                        returnStock(allocated, ordered.get(allocated.getProductId()));
+                    }
+                    throw new InsufficientStockException(product.getProductId(), product.getSku(),
+                        quantity, product.getStockQty());
+                }
+                applied++;
+            }
+            return null;
+        });
+        // TODO Etapa 06: productRepository.saveAll(products) en la transacción del checkout
+    }
+
+    /**
+     * Devuelve el stock de varios productos (ej: cancelación de una orden).
+     *
+     * @param quantitiesByProduct Mapa productId → cantidad a devolver
+     * @throws EntityNotFoundException si algún producto no existe
+     */
+    public void releaseStock(Map<Long, Integer> quantitiesByProduct) {
+        for (Map.Entry<Long, Integer> line : new TreeMap<>(quantitiesByProduct).entrySet()) {
+            increaseStock(line.getKey(), line.getValue());
+        }
+    }
+
+    /**
+     * Marca un producto como "hot" (venta flash): desde ahora, addItem y checkout
+     * sobre este producto pasan por una cola de admisión FIFO acotada
+     * (AppConfig.getHotSkuQueueCapacity(), AppConfig.getHotSkuMaxWaitMillis()).
+     *
+     * @param productId ID del producto
+     * @throws EntityNotFoundException si el producto no existe
+     */
+    public void markAsHotSku(Long productId) {
+        findProductEntityOrThrow(productId);
+        hotSkuGates.computeIfAbsent(productId, id -> new AdmissionGate(
+            AppConfig.getHotSkuQueueCapacity(),
+            Duration.ofMillis(AppConfig.getHotSkuMaxWaitMillis())));
+    }
+
+    /**
+     * Quita la marca "hot" de un producto (las solicitudes ya en cola terminan normalmente).
+     *
+     * @param productId ID del producto
+     */
+    public void unmarkHotSku(Long productId) {
+        hotSkuGates.remove(productId);
+    }
+
+    /**
+     * @param productId ID del producto
+     * @return true si el producto está marcado como hot
+     */
+    public boolean isHotSku(Long productId) {
+        return productId != null && hotSkuGates.containsKey(productId);
+    }
+
+    /**
+     * Ejecuta la acción pasando por las colas de admisión de los productos hot involucrados.
+     *
+     * - Si ningún producto es hot, la acción se ejecuta directamente
+     * - Las colas se atraviesan en orden ascendente de productId (sin deadlock)
+     * - Dentro de cada cola se atiende de a una solicitud, en orden de llegada,
+     *   por lo que el stock del producto se entrega en ese mismo orden
+     * - Si requiredFreeStock > 0 y un producto hot no tiene esa cantidad libre,
+     *   se rechaza sin hacer cola
+     *
+     * Debe invocarse antes de cualquier otra validación de CartService/OrderService.
+     *
+     * @param productIds Productos involucrados en la operación
+     * @param requiredFreeStock Unidades libres que necesita la operación por producto
+     *                          (ej: cantidad de addItem); 0 si no descuenta stock libre
+     * @param action Operación a ejecutar
+     * @return Resultado de la acción
+     * @throws AdmissionRejectedException si la cola está llena o se agotó la espera
+     * @throws InsufficientStockException si el producto no tiene requiredFreeStock unidades libres
+     */
+    public <T> T withHotSkuAdmission(Collection<Long> productIds, int requiredFreeStock,
+                                     Supplier<T> action) {
+        if (hotSkuGates.isEmpty()) {
+            return action.get();
+        }
+        List<Long> hotIds = new ArrayList<>();
+        for (Long productId : new TreeSet<>(productIds)) {
+            if (hotSkuGates.containsKey(productId)) {
+                hotIds.add(productId);
+            }
+        }
+        return admitInOrder(hotIds, 0, requiredFreeStock, action);
+    }
+
+    /**
+     * Obtiene las métricas de la cola de admisión de un producto hot.
+     *
+     * @param productId ID del producto
+     * @return AdmissionStatsDTO o null si el producto no es hot
+     */
+    public AdmissionStatsDTO getHotSkuStats(Long productId) {
+        AdmissionGate gate = productId != null ? hotSkuGates.get(productId) : null;
+        if (gate == null) {
+            return null;
+        }
+        AdmissionStatsDTO stats = new AdmissionStatsDTO();
+        stats.setProductId(productId);
+        productsInMemory.findById(productId).ifPresent(p -> stats.setProductSku(p.getSku()));
+        stats.setQueueCapacity(gate.getCapacity());
+        stats.setQueueDepth(gate.getDepth());
+        stats.setMaxQueueDepth(gate.getMaxDepth());
+        stats.setAdmitted(gate.getAdmitted());
+        stats.setRejected(gate.getRejected());
+        stats.setAverageWaitMillis(gate.getAverageWaitMillis());
+        stats.setMaxWaitMillis(gate.getMaxWaitMillis());
+        return stats;
+    }
+
     /**
      * Verifica si existe un producto con el SKU dado.
      *
@@ -306,8 +971,249 @@ public class ProductService {
      */
     public boolean existsBySku(String sku) {
         // TODO Etapa 06: return productRepository.existsBySku(sku);
-        return productsInMemory.stream()
-                .anyMatch(p -> p.getSku().equalsIgnoreCase(sku));
+        return skuIndex.containsKey(sku);
+    }
+
+    /**
+     * Facetas del subárbol a partir de los contadores por (categoría, rango de precio)
+     * que mantiene refreshAvailability, sin recorrer los productos del subárbol.
+     *
+     * - priceBucketCounts: suma de contadores, O(categorías × rangos)
+     * - totalCount / inStockCount / subcategoryCounts: los rangos de precio que el
+     *   filtro [minPrice, maxPrice] cubre completos salen de los contadores; solo se
+     *   recorren en el índice de precio los productos de los rangos de los bordes
+     *   que el filtro corta
+     */
+    private FacetedProductPageDTO countFacets(Long categoryId, Map<Long, Long> branches,
+                                              BigDecimal minPrice, BigDecimal maxPrice,
+                                              boolean inStockOnly) {
+        int buckets = priceBucketLabels.length;
+        int offset = inStockOnly ? 1 : 0;
+
+        // Rangos de precio cubiertos completos por el filtro: [firstFull, lastFull]
+        // (el rango i es [bounds[i - 1], bounds[i]); el primero y el último son abiertos)
+        int firstFull = 0;
+        if (minPrice != null) {
+            firstFull = 1;
+            while (firstFull < buckets && minPrice.compareTo(priceBucketBounds[firstFull - 1]) > 0) {
+                firstFull++;
+            }
+        }
+        int lastFull = buckets - 1;
+        if (maxPrice != null) {
+            lastFull = buckets - 2;
+            while (lastFull >= 0 && maxPrice.compareTo(priceBucketBounds[lastFull]) < 0) {
+                lastFull--;
+            }
+        }
+
+        long[] bucketCounts = new long[buckets];
+        long[] totals = new long[2]; // [0] cumplen filtros, [1] con stock en el rango de precio
+        Map<Long, Long> subcategoryCounts = new LinkedHashMap<>();
+        for (Map.Entry<Long, Long> branch : branches.entrySet()) {
+            if (branch.getKey().equals(branch.getValue()) && !branch.getKey().equals(categoryId)) {
+                subcategoryCounts.put(branch.getKey(), 0L);
+            }
+        }
+
+        for (Map.Entry<Long, Long> branch : branches.entrySet()) {
+            AtomicLongArray counts = facetCountsByCategory.get(branch.getKey());
+            if (counts == null) {
+                continue;
+            }
+            long[] inRange = new long[2];
+            for (int bucket = 0; bucket < buckets; bucket++) {
+                bucketCounts[bucket] += counts.get(bucket * 2 + offset);
+                if (bucket >= firstFull && bucket <= lastFull) {
+                    inRange[0] += counts.get(bucket * 2 + offset);
+                    inRange[1] += counts.get(bucket * 2 + 1);
+                }
+            }
+
+            // Bordes del filtro que cortan un rango de precio: recorrer solo esos productos
+            SortedIndex<BigDecimal, Long, Product> priceIndex = priceIndexByCategory.get(branch.getKey());
+            if (priceIndex != null) {
+                if (firstFull > lastFull) {
+                    countInPriceRange(priceIndex, minPrice, true, maxPrice, true, inStockOnly, inRange);
+                } else {
+                    if (firstFull > 0) {
+                        countInPriceRange(priceIndex, minPrice, true, priceBucketBounds[firstFull - 1], false,
+                            inStockOnly, inRange);
+                    }
+                    if (lastFull < buckets - 1) {
+                        countInPriceRange(priceIndex, priceBucketBounds[lastFull], true, maxPrice, true,
+                            inStockOnly, inRange);
+                    }
+                }
+            }
+
+            totals[0] += inRange[0];
+            totals[1] += inRange[1];
+            Long branchId = branch.getValue();
+            if (!branchId.equals(categoryId)) {
+                subcategoryCounts.merge(branchId, inRange[0], Long::sum);
+            }
+        }
+
+        Map<String, Long> priceBucketCounts = new LinkedHashMap<>();
+        for (int i = 0; i < buckets; i++) {
+            priceBucketCounts.put(priceBucketLabels[i], bucketCounts[i]);
+        }
+
+        FacetedProductPageDTO result = new FacetedProductPageDTO();
+        result.setCategoryId(categoryId);
+        result.setTotalCount(totals[0]);
+        result.setInStockCount(totals[1]);
+        result.setSubcategoryCounts(subcategoryCounts);
+        result.setPriceBucketCounts(priceBucketCounts);
+        return result;
+    }
+
+    // Cuenta [cumplen filtro de stock, con stock] de un tramo del índice de precio
+    private void countInPriceRange(SortedIndex<BigDecimal, Long, Product> priceIndex,
+                                   BigDecimal from, boolean fromInclusive,
+                                   BigDecimal to, boolean toInclusive,
+                                   boolean inStockOnly, long[] counts) {
+        if (from != null && to != null && from.compareTo(to) > 0) {
+            return;
+        }
+        priceIndex.forEachInRange(from, fromInclusive, to, toInclusive, (price, product) -> {
+            boolean inStock = isMarkedInStock(product);
+            if (inStockOnly && !inStock) {
+                return;
+            }
+            counts[0]++;
+            if (inStock) {
+                counts[1]++;
+            }
+        });
+    }
+
+    private int priceBucketOf(BigDecimal price) {
+        int bucket = 0;
+        while (bucket < priceBucketBounds.length && price.compareTo(priceBucketBounds[bucket]) >= 0) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    /**
+     * Mueve el producto entre índices de precio por categoría: sale de
+     * (previousCategoryId, previousPrice) y entra en su categoría y precio
+     * actuales si está activo.
+     */
+    private void reindexForBrowsing(Long previousCategoryId, BigDecimal previousPrice, Product product) {
+        Long productId = product.getProductId();
+        Long categoryId = product.getCategory() != null ? product.getCategory().getCategoryId() : null;
+        BigDecimal price = product.getPrice();
+        boolean indexed = Boolean.TRUE.equals(product.getIsActive()) && categoryId != null && price != null;
+        boolean sameEntry = indexed && categoryId.equals(previousCategoryId) &&
+                            previousPrice != null && previousPrice.compareTo(price) == 0;
+
+        // Primero registrar la entrada nueva: el producto no desaparece durante el cambio
+        if (indexed) {
+            priceIndexByCategory.computeIfAbsent(categoryId, id -> new SortedIndex<>())
+                    .put(price, productId, product);
+        }
+        if (!sameEntry && previousCategoryId != null && previousPrice != null) {
+            SortedIndex<BigDecimal, Long, Product> previousIndex = priceIndexByCategory.get(previousCategoryId);
+            if (previousIndex != null) {
+                previousIndex.remove(previousPrice, productId);
+            }
+        }
+    }
+
+    /**
+     * Actualiza la disponibilidad, los conteos de productos por categoría y los
+     * contadores de facetas con el estado actual del producto, sin locks globales.
+     *
+     * Lo contabilizado por producto (countedStates) avanza con CAS: cada transición
+     * previous → current la instala un solo hilo, que aplica exactamente esa
+     * diferencia a los contadores (atómicos). Tras instalarla se vuelve a leer el
+     * producto: si cambió entre medio (otro hilo pudo instalar un estado más
+     * nuevo antes), se repite. Así el último en terminar deja contabilizado el
+     * estado actual y nunca se cuenta dos veces ni se pierde un cambio.
+     */
+    private void refreshAvailability(Product product) {
+        Long productId = product.getProductId();
+        while (true) {
+            CountedState previous = countedStates.get(productId);
+            CountedState current = countedStateOf(product);
+            if (current.sameAs(previous)) {
+                return;
+            }
+            boolean installed = previous == null
+                ? countedStates.putIfAbsent(productId, current) == null
+                : countedStates.replace(productId, previous, current);
+            if (installed) {
+                applyCountedDelta(previous, current);
+            }
+        }
+    }
+
+    private CountedState countedStateOf(Product product) {
+        boolean active = Boolean.TRUE.equals(product.getIsActive());
+        int priceBucket = product.getPrice() != null ? priceBucketOf(product.getPrice()) : -1;
+        return new CountedState(product.getCategory(), priceBucket, active, active && isInStock(product));
+    }
+
+    // Aplica a facetas y conteos de categoría la transición previous → current de un producto
+    private void applyCountedDelta(CountedState previous, CountedState current) {
+        adjustFacetCounts(previous, -1);
+        adjustFacetCounts(current, 1);
+        if (previous == null) {
+            categoryService.adjustProductCounts(current.category, 1, current.activeCount(), current.inStockCount());
+        } else if (previous.category.equals(current.category)) {
+            categoryService.adjustProductCounts(current.category, 0,
+                current.activeCount() - previous.activeCount(),
+                current.inStockCount() - previous.inStockCount());
+        } else {
+            categoryService.adjustProductCounts(previous.category, -1,
+                -previous.activeCount(), -previous.inStockCount());
+            categoryService.adjustProductCounts(current.category, 1,
+                current.activeCount(), current.inStockCount());
+        }
+    }
+
+    // Disponibilidad según lo último contabilizado (activo y con stock)
+    private boolean isMarkedInStock(Product product) {
+        CountedState state = countedStates.get(product.getProductId());
+        return state != null && state.inStock;
+    }
+
+    // Suma (sign = 1) o resta (sign = -1) el aporte de un producto a las facetas de su categoría
+    private void adjustFacetCounts(CountedState state, int sign) {
+        if (state == null || !state.active || state.priceBucket < 0 || state.category == null) {
+            return;
+        }
+        AtomicLongArray counts = facetCountsByCategory.computeIfAbsent(state.category.getCategoryId(),
+            id -> new AtomicLongArray(priceBucketLabels.length * 2));
+        counts.addAndGet(state.priceBucket * 2, sign);
+        if (state.inStock) {
+            counts.addAndGet(state.priceBucket * 2 + 1, sign);
+        }
+    }
+
+    // Solo los productos activos aparecen en la búsqueda de texto
+    private void updateSearchIndex(Product product) {
+        if (Boolean.TRUE.equals(product.getIsActive())) {
+            searchIndex.index(product);
+        } else {
+            searchIndex.remove(product);
+        }
+    }
+
+    // Página en orden de productId: se consultan pageSize + 1 para saber si hay más
+    private PageDTO<ProductDTO> findProductPage(String cursor, Integer requestedSize,
+                                                Predicate<Product> filter) {
+        int pageSize = Pagination.resolvePageSize(requestedSize,
+            AppConfig.getProductsPerPage(), AppConfig.getMaxProductsPerPage());
+        Long afterId = Pagination.decodeIdCursor(cursor);
+
+        // TODO Etapa 06: productRepository.findByProductIdGreaterThan(afterId, PageRequest.of(0, pageSize + 1))
+        List<Product> fetched = productsInMemory.findPageAfter(afterId, pageSize + 1, filter);
+        return Pagination.toPage(fetched, pageSize,
+            p -> Pagination.encodeCursor(p.getProductId()), productMapper::toDTOList);
     }
 
     /**
@@ -320,17 +1226,77 @@ public class ProductService {
      */
     public Product findProductEntityOrThrow(Long productId) {
         // TODO Etapa 06: return productRepository.findById(productId)
-        return productsInMemory.stream()
-                .filter(p -> p.getProductId().equals(productId))
-                .findFirst()
-                .orElseThrow(() -> new EntityNotFoundException("Product", productId));
-    }
-
-    // Método auxiliar para simular auto-increment
-    private Long generateNextId() {
-        return productsInMemory.stream()
-                .mapToLong(Product::getProductId)
-                .max()
-                .orElse(0L) + 1;
+        return productsInMemory.findByIdOrThrow(productId);
+    }
+
+    /**
+     * Atraviesa recursivamente las colas hotIds[index..] y luego ejecuta la acción.
+     */
+    private <T> T admitInOrder(List<Long> hotIds, int index, int requiredFreeStock,
+                               Supplier<T> action) {
+        if (index == hotIds.size()) {
+            return action.get();
+        }
+        Long productId = hotIds.get(index);
+        AdmissionGate gate = hotSkuGates.get(productId);
+        if (gate == null) {
+            return admitInOrder(hotIds, index + 1, requiredFreeStock, action); // Desmarcado
+        }
+
+        Product product = findProductEntityOrThrow(productId);
+        Integer stock = product.getStockQty();
+        int available = stock != null ? stock : 0;
+        if (requiredFreeStock > 0 && available < requiredFreeStock) {
+            gate.recordRejection(); // Sin stock suficiente: no tiene sentido hacer cola
+            throw new InsufficientStockException(productId, product.getSku(),
+                requiredFreeStock, available);
+        }
+        if (!gate.tryEnter()) {
+            throw new AdmissionRejectedException(productId, product.getSku(),
+                gate.getDepth() >= gate.getCapacity() ? "queue is full" : "wait time exceeded");
+        }
+        try {
+            return admitInOrder(hotIds, index + 1, requiredFreeStock, action);
+        } finally {
+            gate.exit();
+        }
+    }
+
+    private boolean isInStock(Product product) {
+        Integer stock = product.getStockQty();
+        return stock != null && stock > 0;
+    }
+
+    private boolean isActiveAndInStock(Product product) {
+        return Boolean.TRUE.equals(product.getIsActive()) && isInStock(product);
+    }
+
+    // Aporte de un producto a los conteos de categoría (Category.productCounts) y a las facetas
+    private static final class CountedState {
+        private final Category category;
+        private final int priceBucket; // -1 sin precio
+        private final boolean active;
+        private final boolean inStock;
+
+        private CountedState(Category category, int priceBucket, boolean active, boolean inStock) {
+            this.category = category;
+            this.priceBucket = priceBucket;
+            this.active = active;
+            this.inStock = inStock;
+        }
+
+        private long activeCount() {
+            return active ? 1 : 0;
+        }
+
+        private long inStockCount() {
+            return inStock ? 1 : 0;
+        }
+
+        // Mismo aporte (la categoría se compara por identidad: es la entidad del producto)
+        private boolean sameAs(CountedState other) {
+            return other != null && category == other.category && priceBucket == other.priceBucket
+                && active == other.active && inStock == other.inStock;
+        }
     }
 }
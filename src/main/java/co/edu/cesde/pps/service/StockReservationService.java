@@ -0,0 +1,305 @@
+package co.edu.cesde.pps.service;
+
+import co.edu.cesde.pps.config.AppConfig;
+import co.edu.cesde.pps.exception.EntityNotFoundException;
+import co.edu.cesde.pps.exception.InsufficientStockException;
+import co.edu.cesde.pps.model.Product;
+import co.edu.cesde.pps.util.HierarchicalTimingWheel;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Servicio de reservas temporales de stock (holds) por línea de carrito.
+ *
+ * Al agregar un producto al carrito, las unidades se descuentan de
+ * Product.stockQty y quedan retenidas a nombre del carrito durante
+ * AppConfig.getStockHoldTimeoutMinutes(). Así, en ventas flash, las últimas
+ * unidades pertenecen a quien las agregó primero y no a quien llega primero
+ * al checkout.
+ *
+ * Ciclo de vida de una reserva (cartId, productId):
+ * - hold(): crea o ajusta la reserva a la cantidad de la línea y renueva su vencimiento
+ * - release() / releaseAll(): devuelve las unidades al stock (removeItem, clearCart, abandono)
+ * - transferAll(): mueve las reservas de un carrito a otro sin tocar stock (merge)
+ * - claimAll(): el checkout toma las unidades retenidas (ya descontadas del stock)
+ * - releaseExpired(): devuelve al stock las reservas vencidas
+ *
+ * Vencimientos: cada reserva se programa en una rueda de tiempo jerárquica
+ * (programar O(1), vencer O(reservas vencidas)). Renovar una reserva crea una
+ * entrada nueva; la anterior queda obsoleta y se descarta al vencer, porque ya
+ * no es la reserva vigente en el mapa.
+ *
+ * Concurrencia: cada cambio de una reserva es un reemplazo atómico en el mapa
+ * (replace/remove comparando la instancia), por lo que el vencimiento y el
+ * checkout nunca devuelven y consumen las mismas unidades. Los reemplazos se
+ * hacen dentro de holdsByCart.compute() para el carrito, que elimina su entrada
+ * en cuanto queda vacía: un hold concurrente nunca escribe en un mapa ya
+ * descartado. Las operaciones de un mismo carrito deben ejecutarse con el lock
+ * del carrito (ver CartService).
+ *
+ * Las unidades retenidas se contabilizan por producto en ProductService
+ * (tryHoldStock/releaseHeldStock/adjustHeldStock).
+ *
+ * NOTA: En Etapa 06 las reservas se persistirán (tabla stock_holds) para
+ * sobrevivir reinicios.
+ */
+public class StockReservationService {
+
+    // Resolución y niveles de la rueda de vencimientos (1 s x 64^3 ≈ 3 días de rango)
+    private static final Duration HOLD_WHEEL_TICK = Duration.ofSeconds(1);
+    private static final int HOLD_WHEEL_LEVELS = 3;
+
+    private final ProductService productService;
+    // cartId → (productId → reserva vigente)
+    private final Map<Long, Map<Long, StockHold>> holdsByCart;
+    private final HierarchicalTimingWheel<StockHold> expiryWheel;
+
+    public StockReservationService(ProductService productService) {
+        this.productService = productService;
+        this.holdsByCart = new ConcurrentHashMap<>();
+        this.expiryWheel = new HierarchicalTimingWheel<>(HOLD_WHEEL_TICK, HOLD_WHEEL_LEVELS,
+            System.currentTimeMillis());
+    }
+
+    /**
+     * Ajusta la reserva de la línea a exactamente quantity unidades y renueva su vencimiento.
+     * Solo se descuenta (o devuelve) la diferencia con lo ya retenido.
+     *
+     * @param cartId ID del carrito
+     * @param product Producto de la línea
+     * @param quantity Cantidad total de la línea (0 libera la reserva)
+     * @throws InsufficientStockException si no hay stock para la diferencia
+     */
+    public void hold(Long cartId, Product product, int quantity) {
+        if (quantity <= 0) {
+            release(cartId, product.getProductId());
+            return;
+        }
+
+        Long productId = product.getProductId();
+
+        while (true) {
+            StockHold current = currentHold(cartId, productId);
+            int held = current != null ? current.quantity : 0;
+            int delta = quantity - held;
+
+            if (delta > 0 && !productService.tryHoldStock(product, delta)) {
+                Integer stock = product.getStockQty();
+                throw new InsufficientStockException(productId, product.getSku(),
+                    quantity, (stock != null ? stock : 0) + held);
+            }
+
+            StockHold updated = new StockHold(cartId, product, quantity, nextDeadline());
+            if (swapHold(cartId, productId, current, updated)) {
+                if (delta < 0) {
+                    productService.releaseHeldStock(product, -delta);
+                }
+                expiryWheel.schedule(updated, updated.expiresAtMillis);
+                return;
+            }
+
+            // La reserva venció o cambió en medio: deshacer y reintentar
+            if (delta > 0) {
+                productService.releaseHeldStock(product, delta);
+            }
+        }
+    }
+
+    /**
+     * Libera la reserva de una línea y devuelve sus unidades al stock.
+     *
+     * @param cartId ID del carrito
+     * @param productId ID del producto
+     * @return Unidades devueltas al stock
+     */
+    public int release(Long cartId, Long productId) {
+        StockHold hold;
+        do {
+            hold = currentHold(cartId, productId);
+            if (hold == null) {
+                return 0;
+            }
+        } while (!swapHold(cartId, productId, hold, null));
+        productService.releaseHeldStock(hold.product, hold.quantity);
+        return hold.quantity;
+    }
+
+    /**
+     * Libera todas las reservas del carrito (clearCart, abandono).
+     *
+     * @param cartId ID del carrito
+     * @return Unidades devueltas al stock
+     */
+    public int releaseAll(Long cartId) {
+        Map<Long, StockHold> cartHolds = holdsByCart.remove(cartId);
+        if (cartHolds == null) {
+            return 0;
+        }
+        // El mapa ya está fuera de holdsByCart: nadie más lo modifica
+        int released = 0;
+        for (StockHold hold : cartHolds.values()) {
+            productService.releaseHeldStock(hold.product, hold.quantity);
+            released += hold.quantity;
+        }
+        return released;
+    }
+
+    /**
+     * Mueve las reservas de un carrito a otro sin tocar el stock (merge invitado → usuario).
+     * Si el destino ya retiene el producto, las cantidades se suman.
+     *
+     * @param fromCartId Carrito origen
+     * @param toCartId Carrito destino
+     */
+    public void transferAll(Long fromCartId, Long toCartId) {
+        Map<Long, StockHold> source = holdsByCart.remove(fromCartId);
+        if (source == null) {
+            return;
+        }
+        for (StockHold hold : source.values()) {
+            while (true) {
+                StockHold current = currentHold(toCartId, hold.productId);
+                int quantity = hold.quantity + (current != null ? current.quantity : 0);
+                StockHold updated = new StockHold(toCartId, hold.product, quantity, nextDeadline());
+                if (swapHold(toCartId, hold.productId, current, updated)) {
+                    expiryWheel.schedule(updated, updated.expiresAtMillis);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Toma todas las reservas vigentes del carrito para el checkout.
+     * Las unidades ya están descontadas del stock: el checkout solo debe
+     * asignar la diferencia entre la cantidad de cada línea y lo retenido.
+     *
+     * @param cartId ID del carrito
+     * @return Mapa productId → unidades retenidas (vacío si no hay reservas)
+     */
+    public Map<Long, Integer> claimAll(Long cartId) {
+        Map<Long, StockHold> cartHolds = holdsByCart.remove(cartId);
+        if (cartHolds == null) {
+            return Collections.emptyMap();
+        }
+        Map<Long, Integer> claimed = new HashMap<>();
+        for (StockHold hold : cartHolds.values()) {
+            productService.adjustHeldStock(hold.product, -hold.quantity);
+            claimed.put(hold.productId, hold.quantity);
+        }
+        return claimed;
+    }
+
+    /**
+     * Restaura reservas tomadas con claimAll() cuando el checkout falla.
+     * Las unidades siguen descontadas del stock, por lo que no se modifica stock.
+     *
+     * @param cartId ID del carrito
+     * @param claimed Resultado de claimAll()
+     * @throws EntityNotFoundException si algún producto ya no existe
+     */
+    public void restore(Long cartId, Map<Long, Integer> claimed) {
+        if (claimed.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<Long, Integer> entry : claimed.entrySet()) {
+            Product product = productService.findProductEntityOrThrow(entry.getKey());
+            StockHold restored = new StockHold(cartId, product, entry.getValue(), nextDeadline());
+            StockHold current;
+            do {
+                current = currentHold(cartId, entry.getKey());
+            } while (!swapHold(cartId, entry.getKey(), current, restored));
+            productService.adjustHeldStock(product, entry.getValue()
+                - (current != null ? current.quantity : 0));
+            expiryWheel.schedule(restored, restored.expiresAtMillis);
+        }
+    }
+
+    /**
+     * Cantidad retenida actualmente para una línea.
+     *
+     * @param cartId ID del carrito
+     * @param productId ID del producto
+     * @return Unidades retenidas (0 si no hay reserva)
+     */
+    public int getHeldQuantity(Long cartId, Long productId) {
+        StockHold hold = currentHold(cartId, productId);
+        return hold != null ? hold.quantity : 0;
+    }
+
+    /**
+     * Devuelve al stock las reservas vencidas.
+     * Costo proporcional a las reservas vencidas, no al total de reservas.
+     *
+     * @return Cantidad de reservas liberadas
+     */
+    public int releaseExpired() {
+        int released = 0;
+        for (StockHold hold : expiryWheel.advance(System.currentTimeMillis())) {
+            // Solo liberar si sigue siendo la reserva vigente (no renovada ni consumida)
+            if (swapHold(hold.cartId, hold.productId, hold, null)) {
+                productService.releaseHeldStock(hold.product, hold.quantity);
+                released++;
+            }
+        }
+        return released;
+    }
+
+    private StockHold currentHold(Long cartId, Long productId) {
+        Map<Long, StockHold> cartHolds = holdsByCart.get(cartId);
+        return cartHolds != null ? cartHolds.get(productId) : null;
+    }
+
+    /**
+     * Reemplaza la reserva vigente de una línea si sigue siendo expected.
+     * Corre dentro de compute() del carrito: crea su mapa si falta y lo elimina
+     * de holdsByCart si queda vacío, sin carreras con otros reemplazos.
+     *
+     * @param expected Reserva leída (null = no había)
+     * @param updated Nueva reserva (null = eliminar)
+     * @return true si se reemplazó
+     */
+    private boolean swapHold(Long cartId, Long productId, StockHold expected, StockHold updated) {
+        boolean[] swapped = new boolean[1];
+        holdsByCart.compute(cartId, (id, cartHolds) -> {
+            Map<Long, StockHold> holds = cartHolds != null ? cartHolds : new ConcurrentHashMap<>();
+            if (updated == null) {
+                swapped[0] = expected != null && holds.remove(productId, expected);
+            } else if (expected == null) {
+                swapped[0] = holds.putIfAbsent(productId, updated) == null;
+            } else {
+                swapped[0] = holds.replace(productId, expected, updated);
+            }
+            return holds.isEmpty() ? null : holds;
+        });
+        return swapped[0];
+    }
+
+    private long nextDeadline() {
+        return System.currentTimeMillis()
+            + Duration.ofMinutes(AppConfig.getStockHoldTimeoutMinutes()).toMillis();
+    }
+
+    /**
+     * Reserva vigente de una línea (inmutable: cada cambio crea una instancia nueva).
+     */
+    private static final class StockHold {
+        private final Long cartId;
+        private final Long productId;
+        private final Product product;
+        private final int quantity;
+        private final long expiresAtMillis;
+
+        private StockHold(Long cartId, Product product, int quantity, long expiresAtMillis) {
+            this.cartId = cartId;
+            this.productId = product.getProductId();
+            this.product = product;
+            this.quantity = quantity;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -1,17 +1,22 @@
 package co.edu.cesde.pps.service;
 
+import co.edu.cesde.pps.dto.PageDTO;
 import co.edu.cesde.pps.dto.UserDTO;
 import co.edu.cesde.pps.exception.DuplicateEntityException;
 import co.edu.cesde.pps.exception.EntityNotFoundException;
 import co.edu.cesde.pps.mapper.UserMapper;
 import co.edu.cesde.pps.model.Role;
 import co.edu.cesde.pps.model.User;
+import co.edu.cesde.pps.repository.InMemoryRepository;
+import co.edu.cesde.pps.repository.UniqueIndex;
+import co.edu.cesde.pps.util.Pagination;
 import co.edu.cesde.pps.util.ValidationUtils;
+import co.edu.cesde.pps.util.IdGenerator;
+import co.edu.cesde.pps.util.SequenceIdGenerator;
 import co.edu.cesde.pps.config.AppConfig;
 import co.edu.cesde.pps.enums.UserStatus;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -33,12 +38,16 @@ public class UserService {
 
     private final UserMapper userMapper;
     // TODO Etapa 06: private final UserRepository userRepository;
-    // Por ahora trabajamos con lista en memoria
-    private final List<User> usersInMemory;
+    // Por ahora trabajamos con un repositorio en memoria indexado por PK
+    private final InMemoryRepository<User, Long> usersInMemory;
+    private final IdGenerator idGenerator;
+    private final UniqueIndex<User> emailIndex;
 
     public UserService() {
         this.userMapper = new UserMapper();
-        this.usersInMemory = new ArrayList<>();
+        this.usersInMemory = new InMemoryRepository<>("User", User::getUserId);
+        this.idGenerator = new SequenceIdGenerator("User");
+        this.emailIndex = new UniqueIndex<>("User", "email");
     }
 
     /**
@@ -78,13 +87,14 @@ public class UserService {
 
         User user = new User(defaultRole, email.toLowerCase().trim(), passwordHash,
                             firstName.trim(), lastName.trim());
-        user.setUserId(generateNextId()); // Simula auto-increment
+        user.setUserId(idGenerator.nextId()); // Simula auto-increment
         user.setPhone(phone != null ? phone.trim() : null);
         user.setStatus(UserStatus.ACTIVE);
         user.setCreatedAt(LocalDateTime.now());
 
         // TODO Etapa 06: userRepository.save(user);
-        usersInMemory.add(user);
+        emailIndex.put(user.getEmail(), user);
+        usersInMemory.save(user);
 
         return userMapper.toDTO(user);
     }
@@ -110,9 +120,7 @@ public class UserService {
      */
     public UserDTO findByEmail(String email) {
         // TODO Etapa 06: User user = userRepository.findByEmail(email)
-        User user = usersInMemory.stream()
-                .filter(u -> u.getEmail().equalsIgnoreCase(email))
-                .findFirst()
+        User user = emailIndex.find(email)
                 .orElseThrow(() -> new EntityNotFoundException("User with email: " + email));
 
         return userMapper.toDTO(user);
@@ -125,7 +133,25 @@ public class UserService {
      */
     public List<UserDTO> findAllUsers() {
         // TODO Etapa 06: List<User> users = userRepository.findAll();
-        return userMapper.toDTOList(usersInMemory);
+        return userMapper.toDTOList(usersInMemory.findAll());
+    }
+
+    /**
+     * Lista una página de usuarios (paginación por cursor).
+     *
+     * @param cursor Cursor de la página anterior (null = primera página)
+     * @param pageSize Tamaño de página (null = AppConfig.getDefaultPageSize())
+     * @return Página de UserDTO
+     * @throws ValidationException si el cursor es inválido
+     */
+    public PageDTO<UserDTO> findAllUsers(String cursor, Integer pageSize) {
+        int size = Pagination.resolvePageSize(pageSize);
+        Long afterId = Pagination.decodeIdCursor(cursor);
+
+        // TODO Etapa 06: userRepository.findByUserIdGreaterThan(afterId, PageRequest.of(0, size + 1))
+        List<User> fetched = usersInMemory.findPageAfter(afterId, size + 1);
+        return Pagination.toPage(fetched, size,
+            u -> Pagination.encodeCursor(u.getUserId()), userMapper::toDTOList);
     }
 
     /**
@@ -186,8 +212,7 @@ public class UserService {
      */
     public boolean existsByEmail(String email) {
         // TODO Etapa 06: return userRepository.existsByEmail(email);
-        return usersInMemory.stream()
-                .anyMatch(u -> u.getEmail().equalsIgnoreCase(email));
+        return emailIndex.containsKey(email);
     }
 
     /**
@@ -201,17 +226,6 @@ public class UserService {
     public User findUserEntityOrThrow(Long userId) {
         // TODO Etapa 06: return userRepository.findById(userId)
         //     .orElseThrow(() -> new EntityNotFoundException("User", userId));
-        return usersInMemory.stream()
-                .filter(u -> u.getUserId().equals(userId))
-                .findFirst()
-                .orElseThrow(() -> new EntityNotFoundException("User", userId));
-    }
-
-    // Método auxiliar para simular auto-increment en memoria
-    private Long generateNextId() {
-        return usersInMemory.stream()
-                .mapToLong(User::getUserId)
-                .max()
-                .orElse(0L) + 1;
+        return usersInMemory.findByIdOrThrow(userId);
     }
 }
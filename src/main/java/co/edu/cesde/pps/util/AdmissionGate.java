@@ -0,0 +1,146 @@
+package co.edu.cesde.pps.util;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cola de admisión FIFO acotada para un recurso muy disputado (ej: un SKU en venta flash).
+ *
+ * Las solicitudes se atienden de a una y en orden de llegada (ReentrantLock justo).
+ * Para no acumular hilos esperando algo que probablemente no obtendrán:
+ * - Si la cola ya tiene capacity solicitudes (en espera + en servicio), se rechaza de inmediato
+ * - Si la espera supera maxWait, se rechaza
+ *
+ * Métricas: profundidad actual y máxima, admitidas, rechazadas, espera total y máxima.
+ *
+ * Uso:
+ * <pre>
+ * if (gate.tryEnter()) {
+ *     try { ... } finally { gate.exit(); }
+ * }
+ * </pre>
+ *
+ * Thread-safety: seguro para uso concurrente.
+ */
+public class AdmissionGate {
+
+    private final int capacity;
+    private final long maxWaitNanos;
+    private final ReentrantLock lock;
+
+    private final AtomicInteger depth;
+    private final AtomicInteger maxDepth;
+    private final LongAdder admitted;
+    private final LongAdder rejected;
+    private final LongAdder totalWaitNanos;
+    private final AtomicLong maxWaitNanosObserved;
+
+    /**
+     * @param capacity Máximo de solicitudes en cola (en espera + en servicio)
+     * @param maxWait Espera máxima antes de rechazar
+     * @throws IllegalArgumentException si capacity es menor que 1
+     */
+    public AdmissionGate(int capacity, Duration maxWait) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be >= 1, got: " + capacity);
+        }
+        this.capacity = capacity;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.lock = new ReentrantLock(true); // Justo: orden de llegada
+        this.depth = new AtomicInteger();
+        this.maxDepth = new AtomicInteger();
+        this.admitted = new LongAdder();
+        this.rejected = new LongAdder();
+        this.totalWaitNanos = new LongAdder();
+        this.maxWaitNanosObserved = new AtomicLong();
+    }
+
+    /**
+     * Intenta entrar a la sección protegida, esperando su turno.
+     *
+     * @return true si fue admitida (debe llamarse exit()); false si fue rechazada
+     */
+    public boolean tryEnter() {
+        int current = depth.incrementAndGet();
+        if (current > capacity) {
+            depth.decrementAndGet();
+            rejected.increment();
+            return false; // Cola llena: rechazo inmediato
+        }
+        maxDepth.accumulateAndGet(current, Math::max);
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = lock.tryLock(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        long waited = System.nanoTime() - start;
+
+        if (!acquired) {
+            depth.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        admitted.increment();
+        totalWaitNanos.add(waited);
+        maxWaitNanosObserved.accumulateAndGet(waited, Math::max);
+        return true;
+    }
+
+    /**
+     * Sale de la sección protegida y cede el turno al siguiente en la cola.
+     */
+    public void exit() {
+        depth.decrementAndGet();
+        lock.unlock();
+    }
+
+    /**
+     * Registra un rechazo decidido fuera de la cola (ej: producto agotado).
+     */
+    public void recordRejection() {
+        rejected.increment();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getDepth() {
+        return depth.get();
+    }
+
+    public int getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return Espera promedio de las solicitudes admitidas (ms)
+     */
+    public double getAverageWaitMillis() {
+        long count = admitted.sum();
+        return count == 0 ? 0.0 : totalWaitNanos.sum() / (double) count / 1_000_000.0;
+    }
+
+    /**
+     * @return Espera máxima observada de una solicitud admitida (ms)
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanosObserved.get() / 1_000_000.0;
+    }
+}
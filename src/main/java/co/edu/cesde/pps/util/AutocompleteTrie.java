@@ -0,0 +1,343 @@
+package co.edu.cesde.pps.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Trie inmutable y compacto para autocompletado (type-ahead) con las mejores
+ * sugerencias precalculadas por prefijo.
+ *
+ * Cada texto se normaliza con StringUtils.tokenize (sin acentos, minúsculas,
+ * palabras separadas por un espacio) y se indexa desde el inicio de cada palabra:
+ * "Cámara Digital 20MP" responde a "cam", "dig" y "20".
+ *
+ * Layout compacto (sin un objeto por nodo): los nodos se guardan en arreglos
+ * paralelos en orden BFS; los hijos de un nodo son contiguos y están ordenados
+ * por caracter, por lo que bajar un nivel es una búsqueda binaria. Cada nodo
+ * guarda en topIds las MAX_SUGGESTIONS_PER_NODE entradas de mayor puntaje de su
+ * subárbol (sin repetir ID), calculadas una sola vez al construir.
+ *
+ * Consulta: O(largo del prefijo × log del alfabeto), sin recorrer el subárbol ni
+ * ordenar; su costo no depende de la cantidad de textos indexados.
+ *
+ * Al ser inmutable, se reconstruye completo (build) y se publica reemplazando la
+ * referencia (volatile): las consultas nunca se bloquean durante la reconstrucción.
+ *
+ * Thread-safety: inmutable, seguro para uso concurrente.
+ */
+public final class AutocompleteTrie {
+
+    /**
+     * Sugerencias precalculadas por prefijo
+     */
+    public static final int MAX_SUGGESTIONS_PER_NODE = 16;
+
+    private static final AutocompleteTrie EMPTY = build(Collections.emptyList());
+
+    private final char[] labels;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final int[] topOffset;
+    private final int[] topCount;
+    private final long[] topIds;
+    private final int entryCount;
+
+    private AutocompleteTrie(char[] labels, int[] firstChild, int[] childCount,
+                             int[] topOffset, int[] topCount, long[] topIds, int entryCount) {
+        this.labels = labels;
+        this.firstChild = firstChild;
+        this.childCount = childCount;
+        this.topOffset = topOffset;
+        this.topCount = topCount;
+        this.topIds = topIds;
+        this.entryCount = entryCount;
+    }
+
+    /**
+     * @return Trie sin entradas
+     */
+    public static AutocompleteTrie empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Define una entrada del trie.
+     *
+     * @param text Texto a autocompletar (ej: nombre del producto)
+     * @param id ID retornado como sugerencia (ej: productId)
+     * @param score Puntaje de popularidad (mayor = primero)
+     * @return Entrada
+     */
+    public static Entry entry(String text, long id, long score) {
+        return new Entry(text, id, score);
+    }
+
+    /**
+     * Construye el trie a partir de las entradas.
+     *
+     * @param entries Entradas a indexar
+     * @return Trie inmutable
+     */
+    public static AutocompleteTrie build(Collection<Entry> entries) {
+        List<Entry> entryList = new ArrayList<>(entries);
+        // Claves: texto normalizado desde el inicio de cada palabra → índice de entrada
+        List<Key> keys = new ArrayList<>();
+        for (int e = 0; e < entryList.size(); e++) {
+            String normalized = normalize(entryList.get(e).text);
+            for (int i = 0; i < normalized.length(); i++) {
+                if (i == 0 || normalized.charAt(i - 1) == ' ') {
+                    keys.add(new Key(normalized.substring(i), e));
+                }
+            }
+        }
+        keys.sort(Comparator.comparing(key -> key.text));
+
+        Builder builder = new Builder(entryList, keys);
+        return builder.build();
+    }
+
+    /**
+     * Normaliza un texto o prefijo para el trie: términos sin acentos en
+     * minúsculas separados por un espacio.
+     *
+     * @param text Texto
+     * @return Texto normalizado
+     */
+    public static String normalize(String text) {
+        return String.join(" ", StringUtils.tokenize(text));
+    }
+
+    /**
+     * Obtiene los IDs sugeridos para un prefijo, por puntaje descendente.
+     *
+     * @param prefix Lo que el usuario lleva escrito
+     * @param limit Cantidad máxima (hasta MAX_SUGGESTIONS_PER_NODE)
+     * @return IDs sugeridos (vacío si el prefijo está en blanco o no coincide)
+     */
+    public List<Long> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        int node = 0;
+        for (int i = 0; i < normalized.length(); i++) {
+            node = findChild(node, normalized.charAt(i));
+            if (node < 0) {
+                return Collections.emptyList();
+            }
+        }
+
+        int count = Math.min(topCount[node], limit);
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(topIds[topOffset[node] + i]);
+        }
+        return ids;
+    }
+
+    /**
+     * @return Cantidad de entradas indexadas
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return Cantidad de nodos del trie
+     */
+    public int getNodeCount() {
+        return labels.length;
+    }
+
+    private int findChild(int node, char c) {
+        int lo = firstChild[node];
+        int hi = lo + childCount[node] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (labels[mid] < c) {
+                lo = mid + 1;
+            } else if (labels[mid] > c) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Entrada del trie: texto, ID y puntaje.
+     */
+    public static final class Entry {
+        private final String text;
+        private final long id;
+        private final long score;
+
+        private Entry(String text, long id, long score) {
+            this.text = text;
+            this.id = id;
+            this.score = score;
+        }
+    }
+
+    private static final class Key {
+        private final String text;
+        private final int entry;
+
+        private Key(String text, int entry) {
+            this.text = text;
+            this.entry = entry;
+        }
+    }
+
+    // Construcción BFS sobre las claves ordenadas: cada nodo cubre un rango contiguo
+    private static final class Builder {
+        private final List<Entry> entries;
+        private final List<Key> keys;
+        private final Comparator<Integer> byRank;
+
+        private char[] labels = new char[16];
+        private int[] firstChild = new int[16];
+        private int[] childCount = new int[16];
+        private int[] rangeStart = new int[16];   // primera clave del subárbol
+        private int[] terminalEnd = new int[16];  // fin de las claves que terminan en el nodo
+        private int[] rangeEnd = new int[16];
+        private int[] depth = new int[16];
+        private int size;
+
+        private Builder(List<Entry> entries, List<Key> keys) {
+            this.entries = entries;
+            this.keys = keys;
+            this.byRank = (a, b) -> {
+                Entry ea = entries.get(a);
+                Entry eb = entries.get(b);
+                int byScore = Long.compare(eb.score, ea.score);
+                return byScore != 0 ? byScore : Long.compare(ea.id, eb.id);
+            };
+        }
+
+        private AutocompleteTrie build() {
+            addNode('\0', 0, 0, keys.size());
+            for (int node = 0; node < size; node++) {
+                expand(node);
+            }
+
+            // Top-k de abajo hacia arriba: los hijos siempre tienen índice mayor que el padre
+            int[][] top = new int[size][];
+            int totalTop = 0;
+            for (int node = size - 1; node >= 0; node--) {
+                top[node] = rank(node, top);
+                if (!sharesChildTop(node, top)) {
+                    totalTop += top[node].length;
+                }
+            }
+
+            // Las cadenas sin bifurcación comparten la lista de su único hijo
+            int[] topOffset = new int[size];
+            int[] topCount = new int[size];
+            long[] topIds = new long[totalTop];
+            int offset = 0;
+            for (int node = size - 1; node >= 0; node--) {
+                topCount[node] = top[node].length;
+                if (sharesChildTop(node, top)) {
+                    topOffset[node] = topOffset[firstChild[node]];
+                    continue;
+                }
+                topOffset[node] = offset;
+                for (int entry : top[node]) {
+                    topIds[offset++] = entries.get(entry).id;
+                }
+            }
+
+            return new AutocompleteTrie(Arrays.copyOf(labels, size), Arrays.copyOf(firstChild, size),
+                Arrays.copyOf(childCount, size), topOffset, topCount, Arrays.copyOf(topIds, offset),
+                entries.size());
+        }
+
+        private boolean sharesChildTop(int node, int[][] top) {
+            return childCount[node] == 1 && top[node] == top[firstChild[node]];
+        }
+
+        // Crea los hijos del nodo (contiguos, en orden de caracter) a partir de su rango
+        private void expand(int node) {
+            int d = depth[node];
+            int i = rangeStart[node];
+            int end = rangeEnd[node];
+            while (i < end && keys.get(i).text.length() == d) {
+                i++; // Las claves que terminan aquí van primero en el orden
+            }
+            terminalEnd[node] = i;
+            firstChild[node] = size;
+            while (i < end) {
+                char c = keys.get(i).text.charAt(d);
+                int groupStart = i;
+                while (i < end && keys.get(i).text.charAt(d) == c) {
+                    i++;
+                }
+                addNode(c, d + 1, groupStart, i);
+            }
+            childCount[node] = size - firstChild[node];
+        }
+
+        private int[] rank(int node, int[][] top) {
+            if (terminalEnd[node] == rangeStart[node] && childCount[node] == 1) {
+                return top[firstChild[node]]; // Sin bifurcación: mismas sugerencias que el hijo
+            }
+            List<Integer> candidates = new ArrayList<>();
+            for (int k = rangeStart[node]; k < terminalEnd[node]; k++) {
+                candidates.add(keys.get(k).entry);
+            }
+            for (int child = firstChild[node]; child < firstChild[node] + childCount[node]; child++) {
+                for (int entry : top[child]) {
+                    candidates.add(entry);
+                }
+            }
+            candidates.sort(byRank);
+
+            int[] best = new int[Math.min(candidates.size(), MAX_SUGGESTIONS_PER_NODE)];
+            int count = 0;
+            for (int entry : candidates) {
+                if (count == best.length) {
+                    break;
+                }
+                // Una entrada puede llegar por varias palabras (ej: "camara camaron" bajo "cam")
+                if (!containsId(best, count, entries.get(entry).id)) {
+                    best[count++] = entry;
+                }
+            }
+            return count == best.length ? best : Arrays.copyOf(best, count);
+        }
+
+        private boolean containsId(int[] selected, int count, long id) {
+            for (int i = 0; i < count; i++) {
+                if (entries.get(selected[i]).id == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void addNode(char label, int nodeDepth, int start, int end) {
+            if (size == labels.length) {
+                int capacity = size * 2;
+                labels = Arrays.copyOf(labels, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                childCount = Arrays.copyOf(childCount, capacity);
+                rangeStart = Arrays.copyOf(rangeStart, capacity);
+                terminalEnd = Arrays.copyOf(terminalEnd, capacity);
+                rangeEnd = Arrays.copyOf(rangeEnd, capacity);
+                depth = Arrays.copyOf(depth, capacity);
+            }
+            labels[size] = label;
+            depth[size] = nodeDepth;
+            rangeStart[size] = start;
+            rangeEnd[size] = end;
+            size++;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package co.edu.cesde.pps.util;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 
@@ -153,6 +154,17 @@ public final class DateTimeUtils {
         return dateTime.plusHours(hours);
     }
 
+    /**
+     * Convierte una fecha a milisegundos desde epoch usando la zona del sistema
+     * (misma zona en la que LocalDateTime.now() genera las fechas del modelo)
+     *
+     * @param dateTime Fecha a convertir
+     * @return Milisegundos desde epoch
+     */
+    public static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
     /**
      * Formatea una fecha con el formato por defecto
      *
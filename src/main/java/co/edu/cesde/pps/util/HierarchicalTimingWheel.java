@@ -0,0 +1,165 @@
+package co.edu.cesde.pps.util;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rueda de tiempo jerárquica (hierarchical timing wheel) para vencimientos masivos.
+ *
+ * Permite programar millones de vencimientos (ej: carritos que deben pasar a
+ * ABANDONED) y recuperar solo los que vencieron, sin recorrer todos los pendientes.
+ *
+ * Estructura:
+ * - Nivel 0: 64 slots de tickDuration cada uno
+ * - Nivel L: 64 slots de tickDuration * 64^L cada uno
+ * Con tick de 1 minuto y 3 niveles se cubren ~182 días.
+ *
+ * Costos:
+ * - schedule(): O(1)
+ * - advance(): O(ticks transcurridos + elementos vencidos + elementos re-ubicados);
+ *   cada elemento desciende de nivel a lo sumo (levels - 1) veces
+ *
+ * Los elementos con vencimiento más allá del rango de la rueda se ubican en el
+ * último nivel y se re-programan al llegar a su slot hasta que realmente vencen.
+ *
+ * Thread-safety: schedule() y advance() están sincronizados; ambas secciones
+ * críticas son cortas, por lo que programar no bloquea de forma apreciable a
+ * quien lo invoque mientras otro hilo avanza la rueda.
+ *
+ * @param <T> Tipo de elemento programado
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS; // 64 slots por nivel
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private final long tickMillis;
+    private final int levels;
+    private final long maxDelta;
+    private final ArrayDeque<Entry<T>>[][] wheels;
+
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickDuration Resolución de la rueda (ej: 1 minuto)
+     * @param levels Cantidad de niveles (1 a 5)
+     * @param startMillis Instante inicial (epoch millis)
+     * @throws IllegalArgumentException si los parámetros no son válidos
+     */
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(Duration tickDuration, int levels, long startMillis) {
+        if (tickDuration.toMillis() < 1) {
+            throw new IllegalArgumentException("tickDuration must be at least 1 ms");
+        }
+        if (levels < 1 || levels > 5) {
+            throw new IllegalArgumentException("levels must be between 1 and 5, got: " + levels);
+        }
+        this.tickMillis = tickDuration.toMillis();
+        this.levels = levels;
+        this.maxDelta = (1L << (WHEEL_BITS * levels)) - 1;
+        this.wheels = new ArrayDeque[levels][WHEEL_SIZE];
+        for (int level = 0; level < levels; level++) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                wheels[level][slot] = new ArrayDeque<>();
+            }
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Programa un elemento para vencer en deadlineMillis.
+     * Si el vencimiento ya pasó, el elemento se retorna en el siguiente avance.
+     *
+     * @param item Elemento a programar
+     * @param deadlineMillis Vencimiento (epoch millis)
+     */
+    public synchronized void schedule(T item, long deadlineMillis) {
+        long deadlineTick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        place(new Entry<>(item, deadlineTick));
+        size++;
+    }
+
+    /**
+     * Avanza la rueda hasta nowMillis y retorna los elementos vencidos.
+     *
+     * @param nowMillis Instante actual (epoch millis)
+     * @return Elementos cuyo vencimiento es menor o igual a nowMillis
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        List<T> expired = new ArrayList<>();
+
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                currentTick = targetTick; // Rueda vacía: saltar directamente
+                break;
+            }
+            currentTick++;
+
+            // Descender elementos de niveles superiores (de arriba hacia abajo)
+            for (int level = levels - 1; level >= 1; level--) {
+                long levelSpan = 1L << (WHEEL_BITS * level);
+                if ((currentTick & (levelSpan - 1)) == 0) {
+                    cascade(level, (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK));
+                }
+            }
+
+            // Expirar el slot actual del nivel 0
+            ArrayDeque<Entry<T>> slot = wheels[0][(int) (currentTick & WHEEL_MASK)];
+            int pending = slot.size();
+            for (int i = 0; i < pending; i++) {
+                Entry<T> entry = slot.poll();
+                if (entry.deadlineTick <= currentTick) {
+                    expired.add(entry.item);
+                    size--;
+                } else {
+                    place(entry); // Vencimiento fuera de rango: re-programar
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * @return Cantidad de elementos programados pendientes
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private void cascade(int level, int slotIndex) {
+        ArrayDeque<Entry<T>> slot = wheels[level][slotIndex];
+        int pending = slot.size();
+        for (int i = 0; i < pending; i++) {
+            place(slot.poll());
+        }
+    }
+
+    private void place(Entry<T> entry) {
+        // Nunca ubicar en el tick actual (ya procesado) ni en el pasado
+        long tick = Math.max(entry.deadlineTick, currentTick + 1);
+        long delta = Math.min(tick - currentTick, maxDelta);
+        tick = currentTick + delta;
+
+        int level = 0;
+        while (level < levels - 1 && delta >= (1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+        int slotIndex = (int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        wheels[level][slotIndex].add(entry);
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        private final long deadlineTick;
+
+        private Entry(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
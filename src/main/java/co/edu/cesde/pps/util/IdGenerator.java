@@ -0,0 +1,34 @@
+package co.edu.cesde.pps.util;
+
+/**
+ * Estrategia de generación de identificadores (PK) para entidades en memoria.
+ *
+ * Cada servicio mantiene un generador por entidad (Cart, CartItem, Order, etc.)
+ * en lugar de calcular max(id) + 1 sobre su colección en cada inserción.
+ *
+ * Las implementaciones deben ser thread-safe y de costo O(1) por llamada.
+ *
+ * NOTA: En Etapa 06, con persistencia real, el ID lo asigna la base de datos
+ * (AUTO_INCREMENT) y este generador solo se usa en modo en memoria.
+ */
+public interface IdGenerator {
+
+    /**
+     * Obtiene el siguiente ID disponible.
+     *
+     * @return ID único para la entidad
+     */
+    Long nextId();
+
+    /**
+     * Continúa la generación después de un ID ya emitido (ej: al reconstruir el
+     * estado desde un almacén existente), para no volver a emitirlo.
+     *
+     * Por defecto no hace nada: sirve para generadores cuyos IDs no dependen de
+     * lo ya emitido (Snowflake, basado en tiempo).
+     *
+     * @param issuedId ID emitido previamente (null se ignora)
+     */
+    default void continueAfter(Long issuedId) {
+    }
+}
@@ -0,0 +1,75 @@
+package co.edu.cesde.pps.util;
+
+import co.edu.cesde.pps.config.AppConfig;
+
+/**
+ * Fábrica de generadores de ID según la estrategia configurada.
+ *
+ * Estrategias (AppConfig.getIdStrategy()):
+ * - "sequence": SequenceIdGenerator por entidad (IDs 1, 2, 3... en un solo nodo)
+ * - "snowflake": SnowflakeIdGenerator compartido por el nodo (IDs de 64 bits
+ *   únicos entre nodos, ver AppConfig.getNodeId())
+ *
+ * Se usa para las entidades de alto volumen que deben escalar horizontalmente:
+ * Order, Cart, CartItem, OrderItem y Payment. Las entidades de catálogo
+ * (User, Product, Category...) siguen con secuencias.
+ *
+ * Para modo JPA existe SnowflakeHibernateIdGenerator, que aún no está mapeado
+ * en ninguna entidad (TODO Etapa 07, ver esa clase).
+ */
+public final class IdGenerators {
+
+    public static final String STRATEGY_SEQUENCE = "sequence";
+    public static final String STRATEGY_SNOWFLAKE = "snowflake";
+
+    private IdGenerators() {
+        throw new AssertionError("IdGenerators is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Crea el generador de IDs para una entidad.
+     *
+     * @param entityName Nombre de la entidad (ej: "Order")
+     * @return Generador según la estrategia configurada
+     */
+    public static IdGenerator forEntity(String entityName) {
+        return forEntity(entityName, 1);
+    }
+
+    /**
+     * Crea el generador de IDs para una entidad con pre-asignación por bloques
+     * (solo aplica a la estrategia "sequence").
+     *
+     * @param entityName Nombre de la entidad (ej: "CartItem")
+     * @param blockSize IDs reservados por hilo en cada acceso al contador
+     * @return Generador según la estrategia configurada
+     */
+    public static IdGenerator forEntity(String entityName, int blockSize) {
+        if (isSnowflakeStrategy()) {
+            return snowflake();
+        }
+        return new SequenceIdGenerator(entityName, blockSize);
+    }
+
+    /**
+     * Obtiene el generador Snowflake del nodo (único por proceso: dos instancias
+     * con el mismo nodeId podrían emitir el mismo ID).
+     *
+     * @return Generador Snowflake compartido
+     */
+    public static SnowflakeIdGenerator snowflake() {
+        return SnowflakeHolder.INSTANCE;
+    }
+
+    /**
+     * @return true si la estrategia configurada es "snowflake"
+     */
+    public static boolean isSnowflakeStrategy() {
+        return STRATEGY_SNOWFLAKE.equalsIgnoreCase(AppConfig.getIdStrategy());
+    }
+
+    // Inicialización perezosa y segura entre hilos (holder idiom)
+    private static final class SnowflakeHolder {
+        private static final SnowflakeIdGenerator INSTANCE = new SnowflakeIdGenerator(AppConfig.getNodeId());
+    }
+}
@@ -0,0 +1,183 @@
+package co.edu.cesde.pps.util;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generador de números de orden únicos por nodo y por día, sin locks.
+ *
+ * Formato: {PREFIX}{yyyyMMdd}-{NNNN}-{SSSSSS}
+ * Ejemplo: ORD-20260203-0001-000123
+ * - NNNN: ID del nodo (0 a 1023), distingue instancias de la aplicación
+ * - SSSSSS: secuencia del día en el nodo (crece a más dígitos si supera 999999)
+ *
+ * A diferencia del sufijo aleatorio anterior (colisiones por paradoja del
+ * cumpleaños a partir de ~1000 órdenes diarias), dos números de un mismo nodo y
+ * día nunca se repiten, y nodos distintos nunca comparten número.
+ *
+ * Implementación:
+ * - Día y secuencia se empaquetan en un único AtomicLong (día en los 32 bits
+ *   altos, secuencia en los bajos) y avanzan juntos con compareAndSet
+ * - Al cambiar el día la secuencia vuelve a 1; si el reloj retrocede se
+ *   continúa con el día ya emitido (no se reutilizan números)
+ * - La fecha formateada se cachea por día: no se crean formatters ni se usa
+ *   String.format por llamada
+ *
+ * Reinicios: la secuencia vive en memoria, por lo que al iniciar debe
+ * continuarse desde los números ya guardados con continueAfter() (ver
+ * OrderService). Sin eso, un reinicio en el mismo día volvería a emitir
+ * 000001 y el número chocaría con UniqueIndex / la restricción única de BD.
+ *
+ * Contención: todas las órdenes del nodo hacen CAS sobre el mismo AtomicLong.
+ * Es aceptable porque se genera un número por checkout y cada checkout ya
+ * serializa trabajo mucho más caro (lock del carrito, CAS de stock por línea,
+ * índices de órdenes); un CAS fallido se reintenta en nanosegundos. Repartir
+ * la secuencia en bloques por hilo rompería el orden creciente por día, que
+ * es lo que permite continuar desde el máximo guardado.
+ *
+ * Thread-safety: seguro para uso concurrente.
+ */
+public class OrderNumberGenerator {
+
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.BASIC_ISO_DATE; // yyyyMMdd
+    private static final int NODE_DIGITS = 4;
+    private static final int SEQUENCE_DIGITS = 6;
+    private static final long SEQUENCE_MASK = 0xFFFFFFFFL;
+
+    private final String prefix;
+    private final String nodePart;
+    private final Clock clock;
+
+    // [epochDay (32 bits) | secuencia (32 bits)]
+    private final AtomicLong daySequence;
+    private volatile DayPrefix cachedDay;
+
+    /**
+     * @param prefix Prefijo de la orden (ej: AppConfig.getOrderNumberPrefix())
+     * @param nodeId ID del nodo (0 a 1023)
+     */
+    public OrderNumberGenerator(String prefix, int nodeId) {
+        this(prefix, nodeId, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param prefix Prefijo de la orden
+     * @param nodeId ID del nodo (0 a 1023)
+     * @param clock Reloj usado para la fecha (inyectable en pruebas)
+     * @throws IllegalArgumentException si nodeId está fuera de rango
+     */
+    public OrderNumberGenerator(String prefix, int nodeId, Clock clock) {
+        if (nodeId < 0 || nodeId > 1023) {
+            throw new IllegalArgumentException("nodeId must be between 0 and 1023, got: " + nodeId);
+        }
+        this.prefix = prefix != null ? prefix : "";
+        this.nodePart = pad(nodeId, NODE_DIGITS);
+        this.clock = clock;
+        this.daySequence = new AtomicLong(0L);
+    }
+
+    /**
+     * Genera el siguiente número de orden.
+     *
+     * @return Número de orden único
+     */
+    public String next() {
+        long today = LocalDate.now(clock).toEpochDay();
+        long current;
+        long updated;
+        do {
+            current = daySequence.get();
+            long day = current >>> 32;
+            updated = today > day
+                ? (today << 32) | 1L   // Nuevo día: reiniciar secuencia
+                : current + 1;         // Mismo día (o reloj atrasado): continuar
+        } while (!daySequence.compareAndSet(current, updated));
+
+        long day = updated >>> 32;
+        long sequence = updated & SEQUENCE_MASK;
+        return new StringBuilder(prefix.length() + 8 + NODE_DIGITS + SEQUENCE_DIGITS + 2)
+                .append(prefix)
+                .append(dayPrefix(day))
+                .append('-').append(nodePart)
+                .append('-').append(pad(sequence, SEQUENCE_DIGITS))
+                .toString();
+    }
+
+    /**
+     * Continúa la secuencia después de un número ya emitido (ej: el mayor guardado
+     * en BD al iniciar). Solo avanza: números menores, de otro nodo o con otro
+     * formato se ignoran, por lo que puede recibir todos los números guardados.
+     *
+     * @param orderNumber Número de orden emitido previamente
+     * @return true si la secuencia avanzó
+     */
+    public boolean continueAfter(String orderNumber) {
+        long issued = parse(orderNumber);
+        if (issued < 0) {
+            return false;
+        }
+        while (true) {
+            long current = daySequence.get();
+            if (current >= issued) {
+                return false;
+            }
+            if (daySequence.compareAndSet(current, issued)) {
+                return true;
+            }
+        }
+    }
+
+    // [epochDay | secuencia] de un número de este nodo, o -1 si no corresponde
+    private long parse(String orderNumber) {
+        if (orderNumber == null || !orderNumber.startsWith(prefix)) {
+            return -1;
+        }
+        String[] parts = orderNumber.substring(prefix.length()).split("-");
+        if (parts.length != 3 || parts[0].length() != 8 || !parts[1].equals(nodePart)) {
+            return -1;
+        }
+        try {
+            long day = LocalDate.parse(parts[0], DAY_FORMATTER).toEpochDay();
+            long sequence = Long.parseLong(parts[2]);
+            if (sequence < 0 || sequence > SEQUENCE_MASK) {
+                return -1;
+            }
+            return (day << 32) | sequence;
+        } catch (RuntimeException e) {
+            return -1; // Fecha o secuencia con otro formato
+        }
+    }
+
+    private String dayPrefix(long epochDay) {
+        DayPrefix cached = cachedDay;
+        if (cached == null || cached.epochDay != epochDay) {
+            cached = new DayPrefix(epochDay, LocalDate.ofEpochDay(epochDay).format(DAY_FORMATTER));
+            cachedDay = cached;
+        }
+        return cached.text;
+    }
+
+    private static String pad(long value, int digits) {
+        String text = Long.toString(value);
+        if (text.length() >= digits) {
+            return text;
+        }
+        StringBuilder padded = new StringBuilder(digits);
+        for (int i = text.length(); i < digits; i++) {
+            padded.append('0');
+        }
+        return padded.append(text).toString();
+    }
+
+    private static final class DayPrefix {
+        private final long epochDay;
+        private final String text;
+
+        private DayPrefix(long epochDay, String text) {
+            this.epochDay = epochDay;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package co.edu.cesde.pps.util;
+
+import co.edu.cesde.pps.config.AppConfig;
+import co.edu.cesde.pps.dto.PageDTO;
+import co.edu.cesde.pps.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Clase utilitaria para paginación por cursor (keyset).
+ *
+ * A diferencia de la paginación por offset (saltar N elementos), la página
+ * siguiente se obtiene continuando después de la clave del último elemento
+ * entregado. El costo de una página es O(log n + tamaño de página) sin importar
+ * cuántos elementos haya en total o en qué página se esté.
+ *
+ * Cursor: las partes de la clave del último elemento (ej: "42" o
+ * "2026-02-03T10:15:30|42") codificadas en Base64 URL-safe. Es opaco para el
+ * cliente; un cursor alterado o de otro listado se rechaza con ValidationException.
+ *
+ * Convención de los servicios: se consulta pageSize + 1 elementos después del
+ * cursor; si llega el elemento extra, hay página siguiente (y no se mapea).
+ */
+public final class Pagination {
+
+    private static final String SEPARATOR = "|";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    // Constructor privado para prevenir instanciación
+    private Pagination() {
+        throw new AssertionError("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Normaliza el tamaño de página con los límites por defecto
+     * (AppConfig.getDefaultPageSize(), AppConfig.getMaxPageSize()).
+     *
+     * @param requested Tamaño pedido (null o menor a 1 = por defecto)
+     * @return Tamaño de página efectivo
+     */
+    public static int resolvePageSize(Integer requested) {
+        return resolvePageSize(requested, AppConfig.getDefaultPageSize(), AppConfig.getMaxPageSize());
+    }
+
+    /**
+     * Normaliza el tamaño de página con límites específicos (ej: catálogo).
+     *
+     * @param requested Tamaño pedido (null o menor a 1 = por defecto)
+     * @param defaultSize Tamaño por defecto
+     * @param maxSize Tamaño máximo permitido
+     * @return Tamaño de página efectivo
+     */
+    public static int resolvePageSize(Integer requested, int defaultSize, int maxSize) {
+        if (requested == null || requested < 1) {
+            return defaultSize;
+        }
+        return Math.min(requested, maxSize);
+    }
+
+    /**
+     * Codifica la clave del último elemento como cursor opaco.
+     *
+     * @param parts Partes de la clave (ej: createdAt, orderId)
+     * @return Cursor opaco
+     */
+    public static String encodeCursor(Object... parts) {
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                raw.append(SEPARATOR);
+            }
+            raw.append(parts[i]);
+        }
+        return ENCODER.encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un cursor en sus partes.
+     *
+     * @param cursor Cursor recibido del cliente (null o vacío = primera página)
+     * @param expectedParts Cantidad de partes esperada para el listado
+     * @return Partes de la clave, o null si es la primera página
+     * @throws ValidationException si el cursor está mal formado
+     */
+    public static String[] decodeCursor(String cursor, int expectedParts) {
+        if (StringUtils.isBlank(cursor)) {
+            return null;
+        }
+        String[] parts;
+        try {
+            String raw = new String(DECODER.decode(cursor.trim()), StandardCharsets.UTF_8);
+            parts = raw.split("\\" + SEPARATOR, -1);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("cursor", cursor, "Invalid page cursor");
+        }
+        if (parts.length != expectedParts) {
+            throw new ValidationException("cursor", cursor, "Invalid page cursor");
+        }
+        return parts;
+    }
+
+    /**
+     * Decodifica un cursor formado solo por la PK del último elemento.
+     *
+     * @param cursor Cursor recibido del cliente (null o vacío = primera página)
+     * @return PK del último elemento entregado, o null si es la primera página
+     * @throws ValidationException si el cursor está mal formado
+     */
+    public static Long decodeIdCursor(String cursor) {
+        String[] parts = decodeCursor(cursor, 1);
+        return parts == null ? null : parseLong(parts[0], cursor);
+    }
+
+    /**
+     * Interpreta una parte numérica de un cursor.
+     *
+     * @param part Parte del cursor
+     * @param cursor Cursor completo (para el mensaje de error)
+     * @return Valor numérico
+     * @throws ValidationException si la parte no es numérica
+     */
+    public static Long parseLong(String part, String cursor) {
+        try {
+            return Long.valueOf(part);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("cursor", cursor, "Invalid page cursor");
+        }
+    }
+
+    /**
+     * Construye la página a partir de hasta pageSize + 1 entidades consultadas.
+     * Solo se mapean las primeras pageSize; el cursor apunta a la última de ellas.
+     *
+     * @param fetched Entidades consultadas después del cursor (máximo pageSize + 1)
+     * @param pageSize Tamaño de página efectivo
+     * @param cursorOf Cursor de una entidad (ej: e -> encodeCursor(e.getId()))
+     * @param mapper Conversión de la lista de entidades a DTOs
+     * @param <E> Tipo de entidad
+     * @param <D> Tipo de DTO
+     * @return Página con los DTOs y el cursor siguiente (null si no hay más)
+     */
+    public static <E, D> PageDTO<D> toPage(List<E> fetched, int pageSize,
+                                           Function<E, String> cursorOf,
+                                           Function<List<E>, List<D>> mapper) {
+        boolean hasMore = fetched.size() > pageSize;
+        List<E> pageItems = hasMore ? fetched.subList(0, pageSize) : fetched;
+        String nextCursor = hasMore ? cursorOf.apply(pageItems.get(pageItems.size() - 1)) : null;
+        return new PageDTO<>(mapper.apply(pageItems), pageSize, nextCursor);
+    }
+}
@@ -0,0 +1,103 @@
+package co.edu.cesde.pps.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generador de IDs secuenciales por entidad (simula AUTO_INCREMENT).
+ *
+ * Reemplaza el patrón "stream().mapToLong(id).max() + 1" que recorría toda la
+ * colección en memoria (y en CartItem/OrderItem, todos los items de todos los
+ * carritos u órdenes) en cada inserción. Aquí cada ID cuesta un incremento
+ * atómico, sin importar el tamaño de la tienda.
+ *
+ * Pre-asignación por bloques (opcional):
+ * - blockSize = 1: cada llamada incrementa el contador compartido (IDs consecutivos)
+ * - blockSize > 1: cada hilo reserva un bloque de IDs contiguos del contador
+ *   compartido y los consume localmente, reduciendo la contención entre hilos.
+ *   Los IDs siguen siendo únicos, pero pueden quedar huecos y no son
+ *   estrictamente crecientes entre hilos distintos.
+ *
+ * Thread-safety: todas las operaciones son seguras para uso concurrente.
+ */
+public class SequenceIdGenerator implements IdGenerator {
+
+    private final String entityName;
+    private final int blockSize;
+    private final AtomicLong lastAllocated;
+
+    // Bloque local del hilo: [0] = siguiente ID, [1] = límite exclusivo
+    private final ThreadLocal<long[]> localBlock;
+
+    /**
+     * Crea una secuencia sin pre-asignación (IDs consecutivos desde 1).
+     *
+     * @param entityName Nombre de la entidad (ej: "Cart")
+     */
+    public SequenceIdGenerator(String entityName) {
+        this(entityName, 1);
+    }
+
+    /**
+     * Crea una secuencia con pre-asignación por bloques.
+     *
+     * @param entityName Nombre de la entidad (ej: "CartItem")
+     * @param blockSize Cantidad de IDs reservados por hilo en cada acceso al contador
+     * @throws IllegalArgumentException si blockSize es menor que 1
+     */
+    public SequenceIdGenerator(String entityName, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be >= 1, got: " + blockSize);
+        }
+        this.entityName = entityName;
+        this.blockSize = blockSize;
+        this.lastAllocated = new AtomicLong(0L);
+        this.localBlock = ThreadLocal.withInitial(() -> new long[] {0L, 0L});
+    }
+
+    @Override
+    public Long nextId() {
+        if (blockSize == 1) {
+            return lastAllocated.incrementAndGet();
+        }
+
+        long[] block = localBlock.get();
+        if (block[0] >= block[1]) {
+            // Bloque agotado: reservar uno nuevo del contador compartido
+            long end = lastAllocated.addAndGet(blockSize);
+            block[0] = end - blockSize + 1;
+            block[1] = end + 1;
+        }
+        return block[0]++;
+    }
+
+    /**
+     * Avanza el contador compartido hasta issuedId si está por detrás (nunca
+     * retrocede). Los bloques locales ya reservados no se ven afectados.
+     *
+     * @param issuedId ID emitido previamente (null se ignora)
+     */
+    @Override
+    public void continueAfter(Long issuedId) {
+        if (issuedId != null) {
+            lastAllocated.accumulateAndGet(issuedId, Math::max);
+        }
+    }
+
+    /**
+     * Obtiene el último ID reservado del contador compartido.
+     * Con blockSize > 1 incluye IDs reservados pero aún no consumidos.
+     *
+     * @return Último ID reservado (0 si no se ha generado ninguno)
+     */
+    public long getLastAllocated() {
+        return lastAllocated.get();
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+}
@@ -0,0 +1,124 @@
+package co.edu.cesde.pps.util;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generador de IDs de 64 bits estilo Snowflake: tiempo + nodo + secuencia.
+ *
+ * Estructura del ID (de más a menos significativo):
+ * - 1 bit: signo (siempre 0, IDs positivos)
+ * - 41 bits: milisegundos desde EPOCH (2026-01-01T00:00:00Z), ~69 años de rango
+ * - 10 bits: ID del nodo (0 a 1023), AppConfig.getNodeId()
+ * - 12 bits: secuencia dentro del milisegundo (4096 IDs por ms por nodo)
+ *
+ * Ventajas frente a AUTO_INCREMENT / secuencias en memoria:
+ * - Cada nodo genera IDs sin coordinarse con otros nodos ni con la BD
+ * - El ID se conoce antes del INSERT: Hibernate puede agrupar inserts en lotes
+ *   (con IDENTITY debe ejecutar cada INSERT para obtener el ID)
+ * - Los IDs crecen con el tiempo, conservando la localidad de los índices
+ *
+ * Implementación sin locks: el último (tiempo, secuencia) emitido se guarda en un
+ * AtomicLong y avanza con compareAndSet. Si la secuencia se agota dentro de un
+ * milisegundo, continúa en el milisegundo siguiente (el reloj lógico se adelanta
+ * brevemente en lugar de bloquear).
+ *
+ * Protección ante desfase de reloj:
+ * - Retroceso menor a MAX_CLOCK_BACKWARD_MILLIS: se continúa desde el último
+ *   tiempo emitido (IDs siguen siendo únicos y crecientes)
+ * - Retroceso mayor: se lanza IllegalStateException en lugar de arriesgar duplicados
+ *
+ * Thread-safety: seguro para uso concurrente.
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+
+    /**
+     * Época personalizada: 2026-01-01T00:00:00Z
+     */
+    public static final long EPOCH_MILLIS = Instant.parse("2026-01-01T00:00:00Z").toEpochMilli();
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    /**
+     * Retroceso de reloj tolerado antes de rechazar la generación (ms)
+     */
+    public static final long MAX_CLOCK_BACKWARD_MILLIS = 2000;
+
+    private final long nodeId;
+    private final LongSupplier clock;
+    // Último valor emitido: [milisegundos desde EPOCH | secuencia] (sin el nodo)
+    private final AtomicLong lastTimeAndSequence;
+
+    /**
+     * @param nodeId ID del nodo (0 a 1023)
+     */
+    public SnowflakeIdGenerator(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    /**
+     * @param nodeId ID del nodo (0 a 1023)
+     * @param clock Fuente de tiempo en epoch millis (inyectable en pruebas)
+     * @throws IllegalArgumentException si nodeId está fuera de rango
+     */
+    public SnowflakeIdGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("nodeId must be between 0 and " + MAX_NODE_ID + ", got: " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+        this.lastTimeAndSequence = new AtomicLong(0L);
+    }
+
+    @Override
+    public Long nextId() {
+        long current;
+        long updated;
+        do {
+            current = lastTimeAndSequence.get();
+            long now = clock.getAsLong() - EPOCH_MILLIS;
+            long lastTime = current >>> SEQUENCE_BITS;
+
+            if (now > lastTime) {
+                updated = now << SEQUENCE_BITS;        // Nuevo milisegundo: secuencia 0
+            } else if (lastTime - now <= MAX_CLOCK_BACKWARD_MILLIS) {
+                updated = current + 1;                 // Mismo ms, desborde o leve retroceso
+            } else {
+                throw new IllegalStateException("Clock moved backwards by " + (lastTime - now) +
+                    " ms; refusing to generate IDs on node " + nodeId);
+            }
+        } while (!lastTimeAndSequence.compareAndSet(current, updated));
+
+        long time = updated >>> SEQUENCE_BITS;
+        long sequence = updated & SEQUENCE_MASK;
+        return (time << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    /**
+     * Obtiene el instante de creación codificado en un ID.
+     *
+     * @param id ID generado por este esquema
+     * @return Instante de generación
+     */
+    public static Instant extractInstant(long id) {
+        return Instant.ofEpochMilli((id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS);
+    }
+
+    /**
+     * Obtiene el nodo codificado en un ID.
+     *
+     * @param id ID generado por este esquema
+     * @return ID del nodo
+     */
+    public static int extractNodeId(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+
+    public long getNodeId() {
+        return nodeId;
+    }
+}
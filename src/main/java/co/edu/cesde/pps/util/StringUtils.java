@@ -1,6 +1,8 @@
 package co.edu.cesde.pps.util;
 
 import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.regex.Pattern;
 
@@ -9,6 +11,7 @@ import java.util.regex.Pattern;
  *
  * Proporciona métodos estáticos para:
  * - Generación de slugs URL-friendly
+ * - Normalización y tokenización para búsqueda (sin acentos)
  * - Sanitización de texto
  * - Validaciones de formato
  * - Transformaciones comunes
@@ -17,6 +20,7 @@ public final class StringUtils {
 
     private static final Pattern SLUG_PATTERN = Pattern.compile("[^a-z0-9]+");
     private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+    private static final Pattern COMBINING_MARKS_PATTERN = Pattern.compile("\\p{M}+");
 
     // Constructor privado para prevenir instanciación
     private StringUtils() {
@@ -56,12 +60,8 @@ public final class StringUtils {
             return "";
         }
 
-        // Normalizar caracteres Unicode (quitar acentos)
-        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
-        String withoutAccents = normalized.replaceAll("\\p{M}", "");
-
-        // Convertir a minúsculas
-        String lowercase = withoutAccents.toLowerCase(Locale.ROOT);
+        // Quitar acentos y convertir a minúsculas
+        String lowercase = foldAccents(text);
 
         // Reemplazar espacios y caracteres no permitidos por guiones
         String slug = SLUG_PATTERN.matcher(lowercase).replaceAll("-");
@@ -75,6 +75,47 @@ public final class StringUtils {
         return slug;
     }
 
+    /**
+     * Quita acentos y diacríticos (normalización NFD) y convierte a minúsculas
+     *
+     * Convierte: "Cámara Réflex Ñandú" → "camara reflex nandu"
+     *
+     * @param text Texto a normalizar
+     * @return Texto sin acentos en minúsculas ("" si es null)
+     */
+    public static String foldAccents(String text) {
+        if (text == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS_PATTERN.matcher(normalized).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Divide un texto en términos de búsqueda: sin acentos, en minúsculas y
+     * separados por cualquier caracter que no sea letra o dígito
+     *
+     * Convierte: "Portátil Gamer 15\" (SKU-001)" → [portatil, gamer, 15, sku, 001]
+     *
+     * @param text Texto a tokenizar
+     * @return Términos en orden de aparición (vacío si no hay)
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        String folded = foldAccents(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
     /**
      * Capitaliza la primera letra de un String
      *
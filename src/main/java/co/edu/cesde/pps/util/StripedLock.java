@@ -0,0 +1,146 @@
+package co.edu.cesde.pps.util;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Conjunto fijo de locks ("stripes") indexados por hash de clave.
+ *
+ * Serializa las operaciones sobre una misma clave (ej: el cartId) sin crear
+ * un lock por entidad: claves distintas comparten stripe solo por colisión de
+ * hash, y el consumo de memoria es constante sin importar cuántas entidades existan.
+ *
+ * Para operaciones que modifican dos o más entidades (ej: merge de carritos,
+ * stock de todas las líneas de un checkout) usar withLocks(), que adquiere los
+ * stripes siempre en el mismo orden (por índice) para evitar deadlocks.
+ *
+ * Los locks son reentrantes: un hilo que ya tiene el stripe puede volver a tomarlo.
+ *
+ * Thread-safety: seguro para uso concurrente.
+ */
+public class StripedLock {
+
+    private final Lock[] stripes;
+    private final int mask;
+
+    /**
+     * @param minStripes Cantidad mínima de stripes (se redondea a potencia de 2)
+     * @throws IllegalArgumentException si minStripes es menor que 1
+     */
+    public StripedLock(int minStripes) {
+        if (minStripes < 1) {
+            throw new IllegalArgumentException("minStripes must be >= 1, got: " + minStripes);
+        }
+        int size = 1;
+        while (size < minStripes) {
+            size <<= 1;
+        }
+        this.stripes = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Obtiene el lock asociado a la clave (sin adquirirlo).
+     *
+     * @param key Clave (ej: cartId)
+     * @return Lock del stripe correspondiente
+     */
+    public Lock get(Object key) {
+        return stripes[indexOf(key)];
+    }
+
+    /**
+     * Ejecuta la acción con el stripe de la clave adquirido.
+     *
+     * @param key Clave
+     * @param action Acción a ejecutar
+     * @return Resultado de la acción
+     */
+    public <T> T withLock(Object key, Supplier<T> action) {
+        Lock lock = get(key);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ejecuta la acción con los stripes de ambas claves adquiridos en orden
+     * de índice (evita deadlocks entre hilos que bloquean el mismo par).
+     *
+     * @param key1 Primera clave
+     * @param key2 Segunda clave
+     * @param action Acción a ejecutar
+     * @return Resultado de la acción
+     */
+    public <T> T withLocks(Object key1, Object key2, Supplier<T> action) {
+        int first = indexOf(key1);
+        int second = indexOf(key2);
+        if (first == second) {
+            return withLock(key1, action);
+        }
+        Lock lower = stripes[Math.min(first, second)];
+        Lock upper = stripes[Math.max(first, second)];
+        lower.lock();
+        try {
+            upper.lock();
+            try {
+                return action.get();
+            } finally {
+                upper.unlock();
+            }
+        } finally {
+            lower.unlock();
+        }
+    }
+
+    /**
+     * Ejecuta la acción con los stripes de todas las claves adquiridos en orden
+     * ascendente de índice (cada stripe una sola vez; evita deadlocks con
+     * cualquier otro hilo que use withLocks).
+     *
+     * @param keys Claves
+     * @param action Acción a ejecutar
+     * @return Resultado de la acción
+     */
+    public <T> T withLocks(Collection<?> keys, Supplier<T> action) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (Object key : keys) {
+            indexes.add(indexOf(key));
+        }
+        Lock[] acquired = new Lock[indexes.size()];
+        int count = 0;
+        try {
+            for (int index : indexes) {
+                stripes[index].lock();
+                acquired[count++] = stripes[index];
+            }
+            return action.get();
+        } finally {
+            for (int i = count - 1; i >= 0; i--) {
+                acquired[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * @return Cantidad de stripes
+     */
+    public int size() {
+        return stripes.length;
+    }
+
+    private int indexOf(Object key) {
+        int h = key != null ? key.hashCode() : 0;
+        h ^= (h >>> 16); // Dispersar bits altos (IDs secuenciales)
+        return h & mask;
+    }
+}
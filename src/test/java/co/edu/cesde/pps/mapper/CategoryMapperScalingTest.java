@@ -0,0 +1,70 @@
+package co.edu.cesde.pps.mapper;
+
+import co.edu.cesde.pps.dto.CategoryDTO;
+import co.edu.cesde.pps.model.Category;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Medición: el mapeo iterativo de jerarquías escala igual que el recursivo
+ * (lineal en la cantidad de nodos) y no es más lento que él, con árboles
+ * aleatorios de 10k y 100k categorías.
+ *
+ * Compara tiempos de reloj: no corre en la suite por defecto (mvn test -Pbenchmarks).
+ */
+@Tag("benchmark")
+class CategoryMapperScalingTest {
+
+    private static final int SMALL_TREE = 10_000;
+    private static final int LARGE_TREE = 100_000;
+    private static final int ROOTS = 10;
+    private static final int ROUNDS = 20;
+
+    private final CategoryMapper mapper = new CategoryMapper();
+
+    @Test
+    @DisplayName("Árboles de 10k vs 100k nodos: costo por nodo estable y no peor que el recursivo")
+    void iterativeMappingScalesLikeRecursive() {
+        CategoryTrees trees = new CategoryTrees();
+        List<Category> small = trees.randomForest(new Random(10), ROOTS, SMALL_TREE);
+        List<Category> large = trees.randomForest(new Random(100), ROOTS, LARGE_TREE);
+        Function<List<Category>, List<CategoryDTO>> iterative = mapper::toDTOListWithHierarchy;
+        Function<List<Category>, List<CategoryDTO>> recursive =
+            roots -> CategoryTrees.recursiveToDTOListWithHierarchy(mapper, roots);
+
+        // Calentamiento del JIT
+        nanosPerNode(iterative, small, SMALL_TREE);
+        nanosPerNode(recursive, small, SMALL_TREE);
+
+        double iterativeSmall = nanosPerNode(iterative, small, SMALL_TREE);
+        double iterativeLarge = nanosPerNode(iterative, large, LARGE_TREE);
+        double recursiveLarge = nanosPerNode(recursive, large, LARGE_TREE);
+
+        // Lineal: 10x nodos no debe costar más de ~10x; se deja amplio margen para el ruido (GC)
+        assertTrue(iterativeLarge < iterativeSmall * 4,
+            "costo por nodo creció con el árbol: " + iterativeSmall + " ns -> " + iterativeLarge + " ns");
+        assertTrue(iterativeLarge < recursiveLarge * 1.5,
+            "iterativo " + iterativeLarge + " ns/nodo vs recursivo " + recursiveLarge + " ns/nodo");
+    }
+
+    // Mejor de ROUNDS ejecuciones, en nanos por nodo mapeado
+    private static double nanosPerNode(Function<List<Category>, List<CategoryDTO>> mapping,
+                                       List<Category> roots, int nodes) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long begin = System.nanoTime();
+            List<CategoryDTO> mapped = mapping.apply(roots);
+            best = Math.min(best, System.nanoTime() - begin);
+            assertEquals(roots.size(), mapped.size());
+        }
+        return (double) best / nodes;
+    }
+}
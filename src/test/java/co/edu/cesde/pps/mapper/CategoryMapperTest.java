@@ -0,0 +1,178 @@
+package co.edu.cesde.pps.mapper;
+
+import co.edu.cesde.pps.dto.CategoryDTO;
+import co.edu.cesde.pps.model.Category;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Pruebas del mapeo iterativo de jerarquías de CategoryMapper.
+ *
+ * El resultado se compara contra el mapper recursivo original (ver
+ * CategoryTrees), ejecutado en un hilo con pila grande para que pueda
+ * recorrer las cadenas profundas.
+ */
+class CategoryMapperTest {
+
+    private static final int DEEP_LEVELS = 10_000;
+    private static final int VERY_DEEP_LEVELS = 100_000;
+    private static final int SMALL_STACK_BYTES = 256 * 1024;
+    private static final long REFERENCE_STACK_BYTES = 1L << 30;
+
+    private CategoryMapper mapper;
+    private CategoryTrees trees;
+
+    @BeforeEach
+    void setUp() {
+        mapper = new CategoryMapper();
+        trees = new CategoryTrees();
+    }
+
+    @Test
+    @DisplayName("Cadena de 10k niveles: sin StackOverflowError e igual al mapper recursivo")
+    void deepChainMatchesRecursiveMapper() throws Exception {
+        Category root = trees.chain(DEEP_LEVELS);
+
+        // Pila pequeña a propósito: el recorrido no debe depender de la profundidad
+        CategoryDTO mapped = runWithStack(SMALL_STACK_BYTES, () -> mapper.toDTOWithHierarchy(root));
+        CategoryDTO expected = runWithStack(REFERENCE_STACK_BYTES,
+            () -> CategoryTrees.recursiveToDTOWithHierarchy(mapper, root));
+
+        assertSameTree(List.of(expected), List.of(mapped));
+        assertEquals(DEEP_LEVELS, countNodes(List.of(mapped)));
+    }
+
+    @Test
+    @DisplayName("Cadena de 100k niveles con la misma pila pequeña que la de 10k")
+    void hundredThousandLevelChainOnSmallStack() throws Exception {
+        Category root = trees.chain(VERY_DEEP_LEVELS);
+
+        CategoryDTO mapped = runWithStack(SMALL_STACK_BYTES, () -> mapper.toDTOWithHierarchy(root));
+
+        assertEquals(VERY_DEEP_LEVELS, countNodes(List.of(mapped)));
+    }
+
+    @Test
+    @DisplayName("Bosque ancho aleatorio: igual al mapper recursivo y en el mismo orden")
+    void wideForestMatchesRecursiveMapper() throws Exception {
+        List<Category> roots = trees.randomForest(new Random(24), 5, 20_000);
+
+        List<CategoryDTO> mapped = mapper.toDTOListWithHierarchy(roots);
+        List<CategoryDTO> expected = runWithStack(REFERENCE_STACK_BYTES,
+            () -> CategoryTrees.recursiveToDTOListWithHierarchy(mapper, roots));
+
+        assertSameTree(expected, mapped);
+        assertEquals(20_000, countNodes(mapped));
+    }
+
+    @Test
+    @DisplayName("null y listas null se mapean como antes")
+    void nullInputs() {
+        assertNull(mapper.toDTOWithHierarchy(null));
+        assertEquals(0, mapper.toDTOListWithHierarchy(null).size());
+
+        Category leaf = trees.category(null);
+        CategoryDTO dto = mapper.toDTOWithHierarchy(leaf);
+        assertNotNull(dto.getSubcategories());
+        assertEquals(0, dto.getSubcategories().size());
+    }
+
+    @Test
+    @DisplayName("Elementos null en la lista y en subcategorías se mapean a null en su posición")
+    void nullElementsMapLikeRecursiveMapper() {
+        Category root = trees.category(null);
+        Category child = trees.category(root);
+        root.getSubcategories().add(1, null);
+        child.getSubcategories().add(null);
+        trees.category(child);
+        List<Category> roots = Arrays.asList(null, root, null);
+
+        List<CategoryDTO> mapped = mapper.toDTOListWithHierarchy(roots);
+        List<CategoryDTO> expected = CategoryTrees.recursiveToDTOListWithHierarchy(mapper, roots);
+
+        assertSameTree(expected, mapped);
+        assertNull(mapped.get(0));
+        assertNull(mapped.get(1).getSubcategories().get(1));
+        assertNull(mapped.get(1).getSubcategories().get(0).getSubcategories().get(0));
+    }
+
+    // Compara nodo a nodo sin recursión (equals de CategoryDTO solo mira el ID)
+    private static void assertSameTree(List<CategoryDTO> expected, List<CategoryDTO> actual) {
+        Deque<List<CategoryDTO>> pendingExpected = new ArrayDeque<>();
+        Deque<List<CategoryDTO>> pendingActual = new ArrayDeque<>();
+        pendingExpected.push(expected);
+        pendingActual.push(actual);
+        while (!pendingExpected.isEmpty()) {
+            List<CategoryDTO> expectedLevel = pendingExpected.pop();
+            List<CategoryDTO> actualLevel = pendingActual.pop();
+            assertEquals(expectedLevel.size(), actualLevel.size());
+            for (int i = 0; i < expectedLevel.size(); i++) {
+                CategoryDTO e = expectedLevel.get(i);
+                CategoryDTO a = actualLevel.get(i);
+                if (e == null) {
+                    assertNull(a);
+                    continue;
+                }
+                assertNotNull(a);
+                assertEquals(e.toString(), a.toString());
+                assertEquals(e.getParentId(), a.getParentId());
+                assertEquals(e.getParentName(), a.getParentName());
+                assertEquals(e.getActiveProductsCount(), a.getActiveProductsCount());
+                assertEquals(e.getSubtreeProductsCount(), a.getSubtreeProductsCount());
+                assertEquals(e.getSubtreeActiveProductsCount(), a.getSubtreeActiveProductsCount());
+                pendingExpected.push(e.getSubcategories());
+                pendingActual.push(a.getSubcategories());
+            }
+        }
+    }
+
+    private static int countNodes(List<CategoryDTO> roots) {
+        int count = 0;
+        Deque<CategoryDTO> pending = new ArrayDeque<>(roots);
+        while (!pending.isEmpty()) {
+            CategoryDTO dto = pending.pop();
+            count++;
+            dto.getSubcategories().forEach(pending::push);
+        }
+        return count;
+    }
+
+    // Ejecuta en un hilo con el tamaño de pila indicado y propaga lo que lance
+    private static <T> T runWithStack(long stackBytes, ThrowingSupplier<T> action) throws Exception {
+        AtomicReference<T> result = new AtomicReference<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                result.set(action.get());
+            } catch (Throwable ex) {
+                failure.set(ex);
+            }
+        }, "category-mapper-test", stackBytes);
+        thread.start();
+        thread.join();
+        if (failure.get() instanceof Exception) {
+            throw (Exception) failure.get();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        return result.get();
+    }
+
+    @FunctionalInterface
+    private interface ThrowingSupplier<T> {
+        T get() throws Exception;
+    }
+}
@@ -0,0 +1,82 @@
+package co.edu.cesde.pps.mapper;
+
+import co.edu.cesde.pps.dto.CategoryDTO;
+import co.edu.cesde.pps.model.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Utilidades compartidas por las pruebas de CategoryMapper: construcción de
+ * árboles de categorías y el mapper recursivo original como referencia.
+ */
+final class CategoryTrees {
+
+    private long nextId = 1;
+
+    /**
+     * @return Raíz de una cadena de levels categorías (cada una hija de la anterior)
+     */
+    Category chain(int levels) {
+        Category root = category(null);
+        Category current = root;
+        for (int i = 1; i < levels; i++) {
+            current = category(current);
+        }
+        return root;
+    }
+
+    /**
+     * @return Raíces de un bosque aleatorio de size categorías en total
+     */
+    List<Category> randomForest(Random random, int roots, int size) {
+        List<Category> all = new ArrayList<>(size);
+        for (int i = 0; i < roots; i++) {
+            all.add(category(null));
+        }
+        while (all.size() < size) {
+            all.add(category(all.get(random.nextInt(all.size()))));
+        }
+        return all.subList(0, roots);
+    }
+
+    /**
+     * @return Categoría nueva con ID y slug únicos, agregada a las subcategorías del padre
+     */
+    Category category(Category parent) {
+        long id = nextId++;
+        Category category = new Category("Categoría " + id, "categoria-" + id);
+        category.setCategoryId(id);
+        category.setParent(parent);
+        if (parent != null) {
+            parent.getSubcategories().add(category);
+        }
+        return category;
+    }
+
+    // Mapper recursivo original (referencia)
+    static CategoryDTO recursiveToDTOWithHierarchy(CategoryMapper mapper, Category category) {
+        if (category == null) {
+            return null;
+        }
+
+        CategoryDTO dto = mapper.toDTO(category);
+
+        if (category.getSubcategories() != null && !category.getSubcategories().isEmpty()) {
+            List<CategoryDTO> subcategoryDTOs = category.getSubcategories().stream()
+                    .map(subcategory -> recursiveToDTOWithHierarchy(mapper, subcategory))
+                    .collect(Collectors.toList());
+            dto.setSubcategories(subcategoryDTOs);
+        }
+
+        return dto;
+    }
+
+    static List<CategoryDTO> recursiveToDTOListWithHierarchy(CategoryMapper mapper, List<Category> categories) {
+        return categories.stream()
+                .map(category -> recursiveToDTOWithHierarchy(mapper, category))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,105 @@
+package co.edu.cesde.pps.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de TreeIntervalIndex: consultas de subárbol y frecuencia de renumeración.
+ */
+class TreeIntervalIndexTest {
+
+    @Test
+    @DisplayName("Muchos hermanos agregados al final: subárboles correctos y pocas renumeraciones")
+    void manySiblingsKeepIntervalsWithoutConstantRelabeling() {
+        TreeIntervalIndex<Long> index = new TreeIntervalIndex<>("Category");
+        int siblings = 10_000;
+        index.addLeaf(0L, null);
+        for (long id = 1; id <= siblings; id++) {
+            index.addLeaf(id, 0L);
+        }
+
+        for (long id = 1; id <= siblings; id++) {
+            assertTrue(index.isInSubtree(0L, id), "hijo " + id + " fuera de la raíz");
+            assertTrue(index.isInSubtree(id, id));
+            assertFalse(index.isInSubtree(id, 0L));
+            if (id > 1) {
+                assertFalse(index.isInSubtree(id, id - 1), id + " contiene a " + (id - 1));
+                assertFalse(index.isInSubtree(id - 1, id), (id - 1) + " contiene a " + id);
+            }
+        }
+        // Cada renumeración deja hueco para ~1300 hojas más: no una cada ~20 inserciones
+        assertTrue(index.getRelabelCount() <= siblings / 1000,
+            "renumeraciones: " + index.getRelabelCount());
+    }
+
+    @Test
+    @DisplayName("Hermanos agregados bajo un nodo recién insertado (sin renumerar entre medio)")
+    void siblingsUnderFreshlyInsertedNode() {
+        TreeIntervalIndex<Long> index = new TreeIntervalIndex<>("Category");
+        index.addLeaf(0L, null);
+        index.addLeaf(1L, 0L);
+        for (long id = 100; id < 400; id++) {
+            index.addLeaf(id, 1L);
+        }
+        index.addLeaf(2L, 0L);
+
+        for (long id = 100; id < 400; id++) {
+            assertTrue(index.isInSubtree(1L, id));
+            assertTrue(index.isInSubtree(0L, id));
+            assertFalse(index.isInSubtree(2L, id));
+        }
+        assertFalse(index.isInSubtree(1L, 2L));
+    }
+
+    @Test
+    @DisplayName("Altas y movimientos aleatorios: coincide con recorrer los padres")
+    void randomInsertsAndMovesMatchParentWalk() {
+        TreeIntervalIndex<Long> index = new TreeIntervalIndex<>("Category");
+        Map<Long, Long> parents = new HashMap<>();
+        List<Long> ids = new ArrayList<>();
+        Random random = new Random(42);
+
+        for (long id = 0; id < 3_000; id++) {
+            Long parent = ids.isEmpty() || random.nextInt(10) == 0 ? null : ids.get(random.nextInt(ids.size()));
+            index.addLeaf(id, parent);
+            parents.put(id, parent);
+            ids.add(id);
+
+            if (random.nextInt(5) == 0) {
+                Long moved = ids.get(random.nextInt(ids.size()));
+                Long newParent = random.nextInt(4) == 0 ? null : ids.get(random.nextInt(ids.size()));
+                if (newParent == null || !isAncestor(parents, moved, newParent)) {
+                    index.move(moved, newParent);
+                    parents.put(moved, newParent);
+                }
+            }
+        }
+
+        for (int i = 0; i < 20_000; i++) {
+            Long ancestor = ids.get(random.nextInt(ids.size()));
+            Long node = ids.get(random.nextInt(ids.size()));
+            assertEquals(isAncestor(parents, ancestor, node), index.isInSubtree(ancestor, node),
+                ancestor + " / " + node);
+        }
+    }
+
+    // Referencia: subir por los padres desde node
+    private static boolean isAncestor(Map<Long, Long> parents, Long ancestor, Long node) {
+        for (Long current = node; current != null; current = parents.get(current)) {
+            if (current.equals(ancestor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
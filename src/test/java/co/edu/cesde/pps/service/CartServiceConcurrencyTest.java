@@ -0,0 +1,122 @@
+package co.edu.cesde.pps.service;
+
+import co.edu.cesde.pps.model.Cart;
+import co.edu.cesde.pps.model.CartItem;
+import co.edu.cesde.pps.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static co.edu.cesde.pps.service.ConcurrencyTestSupport.createCategory;
+import static co.edu.cesde.pps.service.ConcurrencyTestSupport.createProduct;
+import static co.edu.cesde.pps.service.ConcurrencyTestSupport.runConcurrently;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas de concurrencia de CartService: N hilos modifican el mismo carrito
+ * con addItem/updateItemQuantity y los totales incrementales deben quedar exactos.
+ */
+class CartServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int INITIAL_STOCK = 1_000_000;
+
+    private ProductService productService;
+    private CartService cartService;
+    private Long categoryId;
+
+    @BeforeEach
+    void setUp() {
+        CategoryService categoryService = new CategoryService();
+        productService = new ProductService(categoryService);
+        cartService = new CartService(new UserService(), productService);
+
+        categoryId = createCategory(categoryService, "Concurrencia");
+    }
+
+    @Test
+    @DisplayName("addItem concurrente sobre el mismo carrito: cantidades y total exactos")
+    void concurrentAddItemKeepsExactTotals() throws Exception {
+        List<Long> products = createProducts(12);
+        Long cartId = cartService.createCartForGuest(1L).getCartId();
+        int operationsPerThread = 120;
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < operationsPerThread; i++) {
+                cartService.addItem(cartId, products.get((thread + i) % products.size()), 1);
+            }
+        });
+
+        // Cada hilo recorre los 12 productos 10 veces: 8 × 10 unidades por producto
+        Map<Long, Integer> expected = new HashMap<>();
+        products.forEach(id -> expected.put(id, THREADS * operationsPerThread / products.size()));
+        assertCart(cartId, expected);
+    }
+
+    @Test
+    @DisplayName("addItem y updateItemQuantity mezclados: cantidades y total exactos")
+    void concurrentAddAndUpdateKeepExactTotals() throws Exception {
+        List<Long> shared = createProducts(4);
+        List<Long> owned = createProducts(THREADS);
+        Long cartId = cartService.createCartForGuest(2L).getCartId();
+        for (Long productId : owned) {
+            cartService.addItem(cartId, productId, 1);
+        }
+        int operationsPerThread = 40;
+
+        runConcurrently(THREADS, thread -> {
+            Long own = owned.get(thread);
+            for (int i = 0; i < operationsPerThread; i++) {
+                cartService.addItem(cartId, shared.get(i % shared.size()), 1);
+                cartService.updateItemQuantity(cartId, own, i % 7 + 1);
+            }
+            cartService.updateItemQuantity(cartId, own, thread + 1);
+        });
+
+        Map<Long, Integer> expected = new HashMap<>();
+        shared.forEach(id -> expected.put(id, THREADS * operationsPerThread / shared.size()));
+        for (int thread = 0; thread < THREADS; thread++) {
+            expected.put(owned.get(thread), thread + 1);
+        }
+        assertCart(cartId, expected);
+    }
+
+    // Compara líneas, totalQuantity, total y stock retenido contra lo esperado
+    private void assertCart(Long cartId, Map<Long, Integer> expectedQuantities) {
+        Cart cart = cartService.findCartEntityOrThrow(cartId);
+
+        int expectedTotalQuantity = 0;
+        BigDecimal expectedTotal = BigDecimal.ZERO;
+        for (Map.Entry<Long, Integer> line : expectedQuantities.entrySet()) {
+            Product product = productService.findProductEntityOrThrow(line.getKey());
+            CartItem item = cart.findItemByProductId(line.getKey());
+            assertEquals(line.getValue(), item.getQuantity(), "cantidad de " + product.getSku());
+            assertEquals(INITIAL_STOCK - line.getValue(), product.getStockQty(), "stock de " + product.getSku());
+            expectedTotalQuantity += line.getValue();
+            expectedTotal = expectedTotal.add(product.getPrice().multiply(BigDecimal.valueOf(line.getValue())));
+        }
+
+        assertEquals(expectedQuantities.size(), cart.getItems().size());
+        assertEquals(expectedTotalQuantity, cart.getTotalQuantity());
+        assertEquals(0, expectedTotal.compareTo(cart.getTotal()),
+            "total esperado " + expectedTotal + " pero fue " + cart.getTotal());
+        assertEquals(0, expectedTotal.compareTo(cartService.calculateCartTotal(cartId)));
+        cart.verifyTotals();
+    }
+
+    private List<Long> createProducts(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            BigDecimal price = new BigDecimal("19.99").add(BigDecimal.valueOf(i).movePointLeft(2));
+            ids.add(createProduct(productService, categoryId, "CONC-" + System.nanoTime() + "-" + i,
+                price, INITIAL_STOCK));
+        }
+        return ids;
+    }
+}
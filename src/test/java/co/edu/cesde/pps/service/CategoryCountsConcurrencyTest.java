@@ -0,0 +1,125 @@
+package co.edu.cesde.pps.service;
+
+import co.edu.cesde.pps.dto.CategoryDTO;
+import co.edu.cesde.pps.exception.InsufficientStockException;
+import co.edu.cesde.pps.model.Category;
+import co.edu.cesde.pps.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static co.edu.cesde.pps.service.ConcurrencyTestSupport.createCategory;
+import static co.edu.cesde.pps.service.ConcurrencyTestSupport.createProduct;
+import static co.edu.cesde.pps.service.ConcurrencyTestSupport.runConcurrently;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Conteos de productos por categoría mantenidos sin lock global: con cambios de
+ * stock que cruzan cero en paralelo y una categoría que cambia de padre a la
+ * vez, los conteos finales coinciden con un recuento completo.
+ */
+class CategoryCountsConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int PRODUCTS = 24;
+
+    private CategoryService categoryService;
+    private ProductService productService;
+    private Long rootId;
+    private Long leftId;
+    private Long rightId;
+    private Long movingId;
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        categoryService = new CategoryService();
+        productService = new ProductService(categoryService);
+        rootId = createCategory(categoryService, "Tienda");
+        leftId = categoryService.addSubcategory(rootId, category("Izquierda")).getCategoryId();
+        rightId = categoryService.addSubcategory(rootId, category("Derecha")).getCategoryId();
+        movingId = categoryService.addSubcategory(leftId, category("Móvil")).getCategoryId();
+
+        Long[] targets = {rootId, leftId, rightId, movingId};
+        for (int i = 0; i < PRODUCTS; i++) {
+            productIds.add(createProduct(productService, targets[i % targets.length], "CNT-" + i,
+                BigDecimal.valueOf(10 + i * 40L), 1));
+        }
+    }
+
+    @Test
+    @DisplayName("Stock que cruza cero en paralelo y cambios de padre: conteos iguales al recuento")
+    void countsMatchRecountAfterConcurrentChanges() throws Exception {
+        int operationsPerThread = 3_000;
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < operationsPerThread; i++) {
+                if (thread == 0 && i % 10 == 0) {
+                    // La categoría "Móvil" alterna de padre con sus productos
+                    CategoryDTO update = category("Móvil");
+                    update.setParentId(i % 20 == 0 ? rightId : leftId);
+                    categoryService.updateCategory(movingId, update);
+                    continue;
+                }
+                Long productId = productIds.get((thread * 7 + i) % PRODUCTS);
+                try {
+                    productService.decreaseStock(productId, 1);
+                    productService.increaseStock(productId, 1);
+                } catch (InsufficientStockException e) {
+                    // Otro hilo lo tiene en cero en este momento
+                }
+            }
+        });
+
+        for (Long categoryId : List.of(rootId, leftId, rightId, movingId)) {
+            assertCountsMatchRecount(categoryId);
+        }
+        assertEquals(PRODUCTS, categoryService.findById(rootId).getSubtreeInStockProductsCount());
+    }
+
+    private void assertCountsMatchRecount(Long categoryId) {
+        Category category = categoryService.findCategoryEntityOrThrow(categoryId);
+        int direct = 0;
+        int directInStock = 0;
+        int subtree = 0;
+        int subtreeInStock = 0;
+        for (Long productId : productIds) {
+            Product product = productService.findProductEntityOrThrow(productId);
+            boolean inStock = product.getStockQty() > 0;
+            if (product.getCategory() == category) {
+                direct++;
+                directInStock += inStock ? 1 : 0;
+            }
+            if (isInSubtree(category, product.getCategory())) {
+                subtree++;
+                subtreeInStock += inStock ? 1 : 0;
+            }
+        }
+
+        CategoryDTO counts = categoryService.findById(categoryId);
+        assertEquals(direct, counts.getProductsCount(), "productos de " + category.getName());
+        assertEquals(directInStock, counts.getInStockProductsCount(), "con stock en " + category.getName());
+        assertEquals(subtree, counts.getSubtreeProductsCount(), "subárbol de " + category.getName());
+        assertEquals(subtreeInStock, counts.getSubtreeInStockProductsCount(),
+            "con stock en el subárbol de " + category.getName());
+    }
+
+    private static boolean isInSubtree(Category root, Category category) {
+        for (Category current = category; current != null; current = current.getParent()) {
+            if (current == root) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static CategoryDTO category(String name) {
+        CategoryDTO category = new CategoryDTO();
+        category.setName(name);
+        return category;
+    }
+}
@@ -0,0 +1,71 @@
+package co.edu.cesde.pps.service;
+
+import co.edu.cesde.pps.dto.CategoryDTO;
+import co.edu.cesde.pps.exception.DuplicateEntityException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.LongAdder;
+
+import static co.edu.cesde.pps.service.ConcurrencyTestSupport.runConcurrently;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Dos altas concurrentes con el mismo slug: gana una y la otra no deja una
+ * subcategoría huérfana en el padre ni en el árbol.
+ */
+class CategorySlugRaceTest {
+
+    private static final int ROUNDS = 1_000;
+
+    private CategoryService categoryService;
+    private Long parentId;
+
+    @BeforeEach
+    void setUp() {
+        categoryService = new CategoryService();
+        CategoryDTO parent = new CategoryDTO();
+        parent.setName("Computadores");
+        parentId = categoryService.createCategory(parent).getCategoryId();
+    }
+
+    @Test
+    @DisplayName("addSubcategory y createCategory con el mismo slug: el perdedor no queda enlazado")
+    void losingSlugRaceLeavesHierarchyIntact() throws Exception {
+        CyclicBarrier round = new CyclicBarrier(2);
+        LongAdder created = new LongAdder();
+        LongAdder rejected = new LongAdder();
+
+        runConcurrently(2, thread -> {
+            for (int i = 0; i < ROUNDS; i++) {
+                round.await();
+                CategoryDTO child = category("Portátiles " + i);
+                try {
+                    if (thread == 0) {
+                        categoryService.addSubcategory(parentId, child);
+                    } else {
+                        child.setParentId(parentId);
+                        categoryService.createCategory(child);
+                    }
+                    created.increment();
+                } catch (DuplicateEntityException e) {
+                    rejected.increment();
+                }
+            }
+        });
+
+        assertEquals(ROUNDS, created.sum());
+        assertEquals(ROUNDS, rejected.sum());
+        assertEquals(ROUNDS, categoryService.findCategoryEntityOrThrow(parentId).getSubcategories().size());
+        assertEquals(ROUNDS + 1, categoryService.getCategoryTree().size());
+        assertEquals(ROUNDS, categoryService.buildCategoryTree(parentId).getSubcategories().size());
+    }
+
+    private static CategoryDTO category(String name) {
+        CategoryDTO category = new CategoryDTO();
+        category.setName(name);
+        return category;
+    }
+}
@@ -0,0 +1,74 @@
+package co.edu.cesde.pps.service;
+
+import co.edu.cesde.pps.dto.CategoryDTO;
+import co.edu.cesde.pps.dto.CategoryTreeDTO;
+import co.edu.cesde.pps.dto.ProductDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * El snapshot del árbol de categorías es inmutable: un cambio de conteos
+ * publica otro snapshot y no modifica el que ya tienen los lectores.
+ */
+class CategoryTreeSnapshotTest {
+
+    private CategoryService categoryService;
+    private ProductService productService;
+    private Long categoryId;
+
+    @BeforeEach
+    void setUp() {
+        categoryService = new CategoryService();
+        productService = new ProductService(categoryService);
+        CategoryDTO category = new CategoryDTO();
+        category.setName("Portátiles");
+        categoryId = categoryService.createCategory(category).getCategoryId();
+    }
+
+    @Test
+    @DisplayName("Un cambio de conteos no modifica el snapshot ya publicado")
+    void countsChangePublishesNewSnapshot() {
+        Long productId = createProduct("SNAP-1", 5);
+        CategoryTreeDTO before = categoryService.getCategoryTree();
+        String eTagBefore = before.getETag();
+
+        productService.updateStock(productId, 0);
+        createProduct("SNAP-2", 3);
+        CategoryTreeDTO after = categoryService.getCategoryTree();
+
+        assertEquals(eTagBefore, before.getETag());
+        assertEquals(1, before.findNode(categoryId).getProductsCount());
+        assertEquals(1, before.findNode(categoryId).getInStockProductsCount());
+
+        assertEquals(before.getVersion(), after.getVersion());
+        assertNotEquals(eTagBefore, after.getETag());
+        assertEquals(2, after.findNode(categoryId).getProductsCount());
+        assertEquals(1, after.findNode(categoryId).getInStockProductsCount());
+        assertEquals(after.getETag(), categoryService.getCategoryTreeETag());
+    }
+
+    @Test
+    @DisplayName("Sin cambios se retorna el mismo snapshot")
+    void unchangedTreeReturnsSameSnapshot() {
+        createProduct("SNAP-1", 5);
+        assertSame(categoryService.getCategoryTree(), categoryService.getCategoryTree());
+    }
+
+    private Long createProduct(String sku, int stock) {
+        ProductDTO product = new ProductDTO();
+        product.setSku(sku);
+        product.setName("Producto " + sku);
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStockQty(stock);
+        product.setCategoryId(categoryId);
+        product.setIsActive(true);
+        return productService.createProduct(product).getProductId();
+    }
+}
@@ -0,0 +1,90 @@
+package co.edu.cesde.pps.service;
+
+import co.edu.cesde.pps.dto.CategoryDTO;
+import co.edu.cesde.pps.dto.ProductDTO;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Utilidades compartidas por las pruebas de concurrencia de servicios:
+ * lanzar N hilos a la vez y crear el catálogo mínimo (categoría y productos).
+ */
+final class ConcurrencyTestSupport {
+
+    private static final long TIMEOUT_SECONDS = 120;
+
+    private ConcurrencyTestSupport() {
+        throw new AssertionError("ConcurrencyTestSupport is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Ejecuta body en la cantidad de hilos indicada, liberados a la vez cuando
+     * todos están listos. Propaga el primer error de cualquier hilo.
+     *
+     * @param threads Cantidad de hilos
+     * @param body Cuerpo de cada hilo (recibe el índice del hilo, 0 a threads - 1)
+     */
+    static void runConcurrently(int threads, ThreadBody body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                int index = thread;
+                futures.add(executor.submit(() -> {
+                    ready.countDown();
+                    start.await();
+                    body.run(index);
+                    return null;
+                }));
+            }
+            ready.await();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                throw new AssertionError("threads did not terminate");
+            }
+        }
+    }
+
+    /**
+     * @return ID de una categoría raíz nueva
+     */
+    static Long createCategory(CategoryService categoryService, String name) {
+        CategoryDTO category = new CategoryDTO();
+        category.setName(name);
+        return categoryService.createCategory(category).getCategoryId();
+    }
+
+    /**
+     * @return ID de un producto activo nuevo
+     */
+    static Long createProduct(ProductService productService, Long categoryId, String sku,
+                              BigDecimal price, int stock) {
+        ProductDTO product = new ProductDTO();
+        product.setSku(sku);
+        product.setName("Producto " + sku);
+        product.setPrice(price);
+        product.setStockQty(stock);
+        product.setCategoryId(categoryId);
+        product.setIsActive(true);
+        return productService.createProduct(product).getProductId();
+    }
+
+    @FunctionalInterface
+    interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+}
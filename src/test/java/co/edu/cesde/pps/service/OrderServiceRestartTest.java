@@ -0,0 +1,118 @@
+package co.edu.cesde.pps.service;
+
+import co.edu.cesde.pps.dto.AddressDTO;
+import co.edu.cesde.pps.dto.CategoryDTO;
+import co.edu.cesde.pps.dto.OrderDTO;
+import co.edu.cesde.pps.dto.ProductDTO;
+import co.edu.cesde.pps.enums.AddressType;
+import co.edu.cesde.pps.model.Order;
+import co.edu.cesde.pps.repository.InMemoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reinicio de OrderService sobre un almacén de órdenes existente: los números
+ * de orden y los IDs continúan después de lo guardado y los índices se
+ * reconstruyen.
+ */
+class OrderServiceRestartTest {
+
+    private UserService userService;
+    private CartService cartService;
+    private AddressService addressService;
+    private ProductService productService;
+    private InMemoryRepository<Order, Long> orderStore;
+    private Long userId;
+    private Long addressId;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        userService = new UserService();
+        CategoryService categoryService = new CategoryService();
+        productService = new ProductService(categoryService);
+        addressService = new AddressService(userService);
+        cartService = new CartService(userService, productService);
+        orderStore = new InMemoryRepository<>("Order", Order::getOrderId);
+
+        CategoryDTO category = new CategoryDTO();
+        category.setName("Tienda");
+        ProductDTO product = new ProductDTO();
+        product.setSku("RESTART-1");
+        product.setName("Producto de prueba");
+        product.setPrice(new BigDecimal("25.00"));
+        product.setStockQty(100);
+        product.setCategoryId(categoryService.createCategory(category).getCategoryId());
+        product.setIsActive(true);
+        productId = productService.createProduct(product).getProductId();
+
+        userId = userService.registerUser("restart@example.com", "hash-de-prueba", "Ana", "Pérez", null)
+            .getUserId();
+        AddressDTO address = new AddressDTO();
+        address.setType(AddressType.SHIPPING);
+        address.setLine1("Calle 10 # 20-30");
+        address.setCity("Medellín");
+        address.setState("Antioquia");
+        address.setCountry("Colombia");
+        address.setPostalCode("050001");
+        address.setIsDefault(true);
+        addressId = addressService.addAddress(userId, address).getAddressId();
+    }
+
+    @Test
+    @DisplayName("Tras reiniciar, el siguiente número de orden es mayor que los guardados")
+    void orderNumbersContinueAfterRestart() {
+        OrderService beforeRestart = newOrderService();
+        List<OrderDTO> stored = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            stored.add(checkout(beforeRestart));
+        }
+
+        OrderService afterRestart = newOrderService();
+        OrderDTO next = checkout(afterRestart);
+
+        String lastStored = stored.get(stored.size() - 1).getOrderNumber();
+        assertTrue(sequenceOf(next.getOrderNumber()) > sequenceOf(lastStored),
+            next.getOrderNumber() + " debe continuar después de " + lastStored);
+        Set<Long> orderIds = new HashSet<>();
+        stored.forEach(order -> orderIds.add(order.getOrderId()));
+        assertTrue(orderIds.add(next.getOrderId()), "ID de orden reutilizado: " + next.getOrderId());
+        assertEquals(4, orderStore.count());
+    }
+
+    @Test
+    @DisplayName("Tras reiniciar, las órdenes guardadas se encuentran por número y por usuario")
+    void indexesAreRebuiltFromStore() {
+        OrderDTO stored = checkout(newOrderService());
+
+        OrderService afterRestart = newOrderService();
+
+        assertEquals(stored.getOrderId(), afterRestart.findByOrderNumber(stored.getOrderNumber()).getOrderId());
+        assertEquals(1, afterRestart.findOrdersByUser(userId).size());
+    }
+
+    private OrderService newOrderService() {
+        return new OrderService(userService, cartService, addressService, productService, orderStore);
+    }
+
+    private OrderDTO checkout(OrderService orderService) {
+        Long cartId = cartService.createCartForUser(userId).getCartId();
+        cartService.addItem(cartId, productId, 1);
+        return orderService.checkout(userId, cartId, addressId, addressId);
+    }
+
+    // Último segmento del número: secuencia del día en el nodo
+    private static long sequenceOf(String orderNumber) {
+        return Long.parseLong(orderNumber.substring(orderNumber.lastIndexOf('-') + 1));
+    }
+}
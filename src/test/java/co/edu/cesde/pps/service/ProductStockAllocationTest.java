@@ -0,0 +1,153 @@
+package co.edu.cesde.pps.service;
+
+import co.edu.cesde.pps.exception.InsufficientStockException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.LongAdder;
+
+import static co.edu.cesde.pps.service.ConcurrencyTestSupport.createCategory;
+import static co.edu.cesde.pps.service.ConcurrencyTestSupport.runConcurrently;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas de ProductService.allocateStock: todo o nada por checkout, también con
+ * checkouts concurrentes, que además no ven los descuentos temporales de otros.
+ */
+class ProductStockAllocationTest {
+
+    private static final int THREADS = 16;
+
+    private CategoryService categoryService;
+    private ProductService productService;
+    private Long categoryId;
+
+    @BeforeEach
+    void setUp() {
+        categoryService = new CategoryService();
+        productService = new ProductService(categoryService);
+        categoryId = createCategory(categoryService, "Checkout");
+    }
+
+    @Test
+    @DisplayName("Falla en la última línea: se restaura el stock de todas las líneas anteriores")
+    void failureOnLastLineRestoresEveryLine() {
+        Long first = createProduct("A", 10);
+        Long second = createProduct("B", 10);
+        Long third = createProduct("C", 2);
+
+        Map<Long, Integer> order = new LinkedHashMap<>();
+        order.put(third, 5); // El orden del mapa no importa: se asigna por productId
+        order.put(first, 3);
+        order.put(second, 4);
+
+        InsufficientStockException error = assertThrows(InsufficientStockException.class,
+            () -> productService.allocateStock(order));
+
+        assertEquals(third, error.getProductId());
+        assertStock(first, 10);
+        assertStock(second, 10);
+        assertStock(third, 2);
+    }
+
+    @Test
+    @DisplayName("Falla en una línea intermedia: se restaura lo descontado y no se toca el resto")
+    void failureOnMiddleLineRestoresPreviousLines() {
+        Long first = createProduct("A", 10);
+        Long second = createProduct("B", 1);
+        Long third = createProduct("C", 10);
+
+        Map<Long, Integer> order = Map.of(first, 2, second, 2, third, 2);
+        assertThrows(InsufficientStockException.class, () -> productService.allocateStock(order));
+
+        assertStock(first, 10);
+        assertStock(second, 1);
+        assertStock(third, 10);
+
+        // Con stock suficiente el mismo pedido se asigna completo
+        productService.increaseStock(second, 1);
+        productService.allocateStock(order);
+        assertStock(first, 8);
+        assertStock(second, 0);
+        assertStock(third, 8);
+    }
+
+    @Test
+    @DisplayName("Checkouts concurrentes: nunca queda un pedido asignado a medias")
+    void concurrentCheckoutsAreAllOrNothing() throws Exception {
+        Long first = createProduct("A", 1_000);
+        Long second = createProduct("B", 1_000);
+        Long scarce = createProduct("C", 500);
+        Map<Long, Integer> basket = Map.of(first, 1, second, 1, scarce, 1);
+        LongAdder succeeded = new LongAdder();
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < 100; i++) {
+                try {
+                    productService.allocateStock(basket);
+                    succeeded.increment();
+                } catch (InsufficientStockException e) {
+                    // Se agotó C: el pedido completo se rechaza
+                }
+            }
+        });
+
+        assertEquals(500, succeeded.sum());
+        assertStock(first, 500);
+        assertStock(second, 500);
+        assertStock(scarce, 0);
+    }
+
+    @Test
+    @DisplayName("Checkouts concurrentes aislados: un pedido que falla no hace fallar a otro que sí alcanza")
+    void failedCheckoutDoesNotStarveConcurrentCheckout() throws Exception {
+        int rounds = 2_000;
+        Long shared = createProduct("A", 1);
+        Long soldOut = createProduct("B", 0); // productId mayor: se descuenta después de A
+        Map<Long, Integer> failingBasket = Map.of(shared, 1, soldOut, 1);
+        Map<Long, Integer> fittingBasket = Map.of(shared, 1);
+        // Cada ronda empieza con una unidad de A: alcanza para fittingBasket
+        CyclicBarrier round = new CyclicBarrier(2, () -> productService.updateStock(shared, 1));
+        LongAdder expectedFailures = new LongAdder();
+        LongAdder spuriousFailures = new LongAdder();
+
+        runConcurrently(2, thread -> {
+            for (int i = 0; i < rounds; i++) {
+                round.await();
+                if (thread == 0) {
+                    try {
+                        productService.allocateStock(failingBasket);
+                    } catch (InsufficientStockException e) {
+                        expectedFailures.increment();
+                    }
+                } else {
+                    try {
+                        productService.allocateStock(fittingBasket);
+                    } catch (InsufficientStockException e) {
+                        spuriousFailures.increment(); // Vio la unidad de A tomada por el otro pedido
+                    }
+                }
+            }
+        });
+
+        assertEquals(rounds, expectedFailures.sum());
+        assertEquals(0, spuriousFailures.sum());
+        assertStock(shared, 0);
+        assertStock(soldOut, 0);
+    }
+
+    private Long createProduct(String sku, int stock) {
+        return ConcurrencyTestSupport.createProduct(productService, categoryId, sku, new BigDecimal("10.00"), stock);
+    }
+
+    private void assertStock(Long productId, int expected) {
+        assertEquals(expected, productService.findProductEntityOrThrow(productId).getStockQty(),
+            "stock del producto " + productId);
+    }
+}
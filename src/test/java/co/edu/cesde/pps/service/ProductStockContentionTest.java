@@ -0,0 +1,106 @@
+package co.edu.cesde.pps.service;
+
+import co.edu.cesde.pps.exception.InsufficientStockException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static co.edu.cesde.pps.service.ConcurrencyTestSupport.createCategory;
+import static co.edu.cesde.pps.service.ConcurrencyTestSupport.createProduct;
+import static co.edu.cesde.pps.service.ConcurrencyTestSupport.runConcurrently;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de contención sobre un único producto "hot": 64 hilos descuentan y
+ * devuelven stock a la vez con el CAS de Product.stockQty. Nunca se sobrevende
+ * y el stock final es el inicial menos lo vendido.
+ */
+class ProductStockContentionTest {
+
+    private static final int THREADS = 64;
+    private static final int HOT_STOCK = 200_000;
+
+    private ProductService productService;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        CategoryService categoryService = new CategoryService();
+        productService = new ProductService(categoryService);
+        Long categoryId = createCategory(categoryService, "Ofertas");
+        productId = createProduct(productService, categoryId, "HOT-001", new BigDecimal("499.99"), HOT_STOCK);
+    }
+
+    @Test
+    @DisplayName("64 hilos agotan un SKU hot: se venden exactamente las unidades en stock")
+    void sixtyFourThreadsNeverOversellHotSku() throws Exception {
+        LongAdder sold = new LongAdder();
+        LongAdder rejected = new LongAdder();
+
+        runConcurrently(THREADS, thread -> {
+            while (true) {
+                try {
+                    productService.decreaseStock(productId, 1);
+                    sold.increment();
+                } catch (InsufficientStockException e) {
+                    rejected.increment();
+                    return;
+                }
+            }
+        });
+
+        assertEquals(HOT_STOCK, sold.sum());
+        assertEquals(THREADS, rejected.sum());
+        assertEquals(0, productService.findProductEntityOrThrow(productId).getStockQty());
+        assertFalse(productService.checkAvailability(productId, 1));
+    }
+
+    @Test
+    @DisplayName("Descuentos y devoluciones concurrentes conservan el stock")
+    void concurrentDecreaseAndIncreaseConserveStock() throws Exception {
+        int roundsPerThread = 5_000;
+        AtomicBoolean negativeSeen = new AtomicBoolean();
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < roundsPerThread; i++) {
+                productService.decreaseStock(productId, 1);
+                if (productService.findProductEntityOrThrow(productId).getStockQty() < 0) {
+                    negativeSeen.set(true);
+                }
+                productService.increaseStock(productId, 1);
+            }
+        });
+
+        assertFalse(negativeSeen.get());
+        assertEquals(HOT_STOCK, productService.findProductEntityOrThrow(productId).getStockQty());
+    }
+
+    @Test
+    @DisplayName("Ventas con stock escaso: el stock final es el inicial menos lo vendido")
+    void partialSellOutLeavesInitialMinusSold() throws Exception {
+        int attemptsPerThread = 5_000; // 64 × 5000 intentos de 1 o 2 unidades: se agota
+        LongAdder unitsSold = new LongAdder();
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < attemptsPerThread; i++) {
+                int quantity = (thread + i) % 2 + 1;
+                try {
+                    productService.decreaseStock(productId, quantity);
+                    unitsSold.add(quantity);
+                } catch (InsufficientStockException e) {
+                    // Sin stock para esta cantidad
+                }
+            }
+        });
+
+        int finalStock = productService.findProductEntityOrThrow(productId).getStockQty();
+        assertEquals(HOT_STOCK - unitsSold.sum(), (long) finalStock);
+        assertTrue(finalStock >= 0 && finalStock < 2, "stock final: " + finalStock);
+    }
+}
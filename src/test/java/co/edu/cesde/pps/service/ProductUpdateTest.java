@@ -0,0 +1,76 @@
+package co.edu.cesde.pps.service;
+
+import co.edu.cesde.pps.dto.CategoryDTO;
+import co.edu.cesde.pps.dto.ProductDTO;
+import co.edu.cesde.pps.exception.ValidationException;
+import co.edu.cesde.pps.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * updateProduct: un cambio rechazado no deja el producto actualizado a medias.
+ */
+class ProductUpdateTest {
+
+    private ProductService productService;
+    private Long categoryId;
+
+    @BeforeEach
+    void setUp() {
+        CategoryService categoryService = new CategoryService();
+        productService = new ProductService(categoryService);
+        CategoryDTO category = new CategoryDTO();
+        category.setName("Accesorios");
+        categoryId = categoryService.createCategory(category).getCategoryId();
+    }
+
+    @Test
+    @DisplayName("Stock rechazado por unidades retenidas: el SKU y los campos no cambian")
+    void rejectedStockChangeKeepsSkuAndFields() {
+        ProductDTO dto = productDTO("MOUSE-1", 10);
+        Long productId = productService.createProduct(dto).getProductId();
+        Product product = productService.findProductEntityOrThrow(productId);
+        assertTrue(productService.tryHoldStock(product, 2));
+
+        ProductDTO update = productDTO("MOUSE-2", 50);
+        update.setName("Mouse renombrado");
+        assertThrows(ValidationException.class, () -> productService.updateProduct(productId, update));
+
+        assertEquals("MOUSE-1", product.getSku());
+        assertEquals("Producto MOUSE-1", product.getName());
+        assertEquals(8, product.getStockQty());
+        assertEquals(productId, productService.findBySku("MOUSE-1").getProductId());
+        assertFalse(productService.existsBySku("MOUSE-2"));
+    }
+
+    @Test
+    @DisplayName("Cambio de SKU aceptado: se libera el anterior")
+    void acceptedSkuChangeReleasesPreviousSku() {
+        Long productId = productService.createProduct(productDTO("MOUSE-1", 10)).getProductId();
+
+        productService.updateProduct(productId, productDTO("MOUSE-2", 12));
+
+        assertFalse(productService.existsBySku("MOUSE-1"));
+        assertEquals(productId, productService.findBySku("MOUSE-2").getProductId());
+        assertEquals(12, productService.findProductEntityOrThrow(productId).getStockQty());
+    }
+
+    private ProductDTO productDTO(String sku, int stock) {
+        ProductDTO product = new ProductDTO();
+        product.setSku(sku);
+        product.setName("Producto " + sku);
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStockQty(stock);
+        product.setCategoryId(categoryId);
+        product.setIsActive(true);
+        return product;
+    }
+}
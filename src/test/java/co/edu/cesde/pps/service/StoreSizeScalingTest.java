@@ -0,0 +1,128 @@
+package co.edu.cesde.pps.service;
+
+import co.edu.cesde.pps.dto.AddressDTO;
+import co.edu.cesde.pps.dto.CategoryDTO;
+import co.edu.cesde.pps.dto.ProductDTO;
+import co.edu.cesde.pps.enums.AddressType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Medición: el costo de addItem y checkout no debe crecer con el tamaño de la
+ * tienda (cantidad de carritos, items y órdenes existentes).
+ *
+ * Con el generateNextId anterior (máximo recorriendo la lista, y flatMap sobre
+ * todos los items para CartItem/OrderItem) ambas operaciones eran O(tamaño de la
+ * tienda); con SequenceIdGenerator son O(1).
+ *
+ * Compara tiempos de reloj: no corre en la suite por defecto (mvn test -Pbenchmarks).
+ */
+@Tag("benchmark")
+class StoreSizeScalingTest {
+
+    private static final int SMALL_STORE = 1_000;
+    private static final int LARGE_STORE = 20_000;
+    private static final int MEASURED_OPERATIONS = 500;
+
+    @Test
+    @DisplayName("addItem y checkout: costo por operación con 1k vs 20k carritos")
+    void addItemAndCheckoutCostDoesNotGrowWithStoreSize() {
+        Store warmUp = new Store(200); // Calentamiento del JIT
+        warmUp.measure();
+        warmUp.measure();
+
+        long[] small = new Store(SMALL_STORE).measure();
+        long[] large = new Store(LARGE_STORE).measure();
+
+        // Un recorrido por operación crecería ~20x; se deja amplio margen para el ruido
+        assertTrue(large[0] < small[0] * 5,
+            "addItem creció con la tienda: " + small[0] + " ns/op -> " + large[0] + " ns/op");
+        assertTrue(large[1] < small[1] * 5,
+            "checkout creció con la tienda: " + small[1] + " ns/op -> " + large[1] + " ns/op");
+    }
+
+    /**
+     * Tienda en memoria con los servicios reales y storeSize carritos con items
+     * (más storeSize / 10 órdenes ya creadas).
+     */
+    private static final class Store {
+        private final CartService cartService;
+        private final OrderService orderService;
+        private final Long productId;
+        private final Long userId;
+        private final Long addressId;
+        private final int storeSize;
+
+        private Store(int storeSize) {
+            this.storeSize = storeSize;
+            UserService userService = new UserService();
+            CategoryService categoryService = new CategoryService();
+            ProductService productService = new ProductService(categoryService);
+            AddressService addressService = new AddressService(userService);
+            cartService = new CartService(userService, productService);
+            orderService = new OrderService(userService, cartService, addressService, productService);
+
+            CategoryDTO category = new CategoryDTO();
+            category.setName("Tienda");
+            ProductDTO product = new ProductDTO();
+            product.setSku("SCALE-1");
+            product.setName("Producto de prueba");
+            product.setPrice(new BigDecimal("25.00"));
+            product.setStockQty(10_000_000);
+            product.setCategoryId(categoryService.createCategory(category).getCategoryId());
+            product.setIsActive(true);
+            productId = productService.createProduct(product).getProductId();
+
+            userId = userService.registerUser("scale@example.com", "hash-de-prueba", "Ana", "Pérez", null)
+                .getUserId();
+            AddressDTO address = new AddressDTO();
+            address.setType(AddressType.SHIPPING);
+            address.setLine1("Calle 10 # 20-30");
+            address.setCity("Medellín");
+            address.setState("Antioquia");
+            address.setCountry("Colombia");
+            address.setPostalCode("050001");
+            address.setIsDefault(true);
+            addressId = addressService.addAddress(userId, address).getAddressId();
+
+            for (long session = 1; session <= storeSize; session++) {
+                Long cartId = cartService.createCartForGuest(session).getCartId();
+                cartService.addItem(cartId, productId, 1);
+            }
+            for (int i = 0; i < storeSize / 10; i++) {
+                checkoutOne();
+            }
+        }
+
+        // Promedio en nanos por operación: [addItem, checkout]
+        private long[] measure() {
+            long addItemNanos = 0;
+            for (int i = 0; i < MEASURED_OPERATIONS; i++) {
+                Long cartId = cartService.createCartForGuest((long) storeSize + 1 + i).getCartId();
+                long begin = System.nanoTime();
+                cartService.addItem(cartId, productId, 1);
+                addItemNanos += System.nanoTime() - begin;
+            }
+
+            long checkoutNanos = 0;
+            for (int i = 0; i < MEASURED_OPERATIONS; i++) {
+                checkoutNanos += checkoutOne();
+            }
+            return new long[] {addItemNanos / MEASURED_OPERATIONS, checkoutNanos / MEASURED_OPERATIONS};
+        }
+
+        // Llena el carrito del usuario y lo convierte en orden; retorna lo que tardó el checkout
+        private long checkoutOne() {
+            Long cartId = cartService.createCartForUser(userId).getCartId();
+            cartService.addItem(cartId, productId, 2);
+            long begin = System.nanoTime();
+            orderService.checkout(userId, cartId, addressId, addressId);
+            return System.nanoTime() - begin;
+        }
+    }
+}